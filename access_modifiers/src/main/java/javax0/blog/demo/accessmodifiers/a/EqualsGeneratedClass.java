@@ -0,0 +1,24 @@
+package javax0.blog.demo.accessmodifiers.a;
+
+import javax0.blog.demo.accessmodifiers.equality.Equality;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Equality
+public class EqualsGeneratedClass extends EqualsGeneratedClassEquality {
+    // declared in the reverse of the comparison order, the generated equals() compares a, b, q and then z
+    public final Map<String,String> z = new HashMap<>();
+    protected Object q;
+    private String b;
+    private int a;
+
+    // the generated superclass cannot see the private fields, it needs package private access
+    int a() {
+        return a;
+    }
+
+    String b() {
+        return b;
+    }
+}
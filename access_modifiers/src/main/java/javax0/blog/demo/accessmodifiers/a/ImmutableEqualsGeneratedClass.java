@@ -0,0 +1,20 @@
+package javax0.blog.demo.accessmodifiers.a;
+
+import javax0.blog.demo.accessmodifiers.equality.Equality;
+
+import java.util.Map;
+
+@Equality(cacheHash = true)
+public class ImmutableEqualsGeneratedClass extends ImmutableEqualsGeneratedClassEquality {
+    final int a;
+    final String b;
+    protected final Object q;
+    public final Map<String,String> z;
+
+    public ImmutableEqualsGeneratedClass(int a, String b, Object q, Map<String, String> z) {
+        this.a = a;
+        this.b = b;
+        this.q = q;
+        this.z = Map.copyOf(z);
+    }
+}
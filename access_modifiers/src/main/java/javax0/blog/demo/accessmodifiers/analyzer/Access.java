@@ -0,0 +1,36 @@
+package javax0.blog.demo.accessmodifiers.analyzer;
+
+/**
+ * The access levels ordered from the narrowest to the widest.
+ */
+public enum Access {
+    PRIVATE("private"), PACKAGE("package private"), PROTECTED("protected"), PUBLIC("public");
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_PROTECTED = 0x0004;
+
+    private final String text;
+
+    Access(String text) {
+        this.text = text;
+    }
+
+    static Access of(int accessFlags) {
+        if ((accessFlags & ACC_PUBLIC) != 0) {
+            return PUBLIC;
+        }
+        if ((accessFlags & ACC_PROTECTED) != 0) {
+            return PROTECTED;
+        }
+        if ((accessFlags & ACC_PRIVATE) != 0) {
+            return PRIVATE;
+        }
+        return PACKAGE;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,282 @@
+package javax0.blog.demo.accessmodifiers.analyzer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.Inflater;
+
+/**
+ * Finds the members that are declared with a wider access than what their callers need. For example a
+ * {@code protected} method that is only called from its own package could be package private.
+ * <p>
+ * The class files are read from directories and jar files and parsed in parallel. The callers of a member are
+ * the classes that have a reference to it in their constant pool. Only the classes added to the analyzer are
+ * known, thus a {@code public} member used by some code not analyzed is reported as too wide. Methods that may
+ * override a method of a supertype are never reported, narrowing their access is not possible. The same holds for the
+ * methods overridden in an analyzed subclass. A method that a subclass not analyzed could override is reported, but
+ * the finding says so, see {@link Finding#overridable()}. Constant fields are not reported either: the compiler
+ * inlines their value, the callers cannot be found in the class files.
+ */
+public class AccessAnalyzer {
+    private static final String OBJECT = "java/lang/Object";
+    private static final Set<String> OBJECT_METHODS = Set.of("equals(Ljava/lang/Object;)Z", "hashCode()I",
+            "toString()Ljava/lang/String;", "clone()Ljava/lang/Object;", "finalize()V");
+
+    private final Map<String, ClassInfo> classes = new ConcurrentHashMap<>();
+
+    /**
+     * @param path a directory containing class files, a jar file or a single class file
+     */
+    public AccessAnalyzer add(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            addDirectory(path);
+        } else if (path.toString().endsWith(".class")) {
+            add(ClassFileParser.parse(ByteBuffer.wrap(Files.readAllBytes(path))));
+        } else {
+            addJar(path);
+        }
+        return this;
+    }
+
+    public int size() {
+        return classes.size();
+    }
+
+    private void add(ClassInfo classInfo) {
+        classes.put(classInfo.name, classInfo);
+    }
+
+    private static boolean isClassFile(String name) {
+        return name.endsWith(".class") && !name.endsWith("module-info.class") && !name.startsWith("META-INF/");
+    }
+
+    private void addDirectory(Path directory) throws IOException {
+        final List<Path> files;
+        try (final var walk = Files.walk(directory)) {
+            files = walk.filter(p -> isClassFile(p.getFileName().toString())).collect(Collectors.toList());
+        }
+        try {
+            files.parallelStream().forEach(file -> {
+                try {
+                    add(ClassFileParser.parse(ByteBuffer.wrap(Files.readAllBytes(file))));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * The entries are split into a few chunks per thread. A chunk uses one {@link Inflater}, creating one for each
+     * entry would cost more than inflating a small class file.
+     */
+    private void addJar(Path path) throws IOException {
+        final var jar = new MappedJar(path);
+        final var entries = jar.entries().stream().filter(e -> isClassFile(e.name())).collect(Collectors.toList());
+        final int chunks = Math.max(1, Math.min(entries.size(), ForkJoinPool.getCommonPoolParallelism() * 4));
+        try {
+            IntStream.range(0, chunks).parallel().forEach(chunk -> {
+                final var inflater = new Inflater(true);
+                try {
+                    for (int i = chunk; i < entries.size(); i += chunks) {
+                        add(ClassFileParser.parse(jar.read(entries.get(i), inflater)));
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    inflater.end();
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public List<Finding> analyze() {
+        final var callers = new ConcurrentHashMap<Member, Set<String>>();
+        classes.values().parallelStream().forEach(classInfo -> {
+            for (final var reference : classInfo.references) {
+                final var member = resolve(reference);
+                if (member != null) {
+                    callers.computeIfAbsent(member, m -> ConcurrentHashMap.newKeySet()).add(classInfo.name);
+                }
+            }
+        });
+        final var subtypes = new HashMap<String, List<ClassInfo>>();
+        for (final var classInfo : classes.values()) {
+            if (classInfo.superName != null) {
+                subtypes.computeIfAbsent(classInfo.superName, k -> new ArrayList<>()).add(classInfo);
+            }
+            for (final var name : classInfo.interfaces) {
+                subtypes.computeIfAbsent(name, k -> new ArrayList<>()).add(classInfo);
+            }
+        }
+        return classes.values().parallelStream()
+                .flatMap(classInfo -> classInfo.members.stream()
+                        .filter(member -> isCandidate(classInfo, member) && !isOverridden(classInfo, member, subtypes))
+                        .map(member -> finding(member, callers.getOrDefault(member, Set.of()),
+                                isOverridable(classInfo, member))))
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparing(Finding::member))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Find the member a constant pool reference points to. The class named in the reference may inherit the member.
+     */
+    private Member resolve(MemberRef reference) {
+        final var signature = reference.signature();
+        var name = reference.owner;
+        while (name != null) {
+            final var classInfo = classes.get(name);
+            if (classInfo == null) {
+                return null;
+            }
+            final var member = classInfo.member(signature);
+            if (member != null) {
+                return member;
+            }
+            name = classInfo.superName;
+        }
+        return null;
+    }
+
+    private boolean isCandidate(ClassInfo classInfo, Member member) {
+        if (classInfo.isInterface()
+                || (member.accessFlags & (Member.ACC_SYNTHETIC | Member.ACC_BRIDGE)) != 0
+                || member.access() == Access.PRIVATE
+                || member.name.equals("<clinit>")) {
+            return false;
+        }
+        if (!member.method) {
+            return !member.constant;
+        }
+        final boolean isStatic = (member.accessFlags & Member.ACC_STATIC) != 0;
+        if (isStatic && member.name.equals("main") && member.descriptor.equals("([Ljava/lang/String;)V")) {
+            return false;
+        }
+        if (classInfo.isEnum() && isStatic && (member.name.equals("values") || member.name.equals("valueOf"))) {
+            return false;
+        }
+        return isStatic || member.name.equals("<init>") || !mayOverride(classInfo, member.signature());
+    }
+
+    /**
+     * A non-final instance method of a non-final class can be overridden in a subclass.
+     */
+    private static boolean isOverridable(ClassInfo classInfo, Member member) {
+        return member.method
+                && (member.accessFlags & (Member.ACC_STATIC | Member.ACC_FINAL)) == 0
+                && !member.name.equals("<init>")
+                && !classInfo.isFinal();
+    }
+
+    private static boolean isOverridden(ClassInfo classInfo, Member member, Map<String, List<ClassInfo>> subtypes) {
+        return isOverridable(classInfo, member) && redeclared(classInfo.name, member.signature(), subtypes);
+    }
+
+    /**
+     * @return {@code true} if an analyzed subtype of the class, direct or indirect, declares a member with the same
+     * signature. Narrowing the member would break the overriding one or would stop it overriding.
+     */
+    private static boolean redeclared(String name, String signature, Map<String, List<ClassInfo>> subtypes) {
+        for (final var subtype : subtypes.getOrDefault(name, List.of())) {
+            if (subtype.member(signature) != null || redeclared(subtype.name, signature, subtypes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean mayOverride(ClassInfo classInfo, String signature) {
+        if (OBJECT_METHODS.contains(signature)) {
+            return true;
+        }
+        final var supertypes = new ArrayList<String>();
+        if (classInfo.superName != null) {
+            supertypes.add(classInfo.superName);
+        }
+        supertypes.addAll(List.of(classInfo.interfaces));
+        for (final var name : supertypes) {
+            if (name.equals(OBJECT)) {
+                continue;
+            }
+            final var supertype = classes.get(name);
+            if (supertype == null) {
+                // we cannot tell what an unknown supertype declares
+                return true;
+            }
+            final var member = supertype.member(signature);
+            if ((member != null && member.access() != Access.PRIVATE) || mayOverride(supertype, signature)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Finding finding(Member member, Set<String> callers, boolean overridable) {
+        var needed = Access.PRIVATE;
+        for (final var caller : callers) {
+            final var access = needed(member.owner, caller);
+            if (access.compareTo(needed) > 0) {
+                needed = access;
+            }
+        }
+        return member.access().compareTo(needed) > 0 ? new Finding(member, needed, callers, overridable) : null;
+    }
+
+    private Access needed(String owner, String caller) {
+        if (ClassInfo.topLevelOf(owner).equals(ClassInfo.topLevelOf(caller))) {
+            return Access.PRIVATE;
+        }
+        if (ClassInfo.packageOf(owner).equals(ClassInfo.packageOf(caller))) {
+            return Access.PACKAGE;
+        }
+        if (isSubclass(caller, owner) || isSubclass(ClassInfo.topLevelOf(caller), owner)) {
+            return Access.PROTECTED;
+        }
+        return Access.PUBLIC;
+    }
+
+    private boolean isSubclass(String name, String superName) {
+        var classInfo = classes.get(name);
+        while (classInfo != null && classInfo.superName != null) {
+            if (classInfo.superName.equals(superName)) {
+                return true;
+            }
+            classInfo = classes.get(classInfo.superName);
+        }
+        return false;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: AccessAnalyzer <class directory or jar>...");
+            System.exit(1);
+        }
+        final long start = System.nanoTime();
+        final var analyzer = new AccessAnalyzer();
+        for (final var arg : args) {
+            analyzer.add(Path.of(arg));
+        }
+        final var findings = analyzer.analyze();
+        findings.forEach(System.out::println);
+        System.err.printf("%d classes, %d findings in %d ms%n", analyzer.size(), findings.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+}
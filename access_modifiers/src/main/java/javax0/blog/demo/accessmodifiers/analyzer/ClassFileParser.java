@@ -0,0 +1,230 @@
+package javax0.blog.demo.accessmodifiers.analyzer;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the constant pool, the header and the member tables of a class file directly from a buffer. Attributes,
+ * including the {@code Code}, are skipped: every member a class uses has an entry in its constant pool, there is no
+ * need to look at the byte code. The only exception is the {@code ConstantValue} of a field: the compiler inlines the
+ * compile time constants, the classes using them do not reference the field.
+ */
+public class ClassFileParser {
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int CONSTANT_Utf8 = 1;
+    private static final int CONSTANT_Integer = 3;
+    private static final int CONSTANT_Float = 4;
+    private static final int CONSTANT_Long = 5;
+    private static final int CONSTANT_Double = 6;
+    private static final int CONSTANT_Class = 7;
+    private static final int CONSTANT_String = 8;
+    private static final int CONSTANT_Fieldref = 9;
+    private static final int CONSTANT_Methodref = 10;
+    private static final int CONSTANT_InterfaceMethodref = 11;
+    private static final int CONSTANT_NameAndType = 12;
+    private static final int CONSTANT_MethodHandle = 15;
+    private static final int CONSTANT_MethodType = 16;
+    private static final int CONSTANT_Dynamic = 17;
+    private static final int CONSTANT_InvokeDynamic = 18;
+    private static final int CONSTANT_Module = 19;
+    private static final int CONSTANT_Package = 20;
+
+    private static final String CONSTANT_VALUE = "ConstantValue";
+
+    private final ByteBuffer buffer;
+    private int pos;
+    private byte[] tags;
+    private int[] offsets;
+    private String[] strings;
+
+    private ClassFileParser(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.pos = buffer.position();
+    }
+
+    /**
+     * @param buffer the class file from its current position, in big endian byte order
+     */
+    public static ClassInfo parse(ByteBuffer buffer) {
+        return new ClassFileParser(buffer).parse();
+    }
+
+    private ClassInfo parse() {
+        if (u4() != MAGIC) {
+            throw new IllegalArgumentException("Not a class file");
+        }
+        pos += 4; // minor and major version
+        readConstantPool();
+        final int accessFlags = u2();
+        final var name = className(u2());
+        final int superIndex = u2();
+        final var superName = superIndex == 0 ? null : className(superIndex);
+        final var interfaces = new String[u2()];
+        for (int i = 0; i < interfaces.length; i++) {
+            interfaces[i] = className(u2());
+        }
+        final var members = new ArrayList<Member>();
+        readMembers(name, members, false);
+        readMembers(name, members, true);
+        return new ClassInfo(name, superName, interfaces, accessFlags, members, references());
+    }
+
+    private void readConstantPool() {
+        final int count = u2();
+        tags = new byte[count];
+        offsets = new int[count];
+        strings = new String[count];
+        for (int i = 1; i < count; i++) {
+            final int tag = u1();
+            tags[i] = (byte) tag;
+            offsets[i] = pos;
+            switch (tag) {
+                case CONSTANT_Utf8:
+                    final int length = u2();
+                    pos += length;
+                    break;
+                case CONSTANT_Integer:
+                case CONSTANT_Float:
+                case CONSTANT_Fieldref:
+                case CONSTANT_Methodref:
+                case CONSTANT_InterfaceMethodref:
+                case CONSTANT_NameAndType:
+                case CONSTANT_Dynamic:
+                case CONSTANT_InvokeDynamic:
+                    pos += 4;
+                    break;
+                case CONSTANT_Long:
+                case CONSTANT_Double:
+                    pos += 8;
+                    i++; // takes two slots
+                    break;
+                case CONSTANT_Class:
+                case CONSTANT_String:
+                case CONSTANT_MethodType:
+                case CONSTANT_Module:
+                case CONSTANT_Package:
+                    pos += 2;
+                    break;
+                case CONSTANT_MethodHandle:
+                    pos += 3;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown constant pool tag " + tag + " at index " + i);
+            }
+        }
+    }
+
+    private void readMembers(String owner, List<Member> members, boolean methods) {
+        final int count = u2();
+        for (int i = 0; i < count; i++) {
+            final int accessFlags = u2();
+            final var name = utf8(u2());
+            final var descriptor = utf8(u2());
+            final boolean constant = readAttributes();
+            members.add(new Member(owner, name, descriptor, accessFlags, methods, constant));
+        }
+    }
+
+    /**
+     * Skip the attributes of a member.
+     *
+     * @return {@code true} if one of the attributes is a {@code ConstantValue}
+     */
+    private boolean readAttributes() {
+        boolean constant = false;
+        final int count = u2();
+        for (int i = 0; i < count; i++) {
+            final int name = u2();
+            final int length = u4();
+            if (tags[name] == CONSTANT_Utf8 && utf8(name).equals(CONSTANT_VALUE)) {
+                constant = true;
+            }
+            pos += length;
+        }
+        return constant;
+    }
+
+    private List<MemberRef> references() {
+        final var references = new ArrayList<MemberRef>();
+        for (int i = 1; i < tags.length; i++) {
+            final int tag = tags[i];
+            if (tag == CONSTANT_Fieldref || tag == CONSTANT_Methodref || tag == CONSTANT_InterfaceMethodref) {
+                final int offset = offsets[i];
+                final var owner = className(u2(offset));
+                // array types, like the clone() of an array, are not classes we analyze
+                if (owner.startsWith("[")) {
+                    continue;
+                }
+                final int nameAndType = offsets[u2(offset + 2)];
+                references.add(new MemberRef(owner, utf8(u2(nameAndType)), utf8(u2(nameAndType + 2)),
+                        tag != CONSTANT_Fieldref));
+            }
+        }
+        return references;
+    }
+
+    private String className(int index) {
+        return utf8(u2(offsets[index]));
+    }
+
+    private String utf8(int index) {
+        var s = strings[index];
+        if (s == null) {
+            s = decode(offsets[index]);
+            strings[index] = s;
+        }
+        return s;
+    }
+
+    private String decode(int offset) {
+        final int length = u2(offset);
+        final var bytes = new byte[length];
+        buffer.get(offset + 2, bytes);
+        for (final var b : bytes) {
+            if (b <= 0) {
+                // modified UTF-8 is not the same as UTF-8 for zero and supplementary characters
+                return decodeModified(bytes);
+            }
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private static String decodeModified(byte[] bytes) {
+        final var data = new byte[bytes.length + 2];
+        data[0] = (byte) (bytes.length >> 8);
+        data[1] = (byte) bytes.length;
+        System.arraycopy(bytes, 0, data, 2, bytes.length);
+        try {
+            return new DataInputStream(new ByteArrayInputStream(data)).readUTF();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int u1() {
+        return buffer.get(pos++) & 0xFF;
+    }
+
+    private int u2() {
+        final int value = u2(pos);
+        pos += 2;
+        return value;
+    }
+
+    private int u2(int offset) {
+        return buffer.getShort(offset) & 0xFFFF;
+    }
+
+    private int u4() {
+        final int value = buffer.getInt(pos);
+        pos += 4;
+        return value;
+    }
+}
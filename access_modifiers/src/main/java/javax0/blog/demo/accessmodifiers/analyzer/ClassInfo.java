@@ -0,0 +1,65 @@
+package javax0.blog.demo.accessmodifiers.analyzer;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The part of a class file the analyzer needs: the name of the class and its supertypes, the declared members and
+ * the members referenced from the constant pool. Names are in the internal form, like {@code java/lang/Object}.
+ */
+public class ClassInfo {
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_INTERFACE = 0x0200;
+    static final int ACC_ENUM = 0x4000;
+
+    final String name;
+    final String superName;
+    final String[] interfaces;
+    final int accessFlags;
+    final List<Member> members;
+    final List<MemberRef> references;
+    private final Map<String, Member> bySignature = new HashMap<>();
+
+    ClassInfo(String name, String superName, String[] interfaces, int accessFlags, List<Member> members, List<MemberRef> references) {
+        this.name = name;
+        this.superName = superName;
+        this.interfaces = interfaces;
+        this.accessFlags = accessFlags;
+        this.members = members;
+        this.references = references;
+        for (final var member : members) {
+            bySignature.put(member.signature(), member);
+        }
+    }
+
+    Member member(String signature) {
+        return bySignature.get(signature);
+    }
+
+    boolean isFinal() {
+        return (accessFlags & ACC_FINAL) != 0;
+    }
+
+    boolean isInterface() {
+        return (accessFlags & ACC_INTERFACE) != 0;
+    }
+
+    boolean isEnum() {
+        return (accessFlags & ACC_ENUM) != 0;
+    }
+
+    static String packageOf(String className) {
+        final int slash = className.lastIndexOf('/');
+        return slash == -1 ? "" : className.substring(0, slash);
+    }
+
+    /**
+     * Nested classes are compiled to separate class files, but they can access each other's private members
+     * (nest mates), thus they are identified by the top level class.
+     */
+    static String topLevelOf(String className) {
+        final int dollar = className.indexOf('$', className.lastIndexOf('/') + 1);
+        return dollar == -1 ? className : className.substring(0, dollar);
+    }
+}
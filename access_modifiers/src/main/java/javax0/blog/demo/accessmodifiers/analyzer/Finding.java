@@ -0,0 +1,46 @@
+package javax0.blog.demo.accessmodifiers.analyzer;
+
+import java.util.Set;
+
+/**
+ * A member that is declared with a wider access than its callers need.
+ */
+public class Finding {
+    final Member member;
+    final Access needed;
+    final Set<String> callers;
+    /**
+     * The method can be overridden by a subclass that was not analyzed, narrowing it is safe only if there is none.
+     */
+    final boolean overridable;
+
+    Finding(Member member, Access needed, Set<String> callers, boolean overridable) {
+        this.member = member;
+        this.needed = needed;
+        this.callers = callers;
+        this.overridable = overridable;
+    }
+
+    public String member() {
+        return member.toString();
+    }
+
+    public Access declared() {
+        return member.access();
+    }
+
+    public Access needed() {
+        return needed;
+    }
+
+    public boolean overridable() {
+        return overridable;
+    }
+
+    @Override
+    public String toString() {
+        return member + " is " + declared() + " but " + needed + " is enough ("
+                + (callers.isEmpty() ? "no callers" : callers.size() + " calling class" + (callers.size() > 1 ? "es" : ""))
+                + (overridable ? ", unless overridden outside the analyzed classes" : "") + ")";
+    }
+}
@@ -0,0 +1,151 @@
+package javax0.blog.demo.accessmodifiers.analyzer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A jar file mapped into memory. The central directory is read directly from the mapped buffer, and the entries
+ * are sliced from it. Stored entries are not copied at all. Deflated entries are inflated by the caller's
+ * {@link Inflater}, so that a worker thread can reuse one inflater for many entries.
+ * <p>
+ * ZIP64 archives are not supported. They are needed only above 65535 entries or 4GB.
+ */
+public class MappedJar {
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int CENTRAL_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_SIGNATURE = 0x04034b50;
+    private static final int EOCD_SIZE = 22;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+
+    public static class Entry {
+        final String name;
+        final int method;
+        final int compressedSize;
+        final int size;
+        final int localHeaderOffset;
+
+        private Entry(String name, int method, int compressedSize, int size, int localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        public String name() {
+            return name;
+        }
+    }
+
+    private final MappedByteBuffer mapped;
+    private final List<Entry> entries;
+
+    public MappedJar(Path jar) throws IOException {
+        try (final var channel = FileChannel.open(jar, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(jar + " is too large to be mapped");
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        entries = readCentralDirectory(jar);
+    }
+
+    public List<Entry> entries() {
+        return entries;
+    }
+
+    private ByteBuffer littleEndian() {
+        return mapped.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private List<Entry> readCentralDirectory(Path jar) throws IOException {
+        final var buffer = littleEndian();
+        final int eocd = findEndOfCentralDirectory(buffer);
+        if (eocd == -1) {
+            throw new IOException(jar + " is not a zip file");
+        }
+        final int count = buffer.getShort(eocd + 10) & 0xFFFF;
+        final long offset = buffer.getInt(eocd + 16) & 0xFFFFFFFFL;
+        if (count == 0xFFFF || offset == 0xFFFFFFFFL) {
+            throw new IOException(jar + " is a ZIP64 archive, it is not supported");
+        }
+        final var entries = new ArrayList<Entry>(count);
+        int pos = (int) offset;
+        for (int i = 0; i < count; i++) {
+            if (buffer.getInt(pos) != CENTRAL_SIGNATURE) {
+                throw new IOException(jar + " has a corrupt central directory");
+            }
+            final int method = buffer.getShort(pos + 10) & 0xFFFF;
+            final int compressedSize = buffer.getInt(pos + 20);
+            final int size = buffer.getInt(pos + 24);
+            final int nameLength = buffer.getShort(pos + 28) & 0xFFFF;
+            final int extraLength = buffer.getShort(pos + 30) & 0xFFFF;
+            final int commentLength = buffer.getShort(pos + 32) & 0xFFFF;
+            final int localHeaderOffset = buffer.getInt(pos + 42);
+            final var name = new byte[nameLength];
+            buffer.get(pos + 46, name);
+            entries.add(new Entry(new String(name, StandardCharsets.UTF_8), method, compressedSize, size, localHeaderOffset));
+            pos += 46 + nameLength + extraLength + commentLength;
+        }
+        return entries;
+    }
+
+    private static int findEndOfCentralDirectory(ByteBuffer buffer) {
+        final int limit = Math.max(0, buffer.limit() - EOCD_SIZE - 0xFFFF);
+        for (int pos = buffer.limit() - EOCD_SIZE; pos >= limit; pos--) {
+            if (buffer.getInt(pos) == EOCD_SIGNATURE) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param inflater used to inflate deflated entries, it is reset before it is returned
+     * @return the content of the entry in big endian byte order, as class files need it
+     */
+    public ByteBuffer read(Entry entry, Inflater inflater) throws IOException {
+        final var header = littleEndian();
+        final int local = entry.localHeaderOffset;
+        if (header.getInt(local) != LOCAL_SIGNATURE) {
+            throw new IOException("Corrupt local header for " + entry.name);
+        }
+        final int start = local + 30 + (header.getShort(local + 26) & 0xFFFF) + (header.getShort(local + 28) & 0xFFFF);
+        final var data = mapped.slice(start, entry.compressedSize);
+        switch (entry.method) {
+            case STORED:
+                return data;
+            case DEFLATED:
+                final var out = new byte[entry.size];
+                inflater.setInput(data);
+                try {
+                    int n = 0;
+                    while (n < out.length && !inflater.finished()) {
+                        final int inflated = inflater.inflate(out, n, out.length - n);
+                        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            throw new IOException("Truncated entry " + entry.name);
+                        }
+                        n += inflated;
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException("Corrupt entry " + entry.name, e);
+                } finally {
+                    inflater.reset();
+                }
+                return ByteBuffer.wrap(out);
+            default:
+                throw new IOException("Unsupported compression method " + entry.method + " for " + entry.name);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package javax0.blog.demo.accessmodifiers.analyzer;
+
+/**
+ * A field or method declared in a class.
+ */
+public class Member {
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_BRIDGE = 0x0040;
+    static final int ACC_SYNTHETIC = 0x1000;
+
+    final String owner;
+    final String name;
+    final String descriptor;
+    final int accessFlags;
+    final boolean method;
+    /**
+     * The field has a {@code ConstantValue} attribute. The compiler copies the value of such a field into the
+     * classes using it, they have no reference to the field in their constant pool.
+     */
+    final boolean constant;
+
+    Member(String owner, String name, String descriptor, int accessFlags, boolean method, boolean constant) {
+        this.owner = owner;
+        this.name = name;
+        this.descriptor = descriptor;
+        this.accessFlags = accessFlags;
+        this.method = method;
+        this.constant = constant;
+    }
+
+    Access access() {
+        return Access.of(accessFlags);
+    }
+
+    String signature() {
+        return method ? name + descriptor : name + ":" + descriptor;
+    }
+
+    @Override
+    public String toString() {
+        return owner.replace('/', '.') + "." + (method ? name + descriptor : name);
+    }
+}
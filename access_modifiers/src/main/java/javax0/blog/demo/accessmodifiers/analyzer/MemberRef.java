@@ -0,0 +1,23 @@
+package javax0.blog.demo.accessmodifiers.analyzer;
+
+/**
+ * A {@code Fieldref}, {@code Methodref} or {@code InterfaceMethodref} constant pool entry. The owner is the class
+ * named in the entry, which may be a subclass of the class actually declaring the member.
+ */
+public class MemberRef {
+    final String owner;
+    final String name;
+    final String descriptor;
+    final boolean method;
+
+    MemberRef(String owner, String name, String descriptor, boolean method) {
+        this.owner = owner;
+        this.name = name;
+        this.descriptor = descriptor;
+        this.method = method;
+    }
+
+    String signature() {
+        return method ? name + descriptor : name + ":" + descriptor;
+    }
+}
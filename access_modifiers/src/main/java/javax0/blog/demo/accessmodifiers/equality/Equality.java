@@ -0,0 +1,25 @@
+package javax0.blog.demo.accessmodifiers.equality;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generate {@code equals()} and {@code hashCode()} for the annotated class. The methods are generated into an
+ * abstract class named {@code <ClassName>Equality} in the same package, and the annotated class has to extend
+ * it. Because the generated class is a different class, it cannot see the private fields. A private field
+ * is used through a non-private accessor named after the field, {@code x()}, {@code getX()} or {@code isX()}.
+ * <p>
+ * {@code equals()} compares the primitive fields first, then the boxed primitives, strings and enums, then the
+ * other objects, and the arrays, collections and maps last.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Equality {
+    /**
+     * Cache the hash code in the instance. All the fields have to be final, and the objects they refer to have
+     * to be immutable, otherwise the cached value gets stale. The processor checks only that the fields are final.
+     */
+    boolean cacheHash() default false;
+}
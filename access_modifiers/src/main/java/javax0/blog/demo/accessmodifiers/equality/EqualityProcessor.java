@@ -0,0 +1,284 @@
+package javax0.blog.demo.accessmodifiers.equality;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+@SupportedAnnotationTypes("javax0.blog.demo.accessmodifiers.equality.Equality")
+public class EqualityProcessor extends AbstractProcessor {
+    static final String SUFFIX = "Equality";
+
+    private static final int PRIMITIVE = 0;
+    private static final int SIMPLE_OBJECT = 1;
+    private static final int OBJECT = 2;
+    private static final int CONTAINER = 3;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (final var element : roundEnv.getElementsAnnotatedWith(Equality.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@Equality can only be used on classes");
+                continue;
+            }
+            final var type = (TypeElement) element;
+            if (!extendsGenerated(type)) {
+                error(element, type.getSimpleName() + " has to extend " + type.getSimpleName() + SUFFIX);
+                continue;
+            }
+            final var fields = fields(type, element.getAnnotation(Equality.class).cacheHash());
+            if (fields != null) {
+                write(type, fields, element.getAnnotation(Equality.class).cacheHash());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * In the first round the generated superclass does not exist yet, the superclass is an error type named as it
+     * is written in the source, simple or qualified. When it exists, for example from an earlier compilation, it
+     * is a declared type. In both cases the name has to be the name of the generated class, an unrelated class
+     * whose name only ends the same way is not accepted.
+     */
+    private boolean extendsGenerated(TypeElement type) {
+        final var superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED && superclass.getKind() != TypeKind.ERROR) {
+            return false;
+        }
+        final var element = processingEnv.getTypeUtils().asElement(superclass);
+        if (!(element instanceof TypeElement)) {
+            return false;
+        }
+        final var name = ((TypeElement) element).getQualifiedName();
+        final var simpleName = type.getSimpleName() + SUFFIX;
+        final var packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName();
+        final var qualifiedName = packageName.length() == 0 ? simpleName : packageName + "." + simpleName;
+        return name.contentEquals(qualifiedName)
+                || superclass.getKind() == TypeKind.ERROR && name.contentEquals(simpleName);
+    }
+
+    private static class Field {
+        final String access;
+        final TypeMirror type;
+        final int cost;
+
+        Field(String access, TypeMirror type, int cost) {
+            this.access = access;
+            this.type = type;
+            this.cost = cost;
+        }
+    }
+
+    private List<Field> fields(TypeElement type, boolean cacheHash) {
+        final var fields = new ArrayList<Field>();
+        boolean ok = true;
+        for (final var field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            final var modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+                continue;
+            }
+            if (cacheHash && !modifiers.contains(Modifier.FINAL)) {
+                error(field, "cacheHash = true needs final fields, '" + field.getSimpleName() + "' is not final");
+                ok = false;
+            }
+            final var access = access(type, field);
+            if (access == null) {
+                error(field, "'" + field.getSimpleName() + "' is private and has no accessor, "
+                        + "the generated " + type.getSimpleName() + SUFFIX + " cannot read it");
+                ok = false;
+                continue;
+            }
+            fields.add(new Field(access, field.asType(), cost(field.asType())));
+        }
+        return ok ? fields : null;
+    }
+
+    private static String access(TypeElement type, VariableElement field) {
+        final var name = field.getSimpleName().toString();
+        if (!field.getModifiers().contains(Modifier.PRIVATE)) {
+            return name;
+        }
+        final var capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        for (final var method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            final var methodName = method.getSimpleName().toString();
+            if (isAccessor(method, field)
+                    && (methodName.equals(name) || methodName.equals("get" + capitalized) || methodName.equals("is" + capitalized))) {
+                return methodName + "()";
+            }
+        }
+        return null;
+    }
+
+    private static boolean isAccessor(ExecutableElement method, VariableElement field) {
+        return method.getParameters().isEmpty()
+                && !method.getModifiers().contains(Modifier.PRIVATE)
+                && !method.getModifiers().contains(Modifier.STATIC)
+                && method.getReturnType().toString().equals(field.asType().toString());
+    }
+
+    private int cost(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return PRIMITIVE;
+        }
+        if (type.getKind() == TypeKind.ARRAY) {
+            return CONTAINER;
+        }
+        final var types = processingEnv.getTypeUtils();
+        final var elements = processingEnv.getElementUtils();
+        final var erasure = types.erasure(type);
+        for (final var container : new String[]{"java.lang.Iterable", "java.util.Map"}) {
+            if (types.isAssignable(erasure, types.erasure(elements.getTypeElement(container).asType()))) {
+                return CONTAINER;
+            }
+        }
+        if (types.isSameType(erasure, elements.getTypeElement("java.lang.String").asType())) {
+            return SIMPLE_OBJECT;
+        }
+        final var element = types.asElement(type);
+        if (element != null && element.getKind() == ElementKind.ENUM) {
+            return SIMPLE_OBJECT;
+        }
+        try {
+            types.unboxedType(type);
+            return SIMPLE_OBJECT;
+        } catch (IllegalArgumentException notBoxed) {
+            return OBJECT;
+        }
+    }
+
+    private void write(TypeElement type, List<Field> fields, boolean cacheHash) {
+        final var packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        final var className = type.getSimpleName().toString();
+        final var generatedName = className + SUFFIX;
+        final var sb = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            sb.append("package ").append(packageName).append(";\n\n");
+        }
+        sb.append("@javax.annotation.processing.Generated(\"").append(EqualityProcessor.class.getName()).append("\")\n");
+        sb.append("abstract class ").append(generatedName).append(" {\n");
+        if (cacheHash) {
+            sb.append("    private int cachedHash;\n\n");
+        }
+
+        sb.append("    @Override\n");
+        sb.append("    public boolean equals(Object o) {\n");
+        sb.append("        if (this == o) return true;\n");
+        sb.append("        if (!(o instanceof ").append(className).append(")) return false;\n");
+        if (cacheHash) {
+            sb.append("        final int otherHash = ((").append(generatedName).append(") o).cachedHash;\n");
+            sb.append("        if (cachedHash != 0 && otherHash != 0 && cachedHash != otherHash) return false;\n");
+        }
+        sb.append("        final ").append(className).append(" self = (").append(className).append(") this;\n");
+        sb.append("        final ").append(className).append(" that = (").append(className).append(") o;\n");
+        final var ordered = new ArrayList<>(fields);
+        ordered.sort(Comparator.comparingInt(f -> f.cost));
+        for (final var field : ordered) {
+            sb.append("        if (").append(notEquals(field)).append(") return false;\n");
+        }
+        sb.append("        return true;\n");
+        sb.append("    }\n\n");
+
+        sb.append("    @Override\n");
+        sb.append("    public int hashCode() {\n");
+        if (cacheHash) {
+            sb.append("        int h = cachedHash;\n");
+            sb.append("        if (h == 0) {\n");
+            sb.append("            h = computeHashCode();\n");
+            sb.append("            cachedHash = h;\n");
+            sb.append("        }\n");
+            sb.append("        return h;\n");
+            sb.append("    }\n\n");
+            sb.append("    private int computeHashCode() {\n");
+        }
+        sb.append("        final ").append(className).append(" self = (").append(className).append(") this;\n");
+        sb.append("        int result = 0;\n");
+        // the hash uses the declaration order, the same value a hand written hashCode() would give
+        for (final var field : fields) {
+            sb.append("        result = 31 * result + ").append(hash(field)).append(";\n");
+        }
+        sb.append("        return result;\n");
+        sb.append("    }\n");
+        sb.append("}\n");
+
+        try (final var writer = processingEnv.getFiler()
+                .createSourceFile(packageName.isEmpty() ? generatedName : packageName + "." + generatedName, type)
+                .openWriter()) {
+            writer.write(sb.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String notEquals(Field field) {
+        final var self = "self." + field.access;
+        final var that = "that." + field.access;
+        switch (field.type.getKind()) {
+            case FLOAT:
+                return "Float.compare(" + self + ", " + that + ") != 0";
+            case DOUBLE:
+                return "Double.compare(" + self + ", " + that + ") != 0";
+            case ARRAY:
+                return "!java.util.Arrays." + (isPrimitiveArray(field) ? "equals" : "deepEquals") + "(" + self + ", " + that + ")";
+            default:
+                return field.type.getKind().isPrimitive()
+                        ? self + " != " + that
+                        : "!java.util.Objects.equals(" + self + ", " + that + ")";
+        }
+    }
+
+    private static String hash(Field field) {
+        final var self = "self." + field.access;
+        switch (field.type.getKind()) {
+            case INT:
+                return self;
+            case BOOLEAN:
+                return "Boolean.hashCode(" + self + ")";
+            case BYTE:
+                return "Byte.hashCode(" + self + ")";
+            case SHORT:
+                return "Short.hashCode(" + self + ")";
+            case CHAR:
+                return "Character.hashCode(" + self + ")";
+            case LONG:
+                return "Long.hashCode(" + self + ")";
+            case FLOAT:
+                return "Float.hashCode(" + self + ")";
+            case DOUBLE:
+                return "Double.hashCode(" + self + ")";
+            case ARRAY:
+                return "java.util.Arrays." + (isPrimitiveArray(field) ? "hashCode" : "deepHashCode") + "(" + self + ")";
+            default:
+                return "java.util.Objects.hashCode(" + self + ")";
+        }
+    }
+
+    private static boolean isPrimitiveArray(Field field) {
+        return ((ArrayType) field.type).getComponentType().getKind().isPrimitive();
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,69 @@
+package points;
+
+import java.util.Arrays;
+
+/**
+ * Many {@link Point}s stored as columns, one {@code int[]} for each coordinate. The coordinate arrays are
+ * {@code protected} the same way as the fields of {@link Point}, so the same access rules apply to them.
+ */
+public class PointBuffer {
+    protected int[] x, y;
+    protected int size;
+
+    public PointBuffer(int capacity) {
+        x = new int[capacity];
+        y = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int add(int x, int y) {
+        ensureCapacity(size + 1);
+        this.x[size] = x;
+        this.y[size] = y;
+        return size++;
+    }
+
+    protected void ensureCapacity(int capacity) {
+        if (capacity > x.length) {
+            final int newCapacity = Math.max(capacity, 2 * x.length);
+            x = Arrays.copyOf(x, newCapacity);
+            y = Arrays.copyOf(y, newCapacity);
+        }
+    }
+
+    void warp(threePoint.Point3dBuffer a) {
+        //if (a.z[0] > 0) // compile-time error: cannot access a.z
+            a.delta(this);
+    }
+
+    /**
+     * A flyweight view of one point of the buffer. The same object can be moved to any index, there is no
+     * object allocated per point.
+     */
+    public class View {
+        protected int index;
+
+        public View at(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            this.index = index;
+            return this;
+        }
+
+        public int x() {
+            return x[index];
+        }
+
+        public int y() {
+            return y[index];
+        }
+    }
+
+    public View view() {
+        return new View();
+    }
+}
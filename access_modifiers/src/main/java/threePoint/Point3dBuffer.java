@@ -0,0 +1,89 @@
+package threePoint;
+
+import points.PointBuffer;
+
+import java.util.Arrays;
+
+/**
+ * The struct-of-arrays version of {@link Point3d}. The bulk operations are simple counted loops over one
+ * column at a time, which the JIT can unroll and vectorize.
+ */
+public class Point3dBuffer extends PointBuffer {
+    protected int[] z;
+
+    public Point3dBuffer(int capacity) {
+        super(capacity);
+        z = new int[capacity];
+    }
+
+    @Override
+    public int add(int x, int y) {
+        return add(x, y, 0);
+    }
+
+    public int add(int x, int y, int z) {
+        final int index = super.add(x, y);
+        this.z[index] = z;
+        return index;
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        super.ensureCapacity(capacity);
+        if (capacity > z.length) {
+            z = Arrays.copyOf(z, x.length);
+        }
+    }
+
+    public void delta(PointBuffer p) {
+        //p.x[i] += this.x[i]; // compile-time error: cannot access p.x
+        //p.y[i] += this.y[i]; // compile-time error: cannot access p.y
+    }
+
+    public void delta3d(Point3dBuffer q) {
+        if (q.size != size) {
+            throw new IllegalArgumentException("The buffers have different sizes: " + size + " and " + q.size);
+        }
+        add(q.x, x, size);
+        add(q.y, y, size);
+        add(q.z, z, size);
+    }
+
+    /**
+     * Add the same delta to all the points of {@code q}.
+     */
+    public static void delta3d(int dx, int dy, int dz, Point3dBuffer q) {
+        add(q.x, dx, q.size);
+        add(q.y, dy, q.size);
+        add(q.z, dz, q.size);
+    }
+
+    private static void add(int[] target, int[] source, int n) {
+        for (int i = 0; i < n; i++) {
+            target[i] += source[i];
+        }
+    }
+
+    private static void add(int[] target, int delta, int n) {
+        for (int i = 0; i < n; i++) {
+            target[i] += delta;
+        }
+    }
+
+    public class View extends PointBuffer.View {
+        @Override
+        public View at(int index) {
+            super.at(index);
+            return this;
+        }
+
+        public int z() {
+            return z[index];
+        }
+    }
+
+    @Override
+    public View view() {
+        return new View();
+    }
+}
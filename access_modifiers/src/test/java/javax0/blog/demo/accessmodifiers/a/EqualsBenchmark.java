@@ -0,0 +1,127 @@
+package javax0.blog.demo.accessmodifiers.a;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up every key of a large {@link HashMap} using equal, but not identical, keys. This is where
+ * {@code hashCode()} and {@code equals()} are called the most.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EqualsBenchmark {
+
+    @Param({"100000"})
+    private int size;
+
+    @Param({"16"})
+    private int mapEntries;
+
+    private final Map<EqualsImplementingClass, Integer> handWritten = new HashMap<>();
+    private final Map<EqualsGeneratedClass, Integer> generated = new HashMap<>();
+    private final Map<ImmutableEqualsGeneratedClass, Integer> cached = new HashMap<>();
+    private EqualsImplementingClass[] handWrittenKeys;
+    private EqualsGeneratedClass[] generatedKeys;
+    private ImmutableEqualsGeneratedClass[] cachedKeys;
+
+    private static void set(Object target, Class<?> klass, String name, Object value) throws ReflectiveOperationException {
+        final Field field = klass.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private Map<String, String> content(int i) {
+        final var z = new HashMap<String, String>();
+        for (int j = 0; j < mapEntries; j++) {
+            z.put("key" + j, "value" + (i + j));
+        }
+        return z;
+    }
+
+    private EqualsImplementingClass handWritten(int i) throws ReflectiveOperationException {
+        final var key = new EqualsImplementingClass();
+        set(key, EqualsImplementingClass.class, "a", i);
+        set(key, EqualsImplementingClass.class, "b", "b" + i);
+        key.q = "q";
+        key.z.putAll(content(i));
+        return key;
+    }
+
+    private EqualsGeneratedClass generated(int i) throws ReflectiveOperationException {
+        final var key = new EqualsGeneratedClass();
+        set(key, EqualsGeneratedClass.class, "a", i);
+        set(key, EqualsGeneratedClass.class, "b", "b" + i);
+        key.q = "q";
+        key.z.putAll(content(i));
+        return key;
+    }
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        handWrittenKeys = new EqualsImplementingClass[size];
+        generatedKeys = new EqualsGeneratedClass[size];
+        cachedKeys = new ImmutableEqualsGeneratedClass[size];
+        for (int i = 0; i < size; i++) {
+            handWritten.put(handWritten(i), i);
+            handWrittenKeys[i] = handWritten(i);
+            generated.put(generated(i), i);
+            generatedKeys[i] = generated(i);
+            cached.put(new ImmutableEqualsGeneratedClass(i, "b" + i, "q", content(i)), i);
+            cachedKeys[i] = new ImmutableEqualsGeneratedClass(i, "b" + i, "q", content(i));
+        }
+    }
+
+    @Benchmark
+    public long handWritten() {
+        long sum = 0;
+        for (final var key : handWrittenKeys) {
+            sum += handWritten.get(key);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long generated() {
+        long sum = 0;
+        for (final var key : generatedKeys) {
+            sum += generated.get(key);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long generatedCachedHash() {
+        long sum = 0;
+        for (final var key : cachedKeys) {
+            sum += cached.get(key);
+        }
+        return sum;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EqualsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,123 @@
+package javax0.blog.demo.accessmodifiers.analyzer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a jar of generated classes for the benchmark. There are 100 classes in a package, each extending the
+ * previous one. Every class has a public, a protected, a package private and a private native method and a
+ * protected field. It calls the protected method of the next class in the package, the public method of a class
+ * in the next package and uses its own field.
+ */
+class SyntheticJar {
+    private static final int CLASSES_PER_PACKAGE = 100;
+    private static final String OBJECT = "java/lang/Object";
+
+    static Path write(Path jar, int classes) throws IOException {
+        try (final var zip = new ZipOutputStream(Files.newOutputStream(jar))) {
+            for (int i = 0; i < classes; i++) {
+                zip.putNextEntry(new ZipEntry(name(i) + ".class"));
+                zip.write(classFile(i, classes));
+                zip.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private static String name(int i) {
+        return "gen/p" + i / CLASSES_PER_PACKAGE + "/C" + i;
+    }
+
+    private static byte[] classFile(int i, int classes) {
+        final var pool = new ConstantPool();
+        final int thisClass = pool.classRef(name(i));
+        final int superClass = pool.classRef(i % CLASSES_PER_PACKAGE == 0 ? OBJECT : name(i - 1));
+        final int next = Math.min(i + 1, classes - 1);
+        pool.memberRef(10, name(next), "m1", "()V");
+        pool.memberRef(10, name((i + CLASSES_PER_PACKAGE) % classes), "m0", "()V");
+        pool.memberRef(9, name(i), "f", "I");
+        final int[] methodNames = {pool.utf8("m0"), pool.utf8("m1"), pool.utf8("m2"), pool.utf8("m3")};
+        final int[] methodAccess = {0x0001, 0x0004, 0x0000, 0x0002};
+        final int descriptor = pool.utf8("()V");
+        final int fieldName = pool.utf8("f");
+        final int fieldDescriptor = pool.utf8("I");
+
+        final var bytes = new ByteArrayOutputStream();
+        try (final var out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(61);
+            pool.write(out);
+            out.writeShort(0x0021); // public super
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);
+            out.writeShort(1);
+            out.writeShort(0x0004);
+            out.writeShort(fieldName);
+            out.writeShort(fieldDescriptor);
+            out.writeShort(0);
+            out.writeShort(methodNames.length);
+            for (int m = 0; m < methodNames.length; m++) {
+                out.writeShort(methodAccess[m] | 0x0100); // native, there is no need for Code
+                out.writeShort(methodNames[m]);
+                out.writeShort(descriptor);
+                out.writeShort(0);
+            }
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static class ConstantPool {
+        private final List<Object[]> entries = new ArrayList<>();
+        private final Map<String, Integer> index = new HashMap<>();
+
+        private int add(String key, Object... entry) {
+            return index.computeIfAbsent(key, k -> {
+                entries.add(entry);
+                return entries.size();
+            });
+        }
+
+        int utf8(String s) {
+            return add("U" + s, 1, s);
+        }
+
+        int classRef(String name) {
+            return add("C" + name, 7, utf8(name));
+        }
+
+        void memberRef(int tag, String owner, String name, String descriptor) {
+            final int nameAndType = add("N" + name + descriptor, 12, utf8(name), utf8(descriptor));
+            add("M" + tag + owner + name + descriptor, tag, classRef(owner), nameAndType);
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeShort(entries.size() + 1);
+            for (final var entry : entries) {
+                final int tag = (Integer) entry[0];
+                out.writeByte(tag);
+                if (tag == 1) {
+                    out.writeUTF((String) entry[1]);
+                } else {
+                    for (int i = 1; i < entry.length; i++) {
+                        out.writeShort((Integer) entry[i]);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package javax0.blog.demo.accessmodifiers.analyzer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compiles a few small classes with known callers and checks what the analyzer reports about them.
+ */
+public class TestAccessAnalyzer {
+
+    private static final String OWNER = "package p;\n"
+            + "public class Owner {\n"
+            + "    public int usedInPackage;\n"
+            + "    public static final int LIMIT = 5;\n"
+            + "    public static final String NAME = \"owner\";\n"
+            + "    private int secret;\n"
+            + "    public Owner() {}\n"
+            + "    protected void usedBySubclass() {}\n"
+            + "    public void usedEverywhere() {}\n"
+            + "    public void usedOnlyInside() {}\n"
+            + "    protected static void unused() {}\n"
+            + "    @Override public String toString() { return \"\" + secret; }\n"
+            + "    public static void main(String[] args) {\n"
+            + "        new Owner().usedOnlyInside();\n"
+            + "        new Nested().fromOuter();\n"
+            + "    }\n"
+            + "    static class Nested {\n"
+            + "        public void fromOuter() {}\n"
+            + "    }\n"
+            + "}\n";
+    private static final String USER = "package p;\n"
+            + "interface User {\n"
+            + "    static int read(Owner owner) { return owner.usedInPackage; }\n"
+            + "}\n";
+    private static final String SUB = "package q;\n"
+            + "public class Sub extends p.Owner {\n"
+            + "    @Override public void usedEverywhere() { usedBySubclass(); }\n"
+            + "    void helper() {}\n"
+            + "}\n";
+    private static final String STRANGER = "package q;\n"
+            + "public interface Stranger {\n"
+            + "    static void main(String[] args) {\n"
+            + "        new p.Owner().usedEverywhere();\n"
+            + "        new Sub().usedEverywhere();\n"
+            + "        System.out.println(p.Owner.NAME + p.Owner.LIMIT);\n"
+            + "    }\n"
+            + "}\n";
+
+    private static final List<String> EXPECTED = List.of(
+            "p.Owner$Nested.<init>()V is package private but private is enough (1 calling class)",
+            "p.Owner$Nested.fromOuter()V is public but private is enough (1 calling class, unless overridden outside the analyzed classes)",
+            "p.Owner.unused()V is protected but private is enough (no callers)",
+            "p.Owner.usedInPackage is public but package private is enough (1 calling class)",
+            "p.Owner.usedOnlyInside()V is public but private is enough (1 calling class, unless overridden outside the analyzed classes)",
+            "q.Sub.<init>()V is public but package private is enough (1 calling class)",
+            "q.Sub.helper()V is package private but private is enough (no callers, unless overridden outside the analyzed classes)");
+
+    private static final List<String> NOT_REPORTED = List.of(
+            "p.Owner.secret",
+            "p.Owner.LIMIT",
+            "p.Owner.NAME",
+            "p.Owner.<init>()V",
+            "p.Owner.usedBySubclass()V",
+            "p.Owner.usedEverywhere()V",
+            "p.Owner.toString()Ljava/lang/String;",
+            "p.Owner.main([Ljava/lang/String;)V",
+            "q.Sub.usedEverywhere()V",
+            "p.User.read(Lp/Owner;)I",
+            "q.Stranger.main([Ljava/lang/String;)V");
+
+    @TempDir
+    Path root;
+
+    private Path compile() throws IOException {
+        return compile("p/Owner.java", OWNER, "p/User.java", USER, "q/Sub.java", SUB, "q/Stranger.java", STRANGER);
+    }
+
+    /**
+     * @param namesAndSources the file names and the sources in pairs
+     */
+    private Path compile(String... namesAndSources) throws IOException {
+        final var sources = root.resolve("src");
+        final var classes = root.resolve("classes");
+        Files.createDirectories(classes);
+        final var files = new ArrayList<Path>();
+        for (int i = 0; i < namesAndSources.length; i += 2) {
+            files.add(write(sources, namesAndSources[i], namesAndSources[i + 1]));
+        }
+        final var args = new ArrayList<>(List.of("-d", classes.toString()));
+        files.forEach(f -> args.add(f.toString()));
+        assertThat(ToolProvider.getSystemJavaCompiler().run(null, null, null, args.toArray(String[]::new))).isEqualTo(0);
+        return classes;
+    }
+
+    private static Path write(Path root, String name, String content) throws IOException {
+        final var file = root.resolve(name);
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+
+    /**
+     * Every second class is stored and the others are deflated, so both ways of reading an entry are used.
+     */
+    private Path jar(Path classes) throws IOException {
+        final var jar = root.resolve("test.jar");
+        final List<Path> files;
+        try (final var walk = Files.walk(classes)) {
+            files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        try (final var zip = new ZipOutputStream(Files.newOutputStream(jar))) {
+            boolean stored = false;
+            for (final var file : files) {
+                final var bytes = Files.readAllBytes(file);
+                final var entry = new ZipEntry(classes.relativize(file).toString().replace('\\', '/'));
+                if (stored) {
+                    final var crc = new CRC32();
+                    crc.update(bytes);
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(bytes.length);
+                    entry.setCompressedSize(bytes.length);
+                    entry.setCrc(crc.getValue());
+                }
+                stored = !stored;
+                zip.putNextEntry(entry);
+                zip.write(bytes);
+                zip.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private static List<String> report(AccessAnalyzer analyzer) {
+        return analyzer.analyze().stream().map(Finding::toString).collect(Collectors.toList());
+    }
+
+    private static List<String> reportedMembers(AccessAnalyzer analyzer) {
+        return analyzer.analyze().stream().map(Finding::member).collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Exactly the members with wider access than their callers need are reported from a directory")
+    void testDirectory() throws IOException {
+        final var analyzer = new AccessAnalyzer().add(compile());
+        assertThat(analyzer.size()).isEqualTo(5);
+        assertThat(report(analyzer)).containsExactlyElementsOf(EXPECTED);
+        assertThat(reportedMembers(analyzer)).doesNotContainAnyElementsOf(NOT_REPORTED);
+    }
+
+    @Test
+    @DisplayName("Inlined constants are not reported even when no class file references them")
+    void testConstantsAreNotReported() throws IOException {
+        final var classes = compile();
+        final var stranger = new String(Files.readAllBytes(classes.resolve("q/Stranger.class")),
+                StandardCharsets.ISO_8859_1);
+        assertThat(stranger).doesNotContain("LIMIT").doesNotContain("NAME");
+        final var analyzer = new AccessAnalyzer().add(classes);
+        assertThat(reportedMembers(analyzer)).doesNotContain("p.Owner.LIMIT", "p.Owner.NAME");
+    }
+
+    @Test
+    @DisplayName("A jar with stored and deflated entries gives the same findings as the directory")
+    void testJar() throws IOException {
+        final var analyzer = new AccessAnalyzer().add(jar(compile()));
+        assertThat(analyzer.size()).isEqualTo(5);
+        assertThat(report(analyzer)).containsExactlyElementsOf(EXPECTED);
+    }
+
+    @Test
+    @DisplayName("Without the subclass and the other package the callers of a single class file are the class itself")
+    void testSingleClassFile() throws IOException {
+        final var analyzer = new AccessAnalyzer().add(compile().resolve("p/Owner.class"));
+        assertThat(report(analyzer)).containsExactly(
+                "p.Owner.<init>()V is public but private is enough (1 calling class)",
+                "p.Owner.unused()V is protected but private is enough (no callers)",
+                "p.Owner.usedBySubclass()V is protected but private is enough (no callers, unless overridden outside the analyzed classes)",
+                "p.Owner.usedEverywhere()V is public but private is enough (no callers, unless overridden outside the analyzed classes)",
+                "p.Owner.usedInPackage is public but private is enough (no callers)",
+                "p.Owner.usedOnlyInside()V is public but private is enough (1 calling class, unless overridden outside the analyzed classes)");
+    }
+
+    @Test
+    @DisplayName("A method overridden in an analyzed subclass is not reported, a final one is reported without a note")
+    void testOverriddenInSubclass() throws IOException {
+        final var analyzer = new AccessAnalyzer().add(compile(
+                "p/A.java", "package p;\n"
+                        + "public class A {\n"
+                        + "    public void run() { step(); done(); }\n"
+                        + "    protected void step() {}\n"
+                        + "    protected final void done() {}\n"
+                        + "}\n",
+                "p/B.java", "package p;\n"
+                        + "class B extends A {\n"
+                        + "    @Override protected void step() {}\n"
+                        + "}\n"));
+        assertThat(reportedMembers(analyzer)).doesNotContain("p.A.step()V", "p.B.step()V");
+        assertThat(report(analyzer)).contains(
+                "p.A.done()V is protected but private is enough (1 calling class)",
+                "p.A.run()V is public but private is enough (no callers, unless overridden outside the analyzed classes)");
+    }
+}
@@ -0,0 +1,151 @@
+package javax0.blog.demo.accessmodifiers.equality;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs javac in-process with the {@link EqualityProcessor} on small sources and checks the generated code and
+ * the behavior of the compiled classes.
+ */
+public class TestEqualityProcessor {
+
+    @TempDir
+    Path output;
+
+    private final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+    private static JavaFileObject source(String className, String code) {
+        return new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+
+    private boolean compile(JavaFileObject... sources) throws IOException {
+        final var compiler = ToolProvider.getSystemJavaCompiler();
+        try (final var fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, List.of(output.toFile()));
+            fileManager.setLocation(StandardLocation.SOURCE_OUTPUT, List.of(output.toFile()));
+            final var task = compiler.getTask(null, fileManager, diagnostics, null, null, List.of(sources));
+            task.setProcessors(List.of(new EqualityProcessor()));
+            return task.call();
+        }
+    }
+
+    private List<String> errors() {
+        return diagnostics.getDiagnostics().stream()
+                .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                .map(d -> d.getMessage(null))
+                .collect(Collectors.toList());
+    }
+
+    private String generated(String path) throws IOException {
+        return Files.readString(output.resolve(path));
+    }
+
+    private static final String MIXED = "package p;\n"
+            + "import javax0.blog.demo.accessmodifiers.equality.Equality;\n"
+            + "import java.util.List;\n"
+            + "@Equality\n"
+            + "public class Mixed extends MixedEquality {\n"
+            + "    public List<String> list;\n"
+            + "    public Object object;\n"
+            + "    public String string;\n"
+            + "    public Integer boxed;\n"
+            + "    public double d;\n"
+            + "    private int i;\n"
+            + "    int i() { return i; }\n"
+            + "    public Mixed(List<String> list, Object object, String string, Integer boxed, double d, int i) {\n"
+            + "        this.list = list; this.object = object; this.string = string; this.boxed = boxed; this.d = d; this.i = i;\n"
+            + "    }\n"
+            + "}\n";
+
+    @Test
+    @DisplayName("equals() compares the fields in cost order, hashCode() uses the declaration order")
+    void testComparisonOrder() throws IOException {
+        assertThat(compile(source("p.Mixed", MIXED))).isTrue();
+        final var code = generated("p/MixedEquality.java");
+        final var equals = code.substring(code.indexOf("boolean equals"), code.indexOf("int hashCode"));
+        final var comparisons = equals.lines()
+                .filter(line -> line.contains("self.") && line.contains("return false"))
+                .collect(Collectors.toList());
+        assertThat(comparisons).containsExactly(
+                "        if (Double.compare(self.d, that.d) != 0) return false;",
+                "        if (self.i() != that.i()) return false;",
+                "        if (!java.util.Objects.equals(self.string, that.string)) return false;",
+                "        if (!java.util.Objects.equals(self.boxed, that.boxed)) return false;",
+                "        if (!java.util.Objects.equals(self.object, that.object)) return false;",
+                "        if (!java.util.Objects.equals(self.list, that.list)) return false;");
+        final var hashCode = code.substring(code.indexOf("int hashCode"));
+        assertThat(hashCode.indexOf("self.list")).isLessThan(hashCode.indexOf("self.i()"));
+    }
+
+    @Test
+    @DisplayName("The generated equals() and hashCode() handle null fields")
+    void testNullFields() throws Exception {
+        assertThat(compile(source("p.Mixed", MIXED))).isTrue();
+        try (final var loader = new URLClassLoader(new java.net.URL[]{output.toUri().toURL()}, getClass().getClassLoader())) {
+            final var mixed = loader.loadClass("p.Mixed");
+            final var constructor = mixed.getConstructor(List.class, Object.class, String.class, Integer.class, double.class, int.class);
+            final var allNull = constructor.newInstance(null, null, null, null, 1.0, 2);
+            final var allNullToo = constructor.newInstance(null, null, null, null, 1.0, 2);
+            final var someNull = constructor.newInstance(List.of("x"), null, "s", null, 1.0, 2);
+            final var someNullToo = constructor.newInstance(new ArrayList<>(List.of("x")), null, "s", null, 1.0, 2);
+            assertThat(allNull.equals(null)).isFalse();
+            assertThat(allNull.equals("not a Mixed")).isFalse();
+            assertThat(allNull.equals(allNullToo)).isTrue();
+            assertThat(allNull.hashCode()).isEqualTo(allNullToo.hashCode());
+            assertThat(allNull.equals(someNull)).isFalse();
+            assertThat(someNull.equals(allNull)).isFalse();
+            assertThat(someNull.equals(someNullToo)).isTrue();
+            assertThat(someNull.hashCode()).isEqualTo(someNullToo.hashCode());
+        }
+    }
+
+    @Test
+    @DisplayName("The annotated class has to extend the generated class, a similarly named class is not accepted")
+    void testSuperclass() throws IOException {
+        assertThat(compile(
+                source("p.WrongEquality", "package p;\npublic abstract class WrongEquality {}\n"),
+                source("q.Wrong", "package q;\n@javax0.blog.demo.accessmodifiers.equality.Equality\n"
+                        + "public class Wrong extends p.WrongEquality {}\n"),
+                source("q.Other", "package q;\n@javax0.blog.demo.accessmodifiers.equality.Equality\n"
+                        + "public class Other extends AnotherEquality {}\n"),
+                source("q.Plain", "package q;\n@javax0.blog.demo.accessmodifiers.equality.Equality\n"
+                        + "public class Plain {}\n"))).isFalse();
+        assertThat(errors()).contains(
+                "Wrong has to extend WrongEquality",
+                "Other has to extend OtherEquality",
+                "Plain has to extend PlainEquality");
+        assertThat(Files.exists(output.resolve("q/WrongEquality.java"))).isFalse();
+        assertThat(Files.exists(output.resolve("q/PlainEquality.java"))).isFalse();
+    }
+
+    @Test
+    @DisplayName("The generated class is accepted as superclass with the qualified name too")
+    void testQualifiedSuperclass() throws IOException {
+        assertThat(compile(source("p.Q", "package p;\n@javax0.blog.demo.accessmodifiers.equality.Equality\n"
+                + "public class Q extends p.QEquality {\n    public int x;\n}\n"))).isTrue();
+        assertThat(generated("p/QEquality.java")).contains("if (self.x != that.x) return false;");
+    }
+}
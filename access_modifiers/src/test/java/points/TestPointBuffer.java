@@ -0,0 +1,55 @@
+package points;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class TestPointBuffer {
+
+    @Test
+    @DisplayName("The added points are read back through the view")
+    void testAddAndGet() {
+        final var buffer = new PointBuffer(4);
+        assertThat(buffer.add(1, 2)).isEqualTo(0);
+        assertThat(buffer.add(3, 4)).isEqualTo(1);
+        assertThat(buffer.size()).isEqualTo(2);
+        final var view = buffer.view();
+        assertThat(view.at(0).x()).isEqualTo(1);
+        assertThat(view.at(0).y()).isEqualTo(2);
+        assertThat(view.at(1).x()).isEqualTo(3);
+        assertThat(view.at(1).y()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("The buffer grows past the initial capacity, also from zero, keeping the points")
+    void testGrowth() {
+        for (final int capacity : new int[]{0, 1, 3}) {
+            final var buffer = new PointBuffer(capacity);
+            for (int i = 0; i < 100; i++) {
+                assertThat(buffer.add(i, -i)).isEqualTo(i);
+            }
+            assertThat(buffer.size()).isEqualTo(100);
+            assertThat(buffer.x.length).isEqualTo(buffer.y.length).isGreaterThan(99);
+            final var view = buffer.view();
+            for (int i = 0; i < 100; i++) {
+                assertThat(view.at(i).x()).isEqualTo(i);
+                assertThat(view.at(i).y()).isEqualTo(-i);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("The view refuses the indices outside of the stored points, even when the arrays are larger")
+    void testIndexBounds() {
+        final var buffer = new PointBuffer(10);
+        final var view = buffer.view();
+        assertThat(catchThrowable(() -> view.at(0))).isInstanceOf(IndexOutOfBoundsException.class);
+        buffer.add(1, 1);
+        buffer.add(2, 2);
+        assertThat(catchThrowable(() -> view.at(-1))).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThat(catchThrowable(() -> view.at(2))).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThat(view.at(1).x()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,76 @@
+package threePoint;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class TestPoint3dBuffer {
+
+    @Test
+    @DisplayName("The added points are read back through the view, the two coordinate add() sets z to zero")
+    void testAddAndGet() {
+        final var buffer = new Point3dBuffer(4);
+        assertThat(buffer.add(1, 2, 3)).isEqualTo(0);
+        assertThat(buffer.add(4, 5)).isEqualTo(1);
+        final var view = buffer.view();
+        assertThat(view.at(0).x()).isEqualTo(1);
+        assertThat(view.at(0).y()).isEqualTo(2);
+        assertThat(view.at(0).z()).isEqualTo(3);
+        assertThat(view.at(1).x()).isEqualTo(4);
+        assertThat(view.at(1).y()).isEqualTo(5);
+        assertThat(view.at(1).z()).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("All three columns grow past the initial capacity, also from zero, keeping the points")
+    void testGrowth() {
+        for (final int capacity : new int[]{0, 1, 3}) {
+            final var buffer = new Point3dBuffer(capacity);
+            for (int i = 0; i < 100; i++) {
+                assertThat(buffer.add(i, 2 * i, 3 * i)).isEqualTo(i);
+            }
+            assertThat(buffer.size()).isEqualTo(100);
+            assertThat(buffer.z.length).isGreaterThan(99);
+            final var view = buffer.view();
+            for (int i = 0; i < 100; i++) {
+                assertThat(view.at(i).x()).isEqualTo(i);
+                assertThat(view.at(i).y()).isEqualTo(2 * i);
+                assertThat(view.at(i).z()).isEqualTo(3 * i);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("The view refuses the indices outside of the stored points")
+    void testIndexBounds() {
+        final var buffer = new Point3dBuffer(10);
+        buffer.add(1, 1, 1);
+        final var view = buffer.view();
+        assertThat(catchThrowable(() -> view.at(-1))).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThat(catchThrowable(() -> view.at(1))).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThat(view.at(0).z()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("The bulk deltas add to every point and refuse buffers of different sizes")
+    void testDelta() {
+        final var delta = new Point3dBuffer(2);
+        final var target = new Point3dBuffer(2);
+        for (int i = 0; i < 3; i++) {
+            delta.add(i, i, i);
+            target.add(10, 20, 30);
+        }
+        delta.delta3d(target);
+        Point3dBuffer.delta3d(1, 2, 3, target);
+        final var view = target.view();
+        for (int i = 0; i < 3; i++) {
+            assertThat(view.at(i).x()).isEqualTo(11 + i);
+            assertThat(view.at(i).y()).isEqualTo(22 + i);
+            assertThat(view.at(i).z()).isEqualTo(33 + i);
+        }
+        target.add(0, 0, 0);
+        assertThat(catchThrowable(() -> delta.delta3d(target))).isInstanceOf(IllegalArgumentException.class);
+    }
+}
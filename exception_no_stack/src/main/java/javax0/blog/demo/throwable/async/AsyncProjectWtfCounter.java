@@ -0,0 +1,229 @@
+package javax0.blog.demo.throwable.async;
+
+import javax0.blog.demo.throwable.FileLister;
+import javax0.blog.demo.throwable.match.WtfMatcher;
+import javax0.blog.demo.throwable.sneaky.ExceptionCollector;
+import javax0.blog.demo.throwable.sneaky.SneakyThrower;
+import javax0.blog.demo.throwable.v4.FileNumberedLineEmpty;
+import javax0.blog.demo.throwable.v4.FileNumberedLinesAreEmpty;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Counts the files reading them with {@link AsynchronousFileChannel}. A number of files are read at the same
+ * time, each has one read outstanding. The completion handler scans the buffer and starts the next read of the
+ * file, or the first read of the next file when the file is finished. The reads of the different files are in
+ * flight at the same time, thus their latencies overlap. This helps on network mounted storage where a blocking
+ * {@link javax0.blog.demo.throwable.parallel.FileReader} spends most of its time waiting.
+ * <p>
+ * The JDK on Linux has no asynchronous file reads in the kernel, {@link AsynchronousFileChannel} does blocking
+ * reads on the threads of its own pool. The counting thread does not wait for the storage, but those pool threads
+ * do, and the overlap is limited by the size of the pool.
+ * <p>
+ * The lines are separated by {@code \n} or {@code \r\n} only and the bytes are not decoded, the same way as in the
+ * {@link javax0.blog.demo.throwable.pipeline.PipelinedProjectWtfCounter}. For a file that is valid UTF-8 and has no
+ * lone {@code \r} the result and the exceptions are the same as those of
+ * {@link javax0.blog.demo.throwable.parallel.ProjectWtfCounter}. A {@code \r} not followed by {@code \n} is part of
+ * the line, {@code ProjectWtfCounter} ends the line there. A file that is not valid UTF-8 is counted,
+ * {@code ProjectWtfCounter} reports it with a {@link java.nio.charset.MalformedInputException}.
+ */
+public class AsyncProjectWtfCounter {
+    private final FileLister fileLister;
+    private final WtfMatcher matcher;
+    private int outstanding = 16;
+    private int bufferSize = 64 * 1024;
+
+    public AsyncProjectWtfCounter(FileLister fileLister) {
+        this(fileLister, new WtfMatcher());
+    }
+
+    public AsyncProjectWtfCounter(FileLister fileLister, WtfMatcher matcher) {
+        this.fileLister = fileLister;
+        this.matcher = matcher;
+    }
+
+    /**
+     * @param outstanding the maximum number of reads in progress at the same time
+     */
+    public AsyncProjectWtfCounter outstanding(int outstanding) {
+        if (outstanding < 1) {
+            throw new IllegalArgumentException("outstanding has to be positive, it is " + outstanding);
+        }
+        this.outstanding = outstanding;
+        return this;
+    }
+
+    public AsyncProjectWtfCounter bufferSize(int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize has to be positive, it is " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
+    /**
+     * Open the file for reading. Overridden by the tests to simulate slow storage.
+     */
+    protected AsynchronousFileChannel open(String fileName) throws IOException {
+        return AsynchronousFileChannel.open(Path.of(fileName), StandardOpenOption.READ);
+    }
+
+    public int count() throws IOException {
+        final var run = new Run(fileLister.list());
+        run.start();
+        try {
+            run.finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Counting was interrupted");
+        }
+        if (run.failure.get() != null) {
+            throw SneakyThrower.<RuntimeException>throwSneaky(run.failure.get());
+        }
+        run.collector.throwIfAny(IOException.class, () -> new IOException("Some files could not be read"));
+        run.collector.throwIfAny(FileNumberedLineEmpty.class, FileNumberedLinesAreEmpty::new);
+        return run.sum.get();
+    }
+
+    /**
+     * The state of one {@link #count()}.
+     */
+    private class Run {
+        final List<String> fileNames;
+        final AtomicInteger nextFile = new AtomicInteger();
+        final AtomicInteger sum = new AtomicInteger();
+        final CountDownLatch finished;
+        final ExceptionCollector collector = new ExceptionCollector(IOException.class, FileNumberedLineEmpty.class);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+        Run(List<String> fileNames) {
+            this.fileNames = fileNames;
+            this.finished = new CountDownLatch(fileNames.size());
+        }
+
+        void start() {
+            final int reads = Math.min(outstanding, fileNames.size());
+            for (int i = 0; i < reads; i++) {
+                buffers.add(ByteBuffer.allocate(bufferSize));
+            }
+            for (int i = 0; i < reads; i++) {
+                startNext(buffers.poll());
+            }
+        }
+
+        /**
+         * Start reading the next file with the buffer, or give the buffer back if there is no file left.
+         */
+        void startNext(ByteBuffer buffer) {
+            int file;
+            while ((file = nextFile.getAndIncrement()) < fileNames.size()) {
+                final var fileName = fileNames.get(file);
+                AsynchronousFileChannel channel = null;
+                try {
+                    channel = open(fileName);
+                    new FileRead(fileName, channel, buffer).read();
+                    return;
+                } catch (IOException e) {
+                    collector.collect(e);
+                } catch (RuntimeException | Error e) {
+                    // the read was not started, no completion handler will close the channel
+                    close(channel, e);
+                    failure.compareAndSet(null, e);
+                }
+                finished.countDown();
+            }
+            buffers.add(buffer);
+        }
+
+        private void close(AsynchronousFileChannel channel, Throwable failure) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+
+        private class FileRead implements CompletionHandler<Integer, Void> {
+            private final String fileName;
+            private final AsynchronousFileChannel channel;
+            private final ByteBuffer buffer;
+            private final LineScanner scanner = new LineScanner(matcher);
+            private final AtomicBoolean done = new AtomicBoolean();
+            private long position = 0;
+
+            private FileRead(String fileName, AsynchronousFileChannel channel, ByteBuffer buffer) {
+                this.fileName = fileName;
+                this.channel = channel;
+                this.buffer = buffer;
+            }
+
+            void read() {
+                buffer.clear();
+                channel.read(buffer, position, null, this);
+            }
+
+            @Override
+            public void completed(Integer n, Void attachment) {
+                try {
+                    if (n == -1) {
+                        scanner.finish();
+                        sum.addAndGet(scanner.count());
+                        if (scanner.emptyLines() != null) {
+                            collector.collect(new FileNumberedLineEmpty(fileName, scanner.emptyLines()));
+                        }
+                        done();
+                        return;
+                    }
+                    position += n;
+                    buffer.flip();
+                    scanner.feed(buffer);
+                    read();
+                } catch (RuntimeException | Error e) {
+                    failed(e, attachment);
+                }
+            }
+
+            @Override
+            public void failed(Throwable t, Void attachment) {
+                if (t instanceof IOException) {
+                    collector.collect((IOException) t);
+                } else {
+                    failure.compareAndSet(null, t);
+                }
+                done();
+            }
+
+            /**
+             * Counts the file down only once, also when {@link #completed} fails after the file was finished.
+             */
+            private void done() {
+                if (!done.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    collector.collect(e);
+                }
+                startNext(buffer);
+                finished.countDown();
+            }
+        }
+    }
+}
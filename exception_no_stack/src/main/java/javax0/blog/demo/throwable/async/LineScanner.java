@@ -0,0 +1,99 @@
+package javax0.blog.demo.throwable.async;
+
+import javax0.blog.demo.throwable.match.WtfMatcher;
+import javax0.blog.demo.throwable.v4.LineEmpty;
+import javax0.blog.demo.throwable.v4.NumberedLineEmpty;
+import javax0.blog.demo.throwable.v4.NumberedLinesAreEmpty;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Counts the lines of one file fed buffer by buffer in the order of the file. A line cut by the end of a buffer is
+ * kept until the rest of it arrives. The empty lines are collected the same way as
+ * {@link javax0.blog.demo.throwable.parallel.FileWtfCounter} does.
+ */
+class LineScanner {
+    private final WtfMatcher matcher;
+    private byte[] carry = new byte[256];
+    private int carryLength = 0;
+    private int lineNr = 0;
+    private int count = 0;
+    private NumberedLinesAreEmpty emptyLines = null;
+
+    LineScanner(WtfMatcher matcher) {
+        this.matcher = matcher;
+    }
+
+    /**
+     * @param buffer a heap buffer, the bytes between its position and its limit are scanned
+     */
+    void feed(ByteBuffer buffer) {
+        final var bytes = buffer.array();
+        final int end = buffer.arrayOffset() + buffer.limit();
+        int start = buffer.arrayOffset() + buffer.position();
+        while (start < end) {
+            int lineEnd = start;
+            while (lineEnd < end && bytes[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            if (lineEnd == end) {
+                append(bytes, start, end);
+                break;
+            }
+            if (carryLength > 0) {
+                append(bytes, start, lineEnd);
+                line(carry, 0, carryLength);
+                carryLength = 0;
+            } else {
+                line(bytes, start, lineEnd);
+            }
+            start = lineEnd + 1;
+        }
+    }
+
+    /**
+     * Scan the last line if the file does not end with a new line.
+     */
+    void finish() {
+        if (carryLength > 0) {
+            line(carry, 0, carryLength);
+            carryLength = 0;
+        }
+    }
+
+    int count() {
+        return count;
+    }
+
+    /**
+     * @return the empty lines of the file, or {@code null} if there was none
+     */
+    NumberedLinesAreEmpty emptyLines() {
+        return emptyLines;
+    }
+
+    private void append(byte[] bytes, int from, int to) {
+        final int length = to - from;
+        if (carryLength + length > carry.length) {
+            carry = Arrays.copyOf(carry, Math.max(2 * carry.length, carryLength + length));
+        }
+        System.arraycopy(bytes, from, carry, carryLength, length);
+        carryLength += length;
+    }
+
+    private void line(byte[] bytes, int from, int to) {
+        lineNr++;
+        if (to > from && bytes[to - 1] == '\r') {
+            to--;
+        }
+        if (to == from) {
+            if (emptyLines == null) {
+                emptyLines = new NumberedLinesAreEmpty();
+            }
+            emptyLines.addSuppressed(new NumberedLineEmpty(lineNr, new LineEmpty()));
+        } else {
+            count += matcher.count(bytes, from, to);
+        }
+    }
+}
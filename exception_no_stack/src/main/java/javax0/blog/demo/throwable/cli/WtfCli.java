@@ -0,0 +1,335 @@
+package javax0.blog.demo.throwable.cli;
+
+import javax0.blog.demo.throwable.FileLister;
+import javax0.blog.demo.throwable.filter.FilteringFileLister;
+import javax0.blog.demo.throwable.filter.PathFilter;
+import javax0.blog.demo.throwable.index.WtfIndexer;
+import javax0.blog.demo.throwable.match.WtfMatcher;
+import javax0.blog.demo.throwable.module.ModuleWtfCounter;
+import javax0.blog.demo.throwable.parallel.ProjectWtfCounter;
+import javax0.blog.demo.throwable.service.Json;
+import javax0.blog.demo.throwable.service.WtfClient;
+import javax0.blog.demo.throwable.store.ResultStore;
+import javax0.blog.demo.throwable.store.StoringProjectWtfCounter;
+import javax0.blog.demo.throwable.v4.ExceptionStructurePrettyPrinter;
+import javax0.blog.demo.throwable.v4.FileNumberedLinesAreEmpty;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command line entry point to count the "wtf"-s of a project.
+ * <pre>
+ *   java -jar demo-exception_no_stack.jar [--mode=count|files|index|modules] [--format=text|json]
+ *                                         [--ignore-case] [--whole-word] [--deduplicate]
+ *                                         [--exclude=glob]... [--index=file] [--server=port] [path]
+ * </pre>
+ * <ul>
+ *     <li>{@code count}, the default, uses {@link ProjectWtfCounter}: empty lines are errors and are listed.
+ *     <li>{@code files} prints the count of every file, empty lines are not errors.
+ *     <li>{@code index} updates the {@link javax0.blog.demo.throwable.index.WtfIndex} of the project, by default
+ *     {@code .wtf-index} in the path, and prints the total.
+ *     <li>{@code modules} uses {@link ModuleWtfCounter}: prints the count of every module and the total, the empty
+ *     lines of all modules are listed.
+ * </ul>
+ * {@code --ignore-case} and {@code --whole-word} configure the {@link WtfMatcher} of the {@code count},
+ * {@code files} and {@code modules} modes. The index always records the case-sensitive matches.
+ * {@code --deduplicate} counts the identical files of the {@code count} mode only once, see
+ * {@link ProjectWtfCounter#deduplicate()}.
+ * {@code --server} sends the {@code count} to a {@link javax0.blog.demo.throwable.service.WtfServer} running on
+ * the given port of the same machine, which has its code compiled and the unchanged files cached from the earlier
+ * runs. The server has to run as the same user, the token of the server is read from the home directory.
+ * <p>
+ * The exit code is 0 on success, 1 when there are empty lines in {@code count} or {@code modules} mode, and 2 on a
+ * usage or read error, or any other failure, the failed allocation of the store of the {@code files} mode included. An
+ * exception escaping {@code main()} would exit with 1, thus it is never let out.
+ * <p>
+ * The tool is started by hooks and build steps many times, the start-up time counts. Only the classes of the
+ * selected mode are loaded. See the {@code appcds} and {@code native} profiles of the pom for the faster starts.
+ */
+public class WtfCli {
+    private static final int OK = 0;
+    private static final int EMPTY_LINES = 1;
+    private static final int ERROR = 2;
+
+    private String mode = "count";
+    private String format = "text";
+    private String indexFile;
+    private final WtfMatcher matcher = new WtfMatcher();
+    private boolean ignoreCase = false;
+    private boolean wholeWord = false;
+    private boolean deduplicate = false;
+    private Integer serverPort;
+    private final List<String> excludes = new ArrayList<>(List.of(".git", "target", ".wtf-index*"));
+    private Path root = Path.of(".");
+
+    public static void main(String[] args) {
+        System.exit(new WtfCli().run(args, System.out, System.err));
+    }
+
+    int run(String[] args, PrintStream out, PrintStream err) {
+        try {
+            parse(args);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println("Usage: WtfCli [--mode=count|files|index|modules] [--format=text|json] [--ignore-case]\n"
+                    + "              [--whole-word] [--deduplicate] [--exclude=glob]... [--index=file]\n"
+                    + "              [--server=port] [path]");
+            return ERROR;
+        }
+        if (serverPort != null) {
+            try {
+                return count(out, err);
+            } catch (IOException e) {
+                failure(e, err);
+                return ERROR;
+            } catch (RuntimeException e) {
+                err.println(e);
+                return ERROR;
+            }
+        }
+        final var filter = new PathFilter()
+                .exclude(excludes.toArray(String[]::new))
+                .gitIgnore()
+                .ignoreBinary();
+        final var lister = new FilteringFileLister(root, filter);
+        try {
+            switch (mode) {
+                case "modules":
+                    return modules(filter, out, err);
+                case "files":
+                    return files(lister, out);
+                case "index":
+                    return index(lister, out);
+                default:
+                    return count(lister, out, err);
+            }
+        } catch (IOException e) {
+            failure(e, err);
+            return ERROR;
+        } catch (UncheckedIOException e) {
+            failure(e.getCause(), err);
+            return ERROR;
+        } catch (RuntimeException e) {
+            err.println(e);
+            return ERROR;
+        }
+    }
+
+    /**
+     * Print the message of a read error. The counters collect the errors of the single files as suppressed
+     * exceptions, those tell which files failed and why.
+     */
+    private static void failure(IOException e, PrintStream err) {
+        if (e.getSuppressed().length == 0) {
+            err.println(e.getMessage());
+        } else {
+            err.print(new ExceptionStructurePrettyPrinter(e).getMessage(4));
+        }
+    }
+
+    private void parse(String[] args) {
+        boolean pathSeen = false;
+        for (final var arg : args) {
+            if (arg.startsWith("--mode=")) {
+                mode = value(arg, "count", "files", "index", "modules");
+            } else if (arg.startsWith("--format=")) {
+                format = value(arg, "text", "json");
+            } else if (arg.equals("--ignore-case")) {
+                matcher.ignoreCase();
+                ignoreCase = true;
+            } else if (arg.equals("--whole-word")) {
+                matcher.wholeWord();
+                wholeWord = true;
+            } else if (arg.equals("--deduplicate")) {
+                deduplicate = true;
+            } else if (arg.startsWith("--exclude=")) {
+                excludes.add(arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.startsWith("--index=")) {
+                indexFile = arg.substring(arg.indexOf('=') + 1);
+            } else if (arg.startsWith("--server=")) {
+                serverPort = port(arg);
+            } else if (arg.startsWith("--") || pathSeen) {
+                throw new IllegalArgumentException("Unexpected argument '" + arg + "'");
+            } else {
+                root = Path.of(arg);
+                pathSeen = true;
+            }
+        }
+        if (!Files.isDirectory(root)) {
+            throw new IllegalArgumentException(root + " is not a directory");
+        }
+        if (serverPort != null && (!mode.equals("count") || deduplicate)) {
+            throw new IllegalArgumentException("--server can only be used in count mode without --deduplicate");
+        }
+    }
+
+    private static int port(String arg) {
+        final var value = arg.substring(arg.indexOf('=') + 1);
+        try {
+            final int port = Integer.parseInt(value);
+            if (port > 0 && port < 65536) {
+                return port;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid port in '" + arg + "'");
+    }
+
+    private static String value(String arg, String... allowed) {
+        final var value = arg.substring(arg.indexOf('=') + 1);
+        for (final var a : allowed) {
+            if (a.equals(value)) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Invalid value in '" + arg + "', allowed: " + String.join(", ", allowed));
+    }
+
+    private int count(FileLister lister, PrintStream out, PrintStream err) throws IOException {
+        try {
+            final var counter = new ProjectWtfCounter(lister, matcher);
+            if (deduplicate) {
+                counter.deduplicate();
+            }
+            final int total = counter.count();
+            out.println(json() ? "{\"total\":" + total + "}" : Integer.toString(total));
+            return OK;
+        } catch (FileNumberedLinesAreEmpty e) {
+            return emptyLines(e, out, err);
+        }
+    }
+
+    private int emptyLines(FileNumberedLinesAreEmpty e, PrintStream out, PrintStream err) {
+        final var message = new ExceptionStructurePrettyPrinter(e).getMessage(4);
+        if (json()) {
+            out.println("{\"error\":" + Json.quote(message) + "}");
+        } else {
+            err.print(message);
+        }
+        return EMPTY_LINES;
+    }
+
+    private int count(PrintStream out, PrintStream err) throws IOException {
+        final var client = new WtfClient(serverPort).exclude(excludes.toArray(String[]::new));
+        if (ignoreCase) {
+            client.ignoreCase();
+        }
+        if (wholeWord) {
+            client.wholeWord();
+        }
+        try {
+            final int total = client.count(root);
+            out.println(json() ? "{\"total\":" + total + "}" : Integer.toString(total));
+            return OK;
+        } catch (FileNumberedLinesAreEmpty e) {
+            return emptyLines(e, out, err);
+        }
+    }
+
+    /**
+     * Empty lines are not errors in this mode, the store keeps only the names and the counts. The variable region of
+     * the store is sized from the names, it does not depend on the size of the files.
+     */
+    private int files(FileLister lister, PrintStream out) throws IOException {
+        final var fileNames = lister.list();
+        // a name is padded to a multiple of four bytes in the store
+        final long variableBytes = fileNames.stream()
+                .mapToLong(name -> name.getBytes(StandardCharsets.UTF_8).length + Integer.BYTES - 1)
+                .sum();
+        if (variableBytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("The names of the " + fileNames.size() + " files do not fit into the store");
+        }
+        final ResultStore store;
+        try {
+            store = ResultStore.allocate(fileNames.size(), (int) variableBytes);
+        } catch (OutOfMemoryError e) {
+            // the store is direct memory, the limit of it may be lower than the heap
+            throw new IllegalStateException("The store of " + fileNames.size() + " files cannot be allocated: "
+                    + e.getMessage(), e);
+        }
+        final long total = new StoringProjectWtfCounter(new FileLister() {
+            @Override
+            public List<String> list() {
+                return fileNames;
+            }
+        }, store, matcher).withoutEmptyLines().count();
+        final var sb = new StringBuilder();
+        if (json()) {
+            sb.append("{\"total\":").append(total).append(",\"files\":[");
+            for (int i = 0; i < store.size(); i++) {
+                sb.append(i == 0 ? "" : ",").append("{\"name\":").append(Json.quote(store.fileName(i)))
+                        .append(",\"count\":").append(store.count(i)).append('}');
+            }
+            sb.append("]}\n");
+        } else {
+            for (int i = 0; i < store.size(); i++) {
+                sb.append(store.count(i)).append('\t').append(store.fileName(i)).append('\n');
+            }
+            sb.append(total).append('\n');
+        }
+        out.print(sb);
+        return OK;
+    }
+
+    private int modules(PathFilter filter, PrintStream out, PrintStream err) throws IOException {
+        final var report = new ModuleWtfCounter(root, filter, matcher).count();
+        final var sb = new StringBuilder();
+        if (json()) {
+            sb.append("{\"total\":").append(report.total()).append(",\"modules\":[");
+            String separator = "";
+            for (final var module : report.modules()) {
+                sb.append(separator).append("{\"name\":").append(Json.quote(module.name()))
+                        .append(",\"files\":").append(module.files())
+                        .append(",\"count\":").append(module.count());
+                final var error = module.failure() != null ? module.failure() : module.emptyLines();
+                if (error != null) {
+                    final var message = new ExceptionStructurePrettyPrinter(error).getMessage(4);
+                    sb.append(",\"error\":").append(Json.quote(message));
+                }
+                sb.append('}');
+                separator = ",";
+            }
+            sb.append("]}\n");
+        } else {
+            for (final var module : report.modules()) {
+                sb.append(module.count()).append('\t').append(module.name()).append('\n');
+            }
+            sb.append(report.total()).append('\n');
+        }
+        out.print(sb);
+        try {
+            report.throwIfAny();
+            return OK;
+        } catch (FileNumberedLinesAreEmpty e) {
+            if (!json()) {
+                err.print(new ExceptionStructurePrettyPrinter(e).getMessage(4));
+            }
+            return EMPTY_LINES;
+        }
+    }
+
+    private int index(FileLister lister, PrintStream out) throws IOException {
+        final var file = indexFile == null ? root.resolve(".wtf-index") : Path.of(indexFile);
+        final var indexer = new WtfIndexer(lister);
+        final var index = indexer.update(file);
+        if (json()) {
+            out.println("{\"total\":" + index.total() + ",\"files\":" + index.size()
+                    + ",\"scanned\":" + indexer.scanned() + "}");
+        } else {
+            out.println(index.total());
+        }
+        return OK;
+    }
+
+    private boolean json() {
+        return format.equals("json");
+    }
+}
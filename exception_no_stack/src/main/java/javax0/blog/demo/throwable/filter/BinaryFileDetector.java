@@ -0,0 +1,31 @@
+package javax0.blog.demo.throwable.filter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Decides if a file is binary the same way git does: a file is binary if there is a zero byte in the first
+ * 8000 bytes.
+ */
+public class BinaryFileDetector {
+    static final int PROBE_SIZE = 8000;
+
+    public static boolean isBinary(Path file) throws IOException {
+        final var buffer = new byte[PROBE_SIZE];
+        final int len;
+        try (final var is = Files.newInputStream(file)) {
+            len = is.readNBytes(buffer, 0, PROBE_SIZE);
+        }
+        return isBinary(buffer, len);
+    }
+
+    public static boolean isBinary(byte[] buffer, int len) {
+        for (int i = 0; i < len; i++) {
+            if (buffer[i] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,138 @@
+package javax0.blog.demo.throwable.filter;
+
+import javax0.blog.demo.throwable.FileLister;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link FileLister} that lists the real files under a root directory. The exclude rules are checked for
+ * the directories before they are entered, thus an excluded directory, like {@code .git} or {@code target},
+ * is not listed at all.
+ * <p>
+ * The sizes of the listed files come with the directory walk, {@link #sizes()} gives them without another system
+ * call per file.
+ */
+public class FilteringFileLister extends FileLister {
+    private static final String GIT_IGNORE = ".gitignore";
+
+    private final Path root;
+    private final PathFilter filter;
+    private volatile Map<String, Long> sizes = Map.of();
+
+    public FilteringFileLister(Path root, PathFilter filter) {
+        this.root = root;
+        this.filter = filter;
+    }
+
+    @Override
+    public List<String> list() {
+        final var files = new ArrayList<String>();
+        final var sizes = new HashMap<String, Long>();
+        try {
+            Files.walkFileTree(root, new Walker(files, sizes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.sizes = sizes;
+        return files;
+    }
+
+    /**
+     * @return the sizes of the files of the last {@link #list()} as they were during the listing, keyed by the
+     * listed file names
+     */
+    public Map<String, Long> sizes() {
+        return sizes;
+    }
+
+    private class Walker extends SimpleFileVisitor<Path> {
+        private final List<String> files;
+        private final Map<String, Long> sizes;
+        private final Deque<IgnoreRuleSet> ruleSets = new ArrayDeque<>();
+
+        private Walker(List<String> files, Map<String, Long> sizes) {
+            this.files = files;
+            this.sizes = sizes;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+            final var relative = relative(dir);
+            if (!relative.isEmpty() && isExcluded(relative, dir.getFileName().toString(), true)) {
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+            if (filter.gitIgnore) {
+                final var gitIgnore = dir.resolve(GIT_IGNORE);
+                if (Files.isRegularFile(gitIgnore)) {
+                    final var ruleSet = IgnoreRuleSet.load(relative, gitIgnore);
+                    if (!ruleSet.isEmpty()) {
+                        ruleSets.push(ruleSet);
+                    }
+                }
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+            if (exc != null) {
+                throw exc;
+            }
+            final var top = ruleSets.peek();
+            if (top != null && top.base.equals(relative(dir))) {
+                ruleSets.pop();
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+            if (!attrs.isRegularFile()) {
+                return FileVisitResult.CONTINUE;
+            }
+            final var relative = relative(file);
+            final var name = file.getFileName().toString();
+            if (isExcluded(relative, name, false) || !filter.isIncluded(relative, name)) {
+                return FileVisitResult.CONTINUE;
+            }
+            if (filter.ignoreBinary && BinaryFileDetector.isBinary(file)) {
+                return FileVisitResult.CONTINUE;
+            }
+            final var fileName = file.toString();
+            files.add(fileName);
+            sizes.put(fileName, attrs.size());
+            return FileVisitResult.CONTINUE;
+        }
+
+        /**
+         * The deepest {@code .gitignore} that has an opinion wins, the programmatic rules are consulted last.
+         */
+        private boolean isExcluded(String relative, String name, boolean directory) {
+            for (final var ruleSet : ruleSets) {
+                final var verdict = ruleSet.verdict(relative, name, directory);
+                if (verdict != null) {
+                    return verdict;
+                }
+            }
+            final var verdict = filter.excludes.verdict(relative, name, directory);
+            return verdict != null && verdict;
+        }
+
+        private String relative(Path path) {
+            final var relative = root.relativize(path).toString();
+            return path.getFileSystem().getSeparator().equals("/") ? relative : relative.replace(path.getFileSystem().getSeparator(), "/");
+        }
+    }
+}
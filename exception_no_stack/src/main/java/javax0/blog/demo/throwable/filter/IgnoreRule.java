@@ -0,0 +1,170 @@
+package javax0.blog.demo.throwable.filter;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A single exclusion rule, either a line of a {@code .gitignore} file or a plain regular expression.
+ * The glob is translated to a regular expression once, when the rule is created. Rules that do not
+ * contain any wildcard are compared as plain strings to the name of the file or directory.
+ */
+class IgnoreRule {
+    private static final String REGEX_SPECIAL = "\\.+()^$|{}[]&";
+
+    final boolean negated;
+    final boolean directoryOnly;
+    private final boolean anchored;
+    private final boolean find;
+    private final String literal;
+    private final Pattern pattern;
+
+    private IgnoreRule(boolean negated, boolean directoryOnly, boolean anchored, boolean find, String literal, Pattern pattern) {
+        this.negated = negated;
+        this.directoryOnly = directoryOnly;
+        this.anchored = anchored;
+        this.find = find;
+        this.literal = literal;
+        this.pattern = pattern;
+    }
+
+    /**
+     * @param regex a regular expression searched (not matched) in the relative path, the same way as the
+     *              {@code ignore()} parameters of Java::Geci are used in {@code UpdateDocumentation}
+     */
+    static IgnoreRule regex(String regex) {
+        return new IgnoreRule(false, false, true, true, null, Pattern.compile(regex));
+    }
+
+    /**
+     * @param line a line of a {@code .gitignore} file
+     * @return the rule or {@code null} if the line is empty, a comment or not a valid pattern, like a character
+     * class with a reversed range. Git also ignores such lines, they should not stop the listing.
+     */
+    static IgnoreRule glob(String line) {
+        var glob = line.stripTrailing();
+        if (glob.isEmpty() || glob.startsWith("#")) {
+            return null;
+        }
+        final boolean negated = glob.startsWith("!");
+        if (negated) {
+            glob = glob.substring(1);
+        } else if (glob.startsWith("\\#") || glob.startsWith("\\!")) {
+            glob = glob.substring(1);
+        }
+        final boolean directoryOnly = glob.endsWith("/");
+        if (directoryOnly) {
+            glob = glob.substring(0, glob.length() - 1);
+        }
+        final boolean anchored = glob.contains("/");
+        if (glob.startsWith("/")) {
+            glob = glob.substring(1);
+        }
+        if (glob.isEmpty()) {
+            return null;
+        }
+        if (!anchored && !hasWildcard(glob)) {
+            return new IgnoreRule(negated, directoryOnly, false, false, glob, null);
+        }
+        try {
+            return new IgnoreRule(negated, directoryOnly, anchored, false, null, Pattern.compile(globToRegex(glob)));
+        } catch (PatternSyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param relativePath the path relative to the directory that defines the rule, using {@code /} as separator
+     * @param name         the last segment of the path
+     */
+    boolean matches(String relativePath, String name) {
+        if (literal != null) {
+            return literal.equals(name);
+        }
+        if (find) {
+            return pattern.matcher(relativePath).find();
+        }
+        return pattern.matcher(anchored ? relativePath : name).matches();
+    }
+
+    private static boolean hasWildcard(String glob) {
+        for (int i = 0; i < glob.length(); i++) {
+            final char c = glob.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String globToRegex(String glob) {
+        final var sb = new StringBuilder();
+        final int n = glob.length();
+        int i = 0;
+        while (i < n) {
+            final char c = glob.charAt(i);
+            if (c == '*') {
+                if (i + 1 < n && glob.charAt(i + 1) == '*') {
+                    if (i + 2 < n && glob.charAt(i + 2) == '/') {
+                        // "**/" is zero or more directories
+                        sb.append("(?:.*/)?");
+                        i += 3;
+                    } else {
+                        sb.append(".*");
+                        i += 2;
+                    }
+                } else {
+                    sb.append("[^/]*");
+                    i++;
+                }
+            } else if (c == '?') {
+                sb.append("[^/]");
+                i++;
+            } else if (c == '[' && classEnd(glob, i) != -1) {
+                final int close = classEnd(glob, i);
+                sb.append('[');
+                int j = i + 1;
+                if (glob.charAt(j) == '!') {
+                    sb.append('^');
+                    j++;
+                }
+                for (; j < close; j++) {
+                    final char d = glob.charAt(j);
+                    if (d == '[' || d == ']' || d == '&' || d == '\\') {
+                        sb.append('\\');
+                    }
+                    sb.append(d);
+                }
+                sb.append(']');
+                i = close + 1;
+            } else if (c == '\\' && i + 1 < n) {
+                appendLiteral(sb, glob.charAt(i + 1));
+                i += 2;
+            } else {
+                appendLiteral(sb, c);
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param open the index of the {@code [} in the glob
+     * @return the index of the {@code ]} closing the character class or -1 if there is none. A {@code ]} right
+     * after the {@code [} or {@code [!} is a member of the class, thus {@code []} and {@code [!]} are not classes
+     * and the {@code [} is taken literally.
+     */
+    private static int classEnd(String glob, int open) {
+        int first = open + 1;
+        if (first < glob.length() && glob.charAt(first) == '!') {
+            first++;
+        }
+        return glob.indexOf(']', first + 1);
+    }
+
+    private static void appendLiteral(StringBuilder sb, char c) {
+        if (REGEX_SPECIAL.indexOf(c) != -1 || c == '*' || c == '?') {
+            sb.append('\\');
+        }
+        sb.append(c);
+    }
+}
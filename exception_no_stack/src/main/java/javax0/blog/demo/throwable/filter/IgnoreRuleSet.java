@@ -0,0 +1,55 @@
+package javax0.blog.demo.throwable.filter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The rules of one {@code .gitignore} file (or the rules given programmatically) together with the directory,
+ * relative to the root of the listing, where they were defined. As in git, the last matching rule decides.
+ */
+class IgnoreRuleSet {
+    final String base;
+    private final List<IgnoreRule> rules = new ArrayList<>();
+
+    IgnoreRuleSet(String base) {
+        this.base = base;
+    }
+
+    static IgnoreRuleSet load(String base, Path gitIgnore) throws IOException {
+        final var ruleSet = new IgnoreRuleSet(base);
+        for (final var line : Files.readAllLines(gitIgnore, StandardCharsets.UTF_8)) {
+            ruleSet.add(IgnoreRule.glob(line));
+        }
+        return ruleSet;
+    }
+
+    void add(IgnoreRule rule) {
+        if (rule != null) {
+            rules.add(rule);
+        }
+    }
+
+    boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    /**
+     * @param relativePath the path relative to the root of the listing
+     * @return {@code TRUE} if the path is excluded, {@code FALSE} if it is explicitly re-included by a negated
+     * rule and {@code null} if no rule in this set says anything about the path
+     */
+    Boolean verdict(String relativePath, String name, boolean directory) {
+        final var local = base.isEmpty() ? relativePath : relativePath.substring(base.length() + 1);
+        for (int i = rules.size() - 1; i >= 0; i--) {
+            final var rule = rules.get(i);
+            if ((directory || !rule.directoryOnly) && rule.matches(local, name)) {
+                return !rule.negated;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,91 @@
+package javax0.blog.demo.throwable.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Include and exclude rules for the {@link FilteringFileLister}. The configuration methods follow the fluent
+ * style of the Java::Geci source configuration used in {@code UpdateDocumentation}.
+ */
+public class PathFilter {
+    final IgnoreRuleSet excludes = new IgnoreRuleSet("");
+    private final List<IgnoreRule> includes = new ArrayList<>();
+    boolean gitIgnore = false;
+    boolean ignoreBinary = false;
+
+    /**
+     * @param globs exclude patterns using the {@code .gitignore} syntax, including {@code !} negation
+     */
+    public PathFilter exclude(String... globs) {
+        for (final var glob : globs) {
+            excludes.add(IgnoreRule.glob(glob));
+        }
+        return this;
+    }
+
+    /**
+     * @param regexes regular expressions, a file or directory is excluded if any of them can be found in its
+     *                path relative to the root of the listing
+     */
+    public PathFilter ignore(String... regexes) {
+        for (final var regex : regexes) {
+            excludes.add(IgnoreRule.regex(regex));
+        }
+        return this;
+    }
+
+    /**
+     * @param globs include patterns using the {@code .gitignore} syntax. When there is any include pattern then
+     *              only the files matching at least one of them are listed. Directories are not pruned, a
+     *              pattern ending with {@code /} matches the directories only, like in the exclude rules, and
+     *              includes all the files below the matching directories.
+     */
+    public PathFilter include(String... globs) {
+        for (final var glob : globs) {
+            final var rule = IgnoreRule.glob(glob);
+            if (rule != null) {
+                includes.add(rule);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Honor the {@code .gitignore} files found in the listed directories.
+     */
+    public PathFilter gitIgnore() {
+        gitIgnore = true;
+        return this;
+    }
+
+    /**
+     * Skip the files that look binary, see {@link BinaryFileDetector}.
+     */
+    public PathFilter ignoreBinary() {
+        ignoreBinary = true;
+        return this;
+    }
+
+    boolean isIncluded(String relativePath, String name) {
+        if (includes.isEmpty()) {
+            return true;
+        }
+        for (final var rule : includes) {
+            if (rule.directoryOnly ? inMatchingDirectory(rule, relativePath) : rule.matches(relativePath, name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean inMatchingDirectory(IgnoreRule rule, String relativePath) {
+        int start = 0;
+        for (int slash = relativePath.indexOf('/'); slash != -1; slash = relativePath.indexOf('/', slash + 1)) {
+            if (rule.matches(relativePath.substring(0, slash), relativePath.substring(start, slash))) {
+                return true;
+            }
+            start = slash + 1;
+        }
+        return false;
+    }
+}
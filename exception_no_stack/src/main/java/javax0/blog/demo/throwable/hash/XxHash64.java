@@ -0,0 +1,82 @@
+package javax0.blog.demo.throwable.hash;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The 64 bit xxHash (XXH64) of a byte sequence, the same value as the reference implementation of the xxHash
+ * project gives. It reads the input eight bytes at a time, thus a memory mapped file is hashed at the speed of the memory. It is
+ * not a cryptographic hash, it is good to find identical contents, not to protect against crafted collisions.
+ */
+public final class XxHash64 {
+    private static final long P1 = 0x9E3779B185EBCA87L;
+    private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long P3 = 0x165667B19E3779F9L;
+    private static final long P4 = 0x85EBCA77C2B2AE63L;
+    private static final long P5 = 0x27D4EB2F165667C5L;
+
+    private XxHash64() {
+    }
+
+    public static long hash(byte[] bytes, long seed) {
+        return hash(ByteBuffer.wrap(bytes), seed);
+    }
+
+    /**
+     * Hash the bytes between the position and the limit of the buffer. The position of the buffer is not changed.
+     */
+    public static long hash(ByteBuffer buffer, long seed) {
+        final var in = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        final int end = in.limit();
+        final int length = end - in.position();
+        int p = in.position();
+        long h;
+        if (length >= 32) {
+            long v1 = seed + P1 + P2;
+            long v2 = seed + P2;
+            long v3 = seed;
+            long v4 = seed - P1;
+            for (final int last = end - 32; p <= last; p += 32) {
+                v1 = round(v1, in.getLong(p));
+                v2 = round(v2, in.getLong(p + 8));
+                v3 = round(v3, in.getLong(p + 16));
+                v4 = round(v4, in.getLong(p + 24));
+            }
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = merge(h, v1);
+            h = merge(h, v2);
+            h = merge(h, v3);
+            h = merge(h, v4);
+        } else {
+            h = seed + P5;
+        }
+        h += length;
+        for (; p + 8 <= end; p += 8) {
+            h ^= round(0, in.getLong(p));
+            h = Long.rotateLeft(h, 27) * P1 + P4;
+        }
+        if (p + 4 <= end) {
+            h ^= (in.getInt(p) & 0xFFFFFFFFL) * P1;
+            h = Long.rotateLeft(h, 23) * P2 + P3;
+            p += 4;
+        }
+        for (; p < end; p++) {
+            h ^= (in.get(p) & 0xFFL) * P5;
+            h = Long.rotateLeft(h, 11) * P1;
+        }
+        h ^= h >>> 33;
+        h *= P2;
+        h ^= h >>> 29;
+        h *= P3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    private static long round(long acc, long input) {
+        return Long.rotateLeft(acc + input * P2, 31) * P1;
+    }
+
+    private static long merge(long h, long v) {
+        return (h ^ round(0, v)) * P1 + P4;
+    }
+}
@@ -0,0 +1,9 @@
+package javax0.blog.demo.throwable.index;
+
+/**
+ * Receives the matches of a file without creating a {@link Position} for each.
+ */
+@FunctionalInterface
+public interface MatchConsumer {
+    void accept(int line, int column);
+}
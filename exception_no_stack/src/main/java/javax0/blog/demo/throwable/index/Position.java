@@ -0,0 +1,34 @@
+package javax0.blog.demo.throwable.index;
+
+import java.util.Objects;
+
+/**
+ * The place of a match, both the line and the column are counted from one.
+ */
+public final class Position {
+    public final int line;
+    public final int column;
+
+    public Position(int line, int column) {
+        this.line = line;
+        this.column = column;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Position)) return false;
+        final var other = (Position) o;
+        return line == other.line && column == other.column;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(line, column);
+    }
+
+    @Override
+    public String toString() {
+        return line + ":" + column;
+    }
+}
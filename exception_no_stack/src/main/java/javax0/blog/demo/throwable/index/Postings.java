@@ -0,0 +1,77 @@
+package javax0.blog.demo.throwable.index;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The encoding of the match positions of one file. The positions are written in order, each as two unsigned
+ * varints: the line number difference from the previous match and the column. The column is the difference from
+ * the previous column when the match is on the same line, and the column minus one otherwise. Most of the values
+ * are small, thus most positions take two bytes.
+ */
+class Postings {
+    private byte[] bytes = new byte[16];
+    private int length;
+    private int count;
+    private int previousLine;
+    private int previousColumn;
+
+    void add(int line, int column) {
+        final int lineDelta = line - previousLine;
+        writeVarint(lineDelta);
+        writeVarint(lineDelta == 0 ? column - previousColumn : column - 1);
+        previousLine = line;
+        previousColumn = column;
+        count++;
+    }
+
+    int count() {
+        return count;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, length);
+    }
+
+    private void writeVarint(int value) {
+        if (length + 5 > bytes.length) {
+            bytes = Arrays.copyOf(bytes, 2 * bytes.length);
+        }
+        while ((value & ~0x7F) != 0) {
+            bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[length++] = (byte) value;
+    }
+
+    /**
+     * Decode the postings between {@code offset} and {@code offset + length} and call the consumer with the line
+     * and column of each match.
+     */
+    static void decode(ByteBuffer buffer, int offset, int length, MatchConsumer consumer) {
+        final int end = offset + length;
+        int pos = offset;
+        int line = 0;
+        int column = 0;
+        while (pos < end) {
+            int lineDelta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(pos++);
+                lineDelta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            int columnValue = 0;
+            shift = 0;
+            do {
+                b = buffer.get(pos++);
+                columnValue |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            line += lineDelta;
+            column = lineDelta == 0 ? column + columnValue : columnValue + 1;
+            consumer.accept(line, column);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package javax0.blog.demo.throwable.index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A memory-mapped positional index of the "wtf" matches of a project. The index lists the files sorted by the
+ * UTF-8 bytes of their names, thus the files of a directory are next to each other and a directory is found with
+ * two binary searches. The running sum of the counts is stored as well, counting the matches in a directory does
+ * not look at the individual files.
+ * <p>
+ * Layout of the file, all numbers are big endian:
+ * <pre>
+ *   header    magic, version, number of files, padding, total count
+ *   entries   name offset, name length, postings offset, postings length, count, padding, size, last modified
+ *   sums      number of files + 1 longs, the sum of the counts of the files before the index
+ *   names     the UTF-8 names of the files
+ *   postings  the {@link Postings} of the files
+ * </pre>
+ * The index is written by {@link WtfIndexer}.
+ */
+public class WtfIndex {
+    private static final int MAGIC = 0x57544649; // "WTFI"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int ENTRY_SIZE = 40;
+
+    private static final int E_NAME_OFFSET = 0;
+    private static final int E_NAME_LENGTH = 4;
+    private static final int E_POSTINGS_OFFSET = 8;
+    private static final int E_POSTINGS_LENGTH = 12;
+    private static final int E_COUNT = 16;
+    private static final int E_SIZE = 24;
+    private static final int E_LAST_MODIFIED = 32;
+
+    /**
+     * The data of one file as the indexer collects it before writing.
+     */
+    static class Entry {
+        final byte[] name;
+        final long size;
+        final long lastModified;
+        final int count;
+        final byte[] postings;
+
+        Entry(String name, long size, long lastModified, int count, byte[] postings) {
+            this.name = name.getBytes(StandardCharsets.UTF_8);
+            this.size = size;
+            this.lastModified = lastModified;
+            this.count = count;
+            this.postings = postings;
+        }
+    }
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int sums;
+
+    private WtfIndex(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.size = buffer.getInt(8);
+        this.sums = HEADER_SIZE + size * ENTRY_SIZE;
+    }
+
+    public static WtfIndex open(Path file) throws IOException {
+        try (final var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large to be an index");
+            }
+            final var mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.capacity() < HEADER_SIZE || mapped.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a wtf index");
+            }
+            if (mapped.getInt(4) != VERSION) {
+                throw new IOException(file + " has unsupported version " + mapped.getInt(4));
+            }
+            final long size = mapped.getInt(8);
+            if (size < 0 || HEADER_SIZE + size * (ENTRY_SIZE + Long.BYTES) + Long.BYTES > mapped.capacity()) {
+                throw new IOException(file + " is truncated");
+            }
+            return new WtfIndex(mapped);
+        }
+    }
+
+    static void write(Path file, List<Entry> entries) throws IOException {
+        final var sorted = new ArrayList<>(entries);
+        sorted.sort((a, b) -> Arrays.compareUnsigned(a.name, b.name));
+        final int n = sorted.size();
+        final long namesStart = HEADER_SIZE + (long) n * ENTRY_SIZE + (n + 1L) * Long.BYTES;
+        long namesLength = 0;
+        long postingsLength = 0;
+        long total = 0;
+        for (final var entry : sorted) {
+            namesLength += entry.name.length;
+            postingsLength += entry.postings.length;
+            total += entry.count;
+        }
+        if (namesStart + namesLength + postingsLength > Integer.MAX_VALUE) {
+            throw new IOException("The index of " + n + " files would be larger than 2GB");
+        }
+        final var temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (final var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(n);
+            out.writeInt(0);
+            out.writeLong(total);
+            int nameOffset = (int) namesStart;
+            int postingsOffset = (int) (namesStart + namesLength);
+            for (final var entry : sorted) {
+                out.writeInt(nameOffset);
+                out.writeInt(entry.name.length);
+                out.writeInt(postingsOffset);
+                out.writeInt(entry.postings.length);
+                out.writeInt(entry.count);
+                out.writeInt(0);
+                out.writeLong(entry.size);
+                out.writeLong(entry.lastModified);
+                nameOffset += entry.name.length;
+                postingsOffset += entry.postings.length;
+            }
+            long sum = 0;
+            out.writeLong(sum);
+            for (final var entry : sorted) {
+                sum += entry.count;
+                out.writeLong(sum);
+            }
+            for (final var entry : sorted) {
+                out.write(entry.name);
+            }
+            for (final var entry : sorted) {
+                out.write(entry.postings);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the number of files in the index, including the files without any match
+     */
+    public int size() {
+        return size;
+    }
+
+    public long total() {
+        return buffer.getLong(16);
+    }
+
+    public String fileName(int index) {
+        final int entry = entry(index);
+        final var name = new byte[buffer.getInt(entry + E_NAME_LENGTH)];
+        buffer.get(buffer.getInt(entry + E_NAME_OFFSET), name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    public int count(int index) {
+        return buffer.getInt(entry(index) + E_COUNT);
+    }
+
+    long fileSize(int index) {
+        return buffer.getLong(entry(index) + E_SIZE);
+    }
+
+    long lastModified(int index) {
+        return buffer.getLong(entry(index) + E_LAST_MODIFIED);
+    }
+
+    byte[] postings(int index) {
+        final int entry = entry(index);
+        final var postings = new byte[buffer.getInt(entry + E_POSTINGS_LENGTH)];
+        buffer.get(buffer.getInt(entry + E_POSTINGS_OFFSET), postings);
+        return postings;
+    }
+
+    /**
+     * @return the index of the file, or -1 if the file is not in the index
+     */
+    public int find(String fileName) {
+        final var key = fileName.getBytes(StandardCharsets.UTF_8);
+        final int index = lowerBound(key);
+        return index < size && compare(index, key) == 0 ? index : -1;
+    }
+
+    public void forEachMatch(int index, MatchConsumer consumer) {
+        final int entry = entry(index);
+        Postings.decode(buffer, buffer.getInt(entry + E_POSTINGS_OFFSET), buffer.getInt(entry + E_POSTINGS_LENGTH), consumer);
+    }
+
+    public List<Position> positions(int index) {
+        final var positions = new ArrayList<Position>(count(index));
+        forEachMatch(index, (line, column) -> positions.add(new Position(line, column)));
+        return positions;
+    }
+
+    /**
+     * @return the numbers of the lines that have at least one match, in increasing order
+     */
+    public int[] lines(int index) {
+        final var lines = new int[count(index)];
+        final int[] n = {0};
+        forEachMatch(index, (line, column) -> {
+            if (n[0] == 0 || lines[n[0] - 1] != line) {
+                lines[n[0]++] = line;
+            }
+        });
+        return Arrays.copyOf(lines, n[0]);
+    }
+
+    /**
+     * @param directory the directory as it is in the file names, or an empty string for the whole index
+     * @return the number of matches in the files of the directory and its subdirectories
+     */
+    public long countUnder(String directory) {
+        final var range = range(directory);
+        return buffer.getLong(sums + range[1] * Long.BYTES) - buffer.getLong(sums + range[0] * Long.BYTES);
+    }
+
+    /**
+     * @param directory the directory as it is in the file names, or an empty string for the whole index
+     * @return the names of the files in the directory and its subdirectories that have at least one match
+     */
+    public List<String> filesUnder(String directory) {
+        final var range = range(directory);
+        final var files = new ArrayList<String>();
+        for (int i = range[0]; i < range[1]; i++) {
+            if (count(i) > 0) {
+                files.add(fileName(i));
+            }
+        }
+        return files;
+    }
+
+    private int[] range(String directory) {
+        if (directory.isEmpty()) {
+            return new int[]{0, size};
+        }
+        final var prefix = (directory.endsWith(File.separator) ? directory : directory + File.separator)
+                .getBytes(StandardCharsets.UTF_8);
+        // 0xFF never occurs in UTF-8, every name starting with the prefix is smaller than this key
+        final var end = Arrays.copyOf(prefix, prefix.length + 1);
+        end[prefix.length] = (byte) 0xFF;
+        return new int[]{lowerBound(prefix), lowerBound(end)};
+    }
+
+    /**
+     * @return the first index whose name is not smaller than the key
+     */
+    private int lowerBound(byte[] key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (compare(mid, key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compare(int index, byte[] key) {
+        final int entry = HEADER_SIZE + index * ENTRY_SIZE;
+        final int offset = buffer.getInt(entry + E_NAME_OFFSET);
+        final int length = buffer.getInt(entry + E_NAME_LENGTH);
+        for (int i = 0, n = Math.min(length, key.length); i < n; i++) {
+            final int c = Byte.compareUnsigned(buffer.get(offset + i), key[i]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private int entry(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return HEADER_SIZE + index * ENTRY_SIZE;
+    }
+}
@@ -0,0 +1,95 @@
+package javax0.blog.demo.throwable.index;
+
+import javax0.blog.demo.throwable.FileLister;
+import javax0.blog.demo.throwable.parallel.FileReader;
+import javax0.blog.demo.throwable.sneaky.ExceptionCollector;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static javax0.blog.demo.throwable.v4.LineWtfCounter.WTF;
+import static javax0.blog.demo.throwable.v4.LineWtfCounter.WTF_LEN;
+
+/**
+ * Builds the {@link WtfIndex} of the files, in parallel the same way as
+ * {@link javax0.blog.demo.throwable.parallel.ProjectWtfCounter} counts them. Empty lines are not an error when
+ * indexing, they simply have no match.
+ * <p>
+ * {@link #update(Path)} reads only the files that changed since the index was written. A file is unchanged if its
+ * size and last modification time are the same as in the index, its postings are copied from the old index.
+ */
+public class WtfIndexer {
+    private final FileLister fileLister;
+    private final AtomicInteger scanned = new AtomicInteger();
+
+    public WtfIndexer(FileLister fileLister) {
+        this.fileLister = fileLister;
+    }
+
+    public WtfIndex build(Path indexFile) throws IOException {
+        return index(indexFile, null);
+    }
+
+    /**
+     * Update the index, or build it if it does not exist yet or cannot be read.
+     */
+    public WtfIndex update(Path indexFile) throws IOException {
+        WtfIndex previous = null;
+        if (Files.exists(indexFile)) {
+            try {
+                previous = WtfIndex.open(indexFile);
+            } catch (IOException e) {
+                // a corrupt index is rebuilt from scratch
+            }
+        }
+        return index(indexFile, previous);
+    }
+
+    /**
+     * @return the number of files read by the last {@link #build(Path)} or {@link #update(Path)}
+     */
+    public int scanned() {
+        return scanned.get();
+    }
+
+    private WtfIndex index(Path indexFile, WtfIndex previous) throws IOException {
+        scanned.set(0);
+        final var collector = new ExceptionCollector(IOException.class);
+        final var entries = fileLister.list().parallelStream()
+                .map(collector.function(fileName -> entry(fileName, previous), null))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        collector.throwIfAny(IOException.class, () -> new IOException("Some files could not be read"));
+        WtfIndex.write(indexFile, entries);
+        return WtfIndex.open(indexFile);
+    }
+
+    private WtfIndex.Entry entry(String fileName, WtfIndex previous) throws IOException {
+        final var attributes = Files.readAttributes(Path.of(fileName), BasicFileAttributes.class);
+        final long size = attributes.size();
+        final long lastModified = attributes.lastModifiedTime().toMillis();
+        if (previous != null) {
+            final int index = previous.find(fileName);
+            if (index != -1 && previous.fileSize(index) == size && previous.lastModified(index) == lastModified) {
+                return new WtfIndex.Entry(fileName, size, lastModified, previous.count(index), previous.postings(index));
+            }
+        }
+        scanned.incrementAndGet();
+        final var postings = new Postings();
+        int lineNr = 1;
+        for (final var line : new FileReader(fileName).list()) {
+            int index = line.indexOf(WTF);
+            while (index != -1) {
+                postings.add(lineNr, index + 1);
+                index = line.indexOf(WTF, index + WTF_LEN);
+            }
+            lineNr++;
+        }
+        return new WtfIndex.Entry(fileName, size, lastModified, postings.count(), postings.toByteArray());
+    }
+}
@@ -0,0 +1,364 @@
+package javax0.blog.demo.throwable.match;
+
+import javax0.blog.demo.throwable.v4.LineWtfCounter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Counts the non-overlapping occurrences of a word in a line, optionally ignoring the case and only counting whole
+ * words. Both options are checked during the same single pass over the line, nothing is allocated. The case is
+ * folded and the word characters are recognized through lookup tables for ASCII, the other characters fall back to
+ * {@link Character}. Ignoring the case the candidates are found by {@link String#indexOf(int, int)} for both
+ * cases of the first letter when possible, otherwise the line is scanned with a Horspool skip table.
+ * <p>
+ * Without the options the matcher uses {@link String#indexOf(String, int)} the same way as
+ * {@link LineWtfCounter} does.
+ * <p>
+ * The UTF-8 byte count gives the same result as the {@code String} count. The characters around a match are
+ * decoded to decide if it is a whole word. The bytes are scanned with a Horspool skip table, folding only the ASCII
+ * bytes. That is exact unless the word contains a non-ASCII character or an {@code i}, {@code s} or {@code k}, the
+ * only ASCII letters a non-ASCII character folds to. Such a word is matched ignoring the case by decoding the
+ * characters.
+ */
+public class WtfMatcher {
+    private static final char[] FOLD = new char[128];
+    private static final boolean[] WORD = new boolean[128];
+    private static final byte[] BYTE_FOLD = new byte[256];
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            FOLD[c] = c >= 'A' && c <= 'Z' ? (char) (c + 'a' - 'A') : c;
+            WORD[c] = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+        }
+        for (int b = 0; b < 256; b++) {
+            BYTE_FOLD[b] = b < 128 ? (byte) FOLD[b] : (byte) b;
+        }
+    }
+
+    private final String word;
+    private final char[] folded;
+    private final int[] shift = new int[128];
+    private final int nonAsciiShift;
+    private final char firstUpper;
+    private final byte[] bytes;
+    private final byte[] foldedBytes;
+    private final int[] byteShift = new int[256];
+    private final int[] foldedByteShift = new int[256];
+    private final boolean asciiFoldIsExact;
+    private boolean ignoreCase = false;
+    private boolean wholeWord = false;
+
+    public WtfMatcher() {
+        this(LineWtfCounter.WTF);
+    }
+
+    public WtfMatcher(String word) {
+        if (word.isEmpty()) {
+            throw new IllegalArgumentException("The word to count cannot be empty");
+        }
+        this.word = word;
+        this.folded = new char[word.length()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = fold(word.charAt(i));
+        }
+        Arrays.fill(shift, folded.length);
+        int nonAscii = folded.length;
+        for (int k = 0; k < folded.length - 1; k++) {
+            if (folded[k] < 128) {
+                shift[folded[k]] = folded.length - 1 - k;
+            } else {
+                nonAscii = 1;
+            }
+        }
+        this.nonAsciiShift = nonAscii;
+        // only \u0130, \u0131, \u017f and the Kelvin sign fold to an ASCII letter: i, s and k
+        final char first = folded[0];
+        this.firstUpper = first >= 'a' && first <= 'z' && first != 'i' && first != 's' && first != 'k'
+                ? (char) (first - 'a' + 'A') : 0;
+        this.bytes = word.getBytes(StandardCharsets.UTF_8);
+        this.foldedBytes = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            foldedBytes[i] = BYTE_FOLD[bytes[i] & 0xFF];
+        }
+        fillShift(byteShift, bytes);
+        fillShift(foldedByteShift, foldedBytes);
+        boolean exact = true;
+        for (final char c : folded) {
+            exact &= c < 128 && c != 'i' && c != 's' && c != 'k';
+        }
+        this.asciiFoldIsExact = exact;
+    }
+
+    private static void fillShift(int[] shift, byte[] pattern) {
+        Arrays.fill(shift, pattern.length);
+        for (int k = 0; k < pattern.length - 1; k++) {
+            shift[pattern[k] & 0xFF] = pattern.length - 1 - k;
+        }
+    }
+
+    /**
+     * Count "WTF" and "Wtf" as well as "wtf".
+     */
+    public WtfMatcher ignoreCase() {
+        ignoreCase = true;
+        return this;
+    }
+
+    /**
+     * Count "wtf" only when it is not part of a longer word, like "wtfs". Letters, digits and the underscore are
+     * word characters.
+     */
+    public WtfMatcher wholeWord() {
+        wholeWord = true;
+        return this;
+    }
+
+    public int count(String line) {
+        final int length = folded.length;
+        int count = 0;
+        if (!ignoreCase) {
+            int index = line.indexOf(word);
+            while (index != -1) {
+                if (!wholeWord || isWholeWord(line, index, length)) {
+                    count++;
+                    index = line.indexOf(word, index + length);
+                } else {
+                    index = line.indexOf(word, index + 1);
+                }
+            }
+            return count;
+        }
+        if (firstUpper != 0) {
+            return countFromFirst(line);
+        }
+        // Horspool: the folded character under the end of the window tells how far the window can jump
+        final int end = length - 1;
+        final char lastChar = folded[end];
+        for (int i = 0, last = line.length() - length; i <= last; ) {
+            final char c = fold(line.charAt(i + end));
+            if (c == lastChar && regionMatches(line, i, 0, end) && (!wholeWord || isWholeWord(line, i, length))) {
+                count++;
+                i += length;
+            } else {
+                i += c < 128 ? shift[c] : nonAsciiShift;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The candidates are found with {@link String#indexOf(int, int)} looking for the lower and the upper case of
+     * the first character, the rest of the line is not touched.
+     */
+    private int countFromFirst(String line) {
+        final int length = folded.length;
+        final int last = line.length() - length;
+        final char first = folded[0];
+        int lower = line.indexOf(first);
+        int upper = line.indexOf(firstUpper);
+        int count = 0;
+        while (lower != -1 || upper != -1) {
+            final int i = upper == -1 || (lower != -1 && lower < upper) ? lower : upper;
+            if (i > last) {
+                break;
+            }
+            final int next;
+            if (regionMatches(line, i, 1, length) && (!wholeWord || isWholeWord(line, i, length))) {
+                count++;
+                next = i + length;
+            } else {
+                next = i + 1;
+            }
+            if (lower != -1 && lower < next) {
+                lower = line.indexOf(first, next);
+            }
+            if (upper != -1 && upper < next) {
+                upper = line.indexOf(firstUpper, next);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Count in the UTF-8 encoded bytes between {@code from} inclusive and {@code to} exclusive. The range is a whole
+     * line, the characters before {@code from} and after {@code to} are not looked at.
+     */
+    public int count(byte[] buffer, int from, int to) {
+        if (ignoreCase && !asciiFoldIsExact) {
+            return countDecoding(buffer, from, to);
+        }
+        final var pattern = ignoreCase ? foldedBytes : bytes;
+        final var shift = ignoreCase ? foldedByteShift : byteShift;
+        final var fold = ignoreCase ? BYTE_FOLD : null;
+        final int length = pattern.length;
+        final int end = length - 1;
+        final byte lastByte = pattern[end];
+        int count = 0;
+        // Horspool, the same way as the String count ignoring the case
+        for (int i = from, last = to - length; i <= last; ) {
+            final byte b = buffer[i + end];
+            final byte c = fold == null ? b : fold[b & 0xFF];
+            if (c == lastByte && regionMatches(buffer, i, pattern, fold, end)
+                    && (!wholeWord || isWholeWord(buffer, i, i + length, from, to))) {
+                count++;
+                i += length;
+            } else {
+                i += shift[c & 0xFF];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Ignoring the case, when folding the ASCII bytes is not enough, the characters are decoded from every character
+     * start and folded the same way as in the {@code String} count. The length of a match in bytes may differ from
+     * the length of the word, the Kelvin sign is three bytes and folds to {@code k}.
+     */
+    private int countDecoding(byte[] buffer, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; ) {
+            final int end = matchEnd(buffer, i, to);
+            if (end != -1 && (!wholeWord || isWholeWord(buffer, i, end, from, to))) {
+                count++;
+                i = end;
+            } else {
+                i++;
+                while (i < to && isContinuation(buffer[i])) {
+                    i++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the position after the match starting at {@code start} or -1 if there is no match there
+     */
+    private int matchEnd(byte[] buffer, int start, int to) {
+        int pos = start;
+        int k = 0;
+        while (k < folded.length) {
+            if (pos >= to) {
+                return -1;
+            }
+            final int codePoint = decode(buffer, pos, to);
+            if (codePoint < 0) {
+                return -1;
+            }
+            if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                // the String count folds the chars one by one, a surrogate is not changed by the folding
+                if (fold((char) codePoint) != folded[k]) {
+                    return -1;
+                }
+                k++;
+            } else {
+                if (k + 1 >= folded.length || Character.highSurrogate(codePoint) != folded[k]
+                        || Character.lowSurrogate(codePoint) != folded[k + 1]) {
+                    return -1;
+                }
+                k += 2;
+            }
+            pos += utf8Length(buffer[pos]);
+        }
+        return pos;
+    }
+
+    private boolean regionMatches(String line, int offset, int from, int to) {
+        for (int k = from; k < to; k++) {
+            if (fold(line.charAt(offset + k)) != folded[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean regionMatches(byte[] buffer, int offset, byte[] pattern, byte[] fold, int length) {
+        for (int k = 0; k < length; k++) {
+            final byte b = buffer[offset + k];
+            if ((fold == null ? b : fold[b & 0xFF]) != pattern[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWholeWord(String line, int index, int length) {
+        final int end = index + length;
+        return (index == 0 || !isWordChar(line.codePointBefore(index)))
+                && (end == line.length() || !isWordChar(line.codePointAt(end)));
+    }
+
+    /**
+     * The characters before {@code start} and at {@code end} are decoded, a malformed sequence is not a word
+     * character. It would not be a letter in the {@code String} either, decoding replaces it with U+FFFD.
+     */
+    private static boolean isWholeWord(byte[] buffer, int start, int end, int from, int to) {
+        if (start > from) {
+            int before = start - 1;
+            while (before > from && start - before < 4 && isContinuation(buffer[before])) {
+                before--;
+            }
+            final int codePoint = decode(buffer, before, start);
+            if (codePoint >= 0 && before + utf8Length(buffer[before]) == start && isWordChar(codePoint)) {
+                return false;
+            }
+        }
+        return end == to || !isWordChar(decode(buffer, end, to));
+    }
+
+    private static boolean isContinuation(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    /**
+     * @return the length of the UTF-8 sequence starting with the byte, 1 for a byte that cannot start a sequence
+     */
+    private static int utf8Length(byte b) {
+        if (b >= 0) {
+            return 1;
+        }
+        if ((b & 0xE0) == 0xC0) {
+            return 2;
+        }
+        if ((b & 0xF0) == 0xE0) {
+            return 3;
+        }
+        if ((b & 0xF8) == 0xF0) {
+            return 4;
+        }
+        return 1;
+    }
+
+    /**
+     * @return the code point of the UTF-8 sequence starting at {@code pos} or -1 if the sequence is malformed or
+     * does not end before {@code to}
+     */
+    private static int decode(byte[] buffer, int pos, int to) {
+        final byte b = buffer[pos];
+        if (b >= 0) {
+            return b;
+        }
+        final int length = utf8Length(b);
+        if (length == 1 || pos + length > to) {
+            return -1;
+        }
+        int codePoint = b & (0x7F >> length);
+        for (int k = 1; k < length; k++) {
+            final byte c = buffer[pos + k];
+            if (!isContinuation(c)) {
+                return -1;
+            }
+            codePoint = codePoint << 6 | (c & 0x3F);
+        }
+        return codePoint;
+    }
+
+    private static char fold(char c) {
+        return c < 128 ? FOLD[c] : Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    private static boolean isWordChar(int codePoint) {
+        return codePoint >= 0 && (codePoint < 128 ? WORD[codePoint] : Character.isLetterOrDigit(codePoint));
+    }
+}
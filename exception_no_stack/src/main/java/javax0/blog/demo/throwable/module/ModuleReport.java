@@ -0,0 +1,73 @@
+package javax0.blog.demo.throwable.module;
+
+import javax0.blog.demo.throwable.v4.FileNumberedLinesAreEmpty;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The results of the modules of a {@link ModuleWtfCounter}, ordered by the module names, and the grand total.
+ */
+public class ModuleReport {
+    private final List<ModuleResult> modules;
+
+    ModuleReport(List<ModuleResult> modules) {
+        this.modules = List.copyOf(modules);
+    }
+
+    public List<ModuleResult> modules() {
+        return modules;
+    }
+
+    public ModuleResult module(String name) {
+        for (final var module : modules) {
+            if (module.name().equals(name)) {
+                return module;
+            }
+        }
+        return null;
+    }
+
+    public int total() {
+        int total = 0;
+        for (final var module : modules) {
+            total += module.count();
+        }
+        return total;
+    }
+
+    /**
+     * Throw the same way as {@link javax0.blog.demo.throwable.parallel.ProjectWtfCounter#count()} does for the
+     * whole project: the read errors of all modules take precedence, then the empty lines of all modules.
+     */
+    public void throwIfAny() throws IOException {
+        IOException failure = null;
+        for (final var module : modules) {
+            if (module.failure() != null) {
+                if (failure == null) {
+                    failure = new IOException("Some files could not be read");
+                }
+                for (final var suppressed : module.failure().getSuppressed()) {
+                    failure.addSuppressed(suppressed);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        FileNumberedLinesAreEmpty emptyLines = null;
+        for (final var module : modules) {
+            if (module.emptyLines() != null) {
+                if (emptyLines == null) {
+                    emptyLines = new FileNumberedLinesAreEmpty();
+                }
+                for (final var suppressed : module.emptyLines().getSuppressed()) {
+                    emptyLines.addSuppressed(suppressed);
+                }
+            }
+        }
+        if (emptyLines != null) {
+            throw emptyLines;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package javax0.blog.demo.throwable.module;
+
+import javax0.blog.demo.throwable.v4.FileNumberedLinesAreEmpty;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The count of one module of a {@link ModuleWtfCounter}. The count is the number of matches of the files that could
+ * be read. A file that has empty lines counts zero, the same way as in
+ * {@link javax0.blog.demo.throwable.parallel.ProjectWtfCounter} and in the
+ * {@link javax0.blog.demo.throwable.service.CountingService}. The empty lines and the read errors are not thrown but
+ * kept here so that the other modules still have their results.
+ */
+public class ModuleResult {
+    private final String name;
+    private final Path root;
+    private final int files;
+    private final int count;
+    private final FileNumberedLinesAreEmpty emptyLines;
+    private final IOException failure;
+
+    ModuleResult(String name, Path root, int files, int count, FileNumberedLinesAreEmpty emptyLines, IOException failure) {
+        this.name = name;
+        this.root = root;
+        this.files = files;
+        this.count = count;
+        this.emptyLines = emptyLines;
+        this.failure = failure;
+    }
+
+    /**
+     * @return the directory of the module relative to the scanned root with {@code /} separators, {@code .} for
+     * the root itself
+     */
+    public String name() {
+        return name;
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    public int files() {
+        return files;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @return the empty lines of the files of the module as the counters throw them, or {@code null}
+     */
+    public FileNumberedLinesAreEmpty emptyLines() {
+        return emptyLines;
+    }
+
+    /**
+     * @return the exception with the read errors of the module suppressed in it, or {@code null}
+     */
+    public IOException failure() {
+        return failure;
+    }
+}
@@ -0,0 +1,203 @@
+package javax0.blog.demo.throwable.module;
+
+import javax0.blog.demo.throwable.FileLister;
+import javax0.blog.demo.throwable.filter.FilteringFileLister;
+import javax0.blog.demo.throwable.filter.PathFilter;
+import javax0.blog.demo.throwable.match.WtfMatcher;
+import javax0.blog.demo.throwable.schedule.ScheduledProjectWtfCounter;
+import javax0.blog.demo.throwable.sneaky.SneakyThrower;
+import javax0.blog.demo.throwable.v4.FileNumberedLinesAreEmpty;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Counts a directory that contains several modules, like this repository, and reports every module separately.
+ * <p>
+ * The files are listed in one walk with the {@link PathFilter} and the listing decides the modules: a directory
+ * that has a listed build file, {@code pom.xml}, {@code build.gradle} or {@code build.gradle.kts} by default, is
+ * a module. A file belongs to the deepest module above it, the files that are not in any module belong to the
+ * root, named {@code .}. A module nested in another one is counted separately from its parent.
+ * <p>
+ * The modules are counted concurrently, the largest first, each by its own {@link ScheduledProjectWtfCounter}
+ * with its own threads. A huge module uses only its own threads, the small modules are counted on the other ones
+ * in the meantime. At most {@link #modules(int)} times {@link #threadsPerModule(int)} threads count at the same
+ * time.
+ */
+public class ModuleWtfCounter {
+    private final Path root;
+    private final PathFilter filter;
+    private final WtfMatcher matcher;
+    private Set<String> markers = Set.of("pom.xml", "build.gradle", "build.gradle.kts");
+    private int modules = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private int threadsPerModule = 2;
+
+    public ModuleWtfCounter(Path root, PathFilter filter) {
+        this(root, filter, new WtfMatcher());
+    }
+
+    public ModuleWtfCounter(Path root, PathFilter filter, WtfMatcher matcher) {
+        this.root = root;
+        this.filter = filter;
+        this.matcher = matcher;
+    }
+
+    /**
+     * @param fileNames the names of the files that make their directory a module
+     */
+    public ModuleWtfCounter markers(String... fileNames) {
+        if (fileNames.length == 0) {
+            throw new IllegalArgumentException("At least one marker file name is needed");
+        }
+        markers = Set.of(fileNames);
+        return this;
+    }
+
+    /**
+     * @param modules the number of modules counted at the same time
+     */
+    public ModuleWtfCounter modules(int modules) {
+        if (modules < 1) {
+            throw new IllegalArgumentException("modules has to be positive, it is " + modules);
+        }
+        this.modules = modules;
+        return this;
+    }
+
+    public ModuleWtfCounter threadsPerModule(int threadsPerModule) {
+        if (threadsPerModule < 1) {
+            throw new IllegalArgumentException("threadsPerModule has to be positive, it is " + threadsPerModule);
+        }
+        this.threadsPerModule = threadsPerModule;
+        return this;
+    }
+
+    /**
+     * The files of a module and their total size, the modules are started in the decreasing order of the size.
+     */
+    private static class Module {
+        final Path dir;
+        final List<String> fileNames = new ArrayList<>();
+        long bytes;
+
+        Module(Path dir) {
+            this.dir = dir;
+        }
+    }
+
+    public ModuleReport count() throws IOException {
+        final var lister = new FilteringFileLister(root, filter);
+        final var fileNames = lister.list();
+        final var sizes = lister.sizes();
+        final var moduleDirs = new HashMap<Path, Path>();
+        for (final var fileName : fileNames) {
+            final var file = Path.of(fileName);
+            if (markers.contains(file.getFileName().toString())) {
+                moduleDirs.put(file.getParent(), file.getParent());
+            }
+        }
+        final var byDir = new HashMap<Path, Module>();
+        for (final var fileName : fileNames) {
+            final var module = byDir.computeIfAbsent(moduleOf(Path.of(fileName).getParent(), moduleDirs), Module::new);
+            module.fileNames.add(fileName);
+            module.bytes += sizes.getOrDefault(fileName, 0L);
+        }
+        final var ordered = new ArrayList<>(byDir.values());
+        ordered.sort(Comparator.comparingLong((Module m) -> m.bytes).reversed());
+
+        final var executor = Executors.newFixedThreadPool(Math.min(modules, Math.max(1, ordered.size())), r -> {
+            final var thread = new Thread(r, "wtf-module");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            final var futures = new ArrayList<Future<ModuleResult>>();
+            for (final var module : ordered) {
+                futures.add(executor.submit(() -> count(module, sizes)));
+            }
+            final var results = new TreeMap<String, ModuleResult>();
+            for (final var future : futures) {
+                final var result = future.get();
+                results.put(result.name(), result);
+            }
+            return new ModuleReport(new ArrayList<>(results.values()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Counting was interrupted");
+        } catch (ExecutionException e) {
+            throw SneakyThrower.<RuntimeException>throwSneaky(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @param dir        the directory of a listed file
+     * @param moduleDirs the module directories, the other directories are added as they are resolved
+     * @return the deepest module directory that contains {@code dir}, or the root
+     */
+    private Path moduleOf(Path dir, Map<Path, Path> moduleDirs) {
+        final var visited = new ArrayList<Path>();
+        Path module = null;
+        for (var d = dir; d != null; d = d.getParent()) {
+            module = moduleDirs.get(d);
+            if (module != null) {
+                break;
+            }
+            if (d.equals(root)) {
+                module = root;
+                break;
+            }
+            visited.add(d);
+        }
+        if (module == null) {
+            module = root;
+        }
+        for (final var d : visited) {
+            moduleDirs.put(d, module);
+        }
+        return module;
+    }
+
+    /**
+     * @param sizes the sizes of the listing, the files are not asked for their size again
+     */
+    private ModuleResult count(Module module, Map<String, Long> sizes) {
+        final var fileNames = module.fileNames;
+        final var counter = new ScheduledProjectWtfCounter(new FileLister() {
+            @Override
+            public List<String> list() {
+                return fileNames;
+            }
+        }, matcher, sizes).threads(threadsPerModule);
+        FileNumberedLinesAreEmpty emptyLines = null;
+        IOException failure = null;
+        try {
+            counter.count();
+        } catch (FileNumberedLinesAreEmpty e) {
+            emptyLines = e;
+        } catch (IOException e) {
+            failure = e;
+        }
+        return new ModuleResult(name(module.dir), module.dir, fileNames.size(), counter.counted(), emptyLines, failure);
+    }
+
+    private String name(Path dir) {
+        final var relative = root.relativize(dir).toString();
+        if (relative.isEmpty()) {
+            return ".";
+        }
+        return dir.getFileSystem().getSeparator().equals("/") ? relative : relative.replace(dir.getFileSystem().getSeparator(), "/");
+    }
+}
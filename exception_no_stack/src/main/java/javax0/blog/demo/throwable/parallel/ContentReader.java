@@ -0,0 +1,49 @@
+package javax0.blog.demo.throwable.parallel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Provides the lines of a file content that was already read. The lines are split and an invalid UTF-8 content
+ * is reported the same way as {@link FileReader} does reading the file.
+ * <p>
+ * The lines are cut from the decoded characters directly, the content is not copied into one large {@link String}
+ * first. The decoded characters are still on the heap, mapping a large file saves only the copy of its bytes.
+ */
+class ContentReader extends FileReader {
+    private final ByteBuffer content;
+
+    ContentReader(String fileName, ByteBuffer content) {
+        super(fileName);
+        this.content = content;
+    }
+
+    /**
+     * Splits the lines the same way as {@link java.io.BufferedReader#readLine()}: at {@code \n}, {@code \r} or
+     * {@code \r\n}, and a terminator at the end does not start an empty last line.
+     */
+    @Override
+    public List<String> list() throws IOException {
+        final var text = StandardCharsets.UTF_8.newDecoder().decode(content.duplicate());
+        final int length = text.length();
+        final var lines = new ArrayList<String>();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = text.get(i);
+            if (c == '\n' || c == '\r') {
+                lines.add(text.subSequence(start, i).toString());
+                if (c == '\r' && i + 1 < length && text.get(i + 1) == '\n') {
+                    i++;
+                }
+                start = i + 1;
+            }
+        }
+        if (start < length) {
+            lines.add(text.subSequence(start, length).toString());
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,20 @@
+package javax0.blog.demo.throwable.parallel;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class FileReader {
+    final String fileName;
+
+    public FileReader(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public List<String> list() throws IOException {
+        return Files.readAllLines(Path.of(fileName), StandardCharsets.UTF_8);
+    }
+
+}
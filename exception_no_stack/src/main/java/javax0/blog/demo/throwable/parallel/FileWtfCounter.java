@@ -0,0 +1,50 @@
+package javax0.blog.demo.throwable.parallel;
+
+import javax0.blog.demo.throwable.match.WtfMatcher;
+import javax0.blog.demo.throwable.v4.LineEmpty;
+import javax0.blog.demo.throwable.v4.NumberedLineEmpty;
+import javax0.blog.demo.throwable.v4.NumberedLinesAreEmpty;
+
+import java.io.IOException;
+
+public class FileWtfCounter {
+    private final FileReader fileReader;
+    private final WtfMatcher matcher;
+
+    public FileWtfCounter(FileReader fileReader) {
+        this(fileReader, new WtfMatcher());
+    }
+
+    public FileWtfCounter(FileReader fileReader, WtfMatcher matcher) {
+        this.fileReader = fileReader;
+        this.matcher = matcher;
+    }
+
+    // the lines are counted sequentially, a line is too small a work unit to hand over to another thread
+    public int count() throws IOException {
+        final var lines = fileReader.list();
+        NumberedLinesAreEmpty exceptionCollector = null;
+        int sum = 0;
+        int lineNr = 1;
+        for (final var line : lines) {
+            try {
+                if (line.isEmpty()) {
+                    throw new LineEmpty();
+                }
+                sum += matcher.count(line);
+            } catch (LineEmpty le) {
+                final var nle = new NumberedLineEmpty(lineNr, le);
+                if (exceptionCollector == null) {
+                    exceptionCollector = new NumberedLinesAreEmpty();
+                }
+                exceptionCollector.addSuppressed(nle);
+            }
+            lineNr++;
+        }
+        if (exceptionCollector != null) {
+            throw exceptionCollector;
+        }
+        return sum;
+    }
+
+}
@@ -0,0 +1,212 @@
+package javax0.blog.demo.throwable.parallel;
+
+import javax0.blog.demo.throwable.FileLister;
+import javax0.blog.demo.throwable.hash.XxHash64;
+import javax0.blog.demo.throwable.match.WtfMatcher;
+import javax0.blog.demo.throwable.sneaky.ExceptionCollector;
+import javax0.blog.demo.throwable.v4.FileNumberedLineEmpty;
+import javax0.blog.demo.throwable.v4.FileNumberedLinesAreEmpty;
+import javax0.blog.demo.throwable.v4.LineEmpty;
+import javax0.blog.demo.throwable.v4.NumberedLineEmpty;
+import javax0.blog.demo.throwable.v4.NumberedLinesAreEmpty;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the files in parallel. The exceptions thrown on the worker threads are collected and thrown at the end
+ * as one exception with the individual exceptions suppressed. A read error takes precedence over the empty
+ * lines: in that case the count is not complete anyway.
+ * <p>
+ * With {@link #deduplicate()} a file whose content was already counted in the same run is not counted again.
+ */
+public class ProjectWtfCounter {
+    // smaller files are read, mapping a file costs more than reading a few pages
+    private static final int MAP_THRESHOLD = 64 * 1024;
+
+    private final FileLister fileLister;
+    private final WtfMatcher matcher;
+    private boolean deduplicate = false;
+    private final AtomicInteger reused = new AtomicInteger();
+
+    public ProjectWtfCounter(FileLister fileLister) {
+        this(fileLister, new WtfMatcher());
+    }
+
+    public ProjectWtfCounter(FileLister fileLister, WtfMatcher matcher) {
+        this.fileLister = fileLister;
+        this.matcher = matcher;
+    }
+
+    /**
+     * Identify the files by the {@link XxHash64} of their content and their length, and count every content only
+     * once. A file with the same content as an earlier one gets the count and the empty line numbers of the earlier
+     * one, the empty lines are still reported with its own name. Vendored copies and generated sources are often
+     * identical.
+     * <p>
+     * The file is read into memory or mapped, it is hashed and counted from there, thus it is read only once. Every
+     * file is still read and hashed in full, only the counting of a repeated content is saved. The hash is not
+     * collision resistant, thus the contents with the same hash and length are also compared byte by byte, and a
+     * different content is counted on its own. The first content of every hash is kept in memory until the end of
+     * the {@link #count()} for the comparison.
+     */
+    public ProjectWtfCounter deduplicate() {
+        deduplicate = true;
+        return this;
+    }
+
+    /**
+     * @return the number of files in the last {@link #count()} that were not counted because their content was
+     * counted before, zero without {@link #deduplicate()}
+     */
+    public int reused() {
+        return reused.get();
+    }
+
+    public int count() throws IOException {
+        reused.set(0);
+        final var collector = new ExceptionCollector(IOException.class, FileNumberedLineEmpty.class);
+        final var contents = deduplicate ? new ConcurrentHashMap<ContentKey, Content>() : null;
+        final int sum = fileLister.list().parallelStream()
+                .mapToInt(collector.toIntFunction(fileName -> contents == null
+                        ? countFile(fileName) : countUnique(fileName, contents), 0))
+                .sum();
+        collector.throwIfAny(IOException.class, () -> new IOException("Some files could not be read"));
+        collector.throwIfAny(FileNumberedLineEmpty.class, FileNumberedLinesAreEmpty::new);
+        return sum;
+    }
+
+    private int countFile(String fileName) throws IOException {
+        try {
+            return new FileWtfCounter(new FileReader(fileName), matcher).count();
+        } catch (NumberedLinesAreEmpty nle) {
+            throw new FileNumberedLineEmpty(fileName, nle);
+        }
+    }
+
+    private static class ContentKey {
+        final long hash;
+        final int length;
+
+        ContentKey(long hash, int length) {
+            this.hash = hash;
+            this.length = length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ContentKey && ((ContentKey) o).hash == hash && ((ContentKey) o).length == length;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
+        }
+    }
+
+    /**
+     * The first content with a key and its result when it is ready.
+     */
+    private static class Content {
+        final ByteBuffer bytes;
+        final CompletableFuture<FileResult> result;
+
+        Content(ByteBuffer bytes, CompletableFuture<FileResult> result) {
+            this.bytes = bytes;
+            this.result = result;
+        }
+    }
+
+    /**
+     * The count of a content, or the numbers of its empty lines. A file with empty lines counts zero the same as
+     * without deduplication.
+     */
+    private static class FileResult {
+        final int count;
+        final int[] emptyLines;
+
+        FileResult(int count, int[] emptyLines) {
+            this.count = count;
+            this.emptyLines = emptyLines;
+        }
+    }
+
+    private int countUnique(String fileName, ConcurrentHashMap<ContentKey, Content> contents) throws IOException {
+        final var content = read(fileName);
+        final var mine = new CompletableFuture<FileResult>();
+        final var earlier = contents.putIfAbsent(new ContentKey(XxHash64.hash(content, 0), content.remaining()),
+                new Content(content.duplicate(), mine));
+        if (earlier != null) {
+            if (!earlier.bytes.equals(content)) {
+                // a hash collision, the content is different
+                return countContent(fileName, content);
+            }
+            final FileResult result;
+            try {
+                result = earlier.result.join();
+            } catch (CompletionException e) {
+                // the earlier file failed, count this one to get its own exception
+                return countContent(fileName, content);
+            }
+            reused.incrementAndGet();
+            return reuse(fileName, result);
+        }
+        try {
+            final int count = countContent(fileName, content);
+            mine.complete(new FileResult(count, null));
+            return count;
+        } catch (FileNumberedLineEmpty e) {
+            mine.complete(new FileResult(0, ((NumberedLinesAreEmpty) e.getCause()).getLineNumbers()));
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private int countContent(String fileName, ByteBuffer content) throws IOException {
+        try {
+            return new FileWtfCounter(new ContentReader(fileName, content), matcher).count();
+        } catch (NumberedLinesAreEmpty nle) {
+            throw new FileNumberedLineEmpty(fileName, nle);
+        }
+    }
+
+    private static int reuse(String fileName, FileResult result) {
+        if (result.emptyLines == null) {
+            return result.count;
+        }
+        final var nle = new NumberedLinesAreEmpty();
+        for (final int lineNr : result.emptyLines) {
+            nle.addSuppressed(new NumberedLineEmpty(lineNr, new LineEmpty()));
+        }
+        throw new FileNumberedLineEmpty(fileName, nle);
+    }
+
+    private static ByteBuffer read(String fileName) throws IOException {
+        try (final var channel = FileChannel.open(Path.of(fileName))) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(fileName + " is too large to deduplicate");
+            }
+            if (size >= MAP_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            final var buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) == -1) {
+                    // the file was truncated after size(), a shorter content would be hashed and counted silently
+                    throw new IOException(fileName + " ended after " + buffer.position() + " of " + size
+                            + " bytes, it changed while it was read");
+                }
+            }
+            return buffer.flip();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package javax0.blog.demo.throwable.pipeline;
+
+/**
+ * A buffer of whole lines of a file on its way from a reader to a scanner. The chunks are pooled, a scanner gives
+ * the chunk back to the pool when it is done with it.
+ */
+class Chunk {
+    byte[] buffer;
+    int length;
+    int file;
+    int sequence;
+
+    Chunk(int size) {
+        buffer = new byte[size];
+    }
+}
@@ -0,0 +1,334 @@
+package javax0.blog.demo.throwable.pipeline;
+
+import javax0.blog.demo.throwable.FileLister;
+import javax0.blog.demo.throwable.match.WtfMatcher;
+import javax0.blog.demo.throwable.sneaky.ExceptionCollector;
+import javax0.blog.demo.throwable.sneaky.SneakyThrower;
+import javax0.blog.demo.throwable.v4.FileNumberedLineEmpty;
+import javax0.blog.demo.throwable.v4.FileNumberedLinesAreEmpty;
+import javax0.blog.demo.throwable.v4.LineEmpty;
+import javax0.blog.demo.throwable.v4.NumberedLineEmpty;
+import javax0.blog.demo.throwable.v4.NumberedLinesAreEmpty;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Counts the files in two stages connected by a {@link RingBuffer}. The reader threads read the files into pooled
+ * {@link Chunk}s cut at line ends and publish them, the scanner threads count the lines of the chunks and give the
+ * chunks back to the pool. While a reader waits for the disk, the scanners keep the CPU busy and the other way
+ * around. In the steady state nothing is allocated for the file content.
+ * <p>
+ * For a file that is valid UTF-8 and has no lone {@code \r} the result and the exceptions are the same as those of
+ * {@link javax0.blog.demo.throwable.parallel.ProjectWtfCounter}. Other files differ in two ways:
+ * <ul>
+ *     <li>The lines are separated by {@code \n} or {@code \r\n} only. A {@code \r} not followed by {@code \n} is
+ *     part of the line, where {@code ProjectWtfCounter} ends the line. For example {@code "wtf\r\rwtf\n"} is one line
+ *     with two matches here, and three lines with an empty one there.
+ *     <li>The bytes are not decoded. A file that is not valid UTF-8 is counted here, {@code ProjectWtfCounter} reports
+ *     it with a {@link java.nio.charset.MalformedInputException}.
+ * </ul>
+ */
+public class PipelinedProjectWtfCounter {
+    private static final Chunk END = new Chunk(0);
+
+    private final FileLister fileLister;
+    private final WtfMatcher matcher;
+    private int readers = 2;
+    private int scanners = Runtime.getRuntime().availableProcessors();
+    private int bufferSize = 64 * 1024;
+    private int ringSize = 64;
+
+    public PipelinedProjectWtfCounter(FileLister fileLister) {
+        this(fileLister, new WtfMatcher());
+    }
+
+    public PipelinedProjectWtfCounter(FileLister fileLister, WtfMatcher matcher) {
+        this.fileLister = fileLister;
+        this.matcher = matcher;
+    }
+
+    /**
+     * @param readers the number of threads reading the files, more readers help when the storage has a high latency
+     */
+    public PipelinedProjectWtfCounter readers(int readers) {
+        this.readers = positive(readers, "readers");
+        return this;
+    }
+
+    /**
+     * @param scanners the number of threads counting, there is no point to have more than the number of cores
+     */
+    public PipelinedProjectWtfCounter scanners(int scanners) {
+        this.scanners = positive(scanners, "scanners");
+        return this;
+    }
+
+    /**
+     * @param bufferSize the size of a chunk, a line longer than this gets a larger buffer temporarily
+     */
+    public PipelinedProjectWtfCounter bufferSize(int bufferSize) {
+        this.bufferSize = positive(bufferSize, "bufferSize");
+        return this;
+    }
+
+    /**
+     * @param ringSize the number of chunks that can wait for a scanner
+     */
+    public PipelinedProjectWtfCounter ringSize(int ringSize) {
+        this.ringSize = positive(ringSize, "ringSize");
+        return this;
+    }
+
+    private static int positive(int value, String name) {
+        if (value < 1) {
+            throw new IllegalArgumentException(name + " has to be positive, it is " + value);
+        }
+        return value;
+    }
+
+    /**
+     * Open the file for reading. Overridden by the benchmark to simulate slower storage.
+     */
+    protected ReadableByteChannel open(String fileName) throws IOException {
+        return FileChannel.open(Path.of(fileName));
+    }
+
+    private static class ChunkLines {
+        final int sequence;
+        final int lines;
+        final int[] emptyLines;
+
+        ChunkLines(int sequence, int lines, int[] emptyLines) {
+            this.sequence = sequence;
+            this.lines = lines;
+            this.emptyLines = emptyLines;
+        }
+    }
+
+    private static class FileResult {
+        final AtomicInteger count = new AtomicInteger();
+        final Queue<ChunkLines> chunks = new ConcurrentLinkedQueue<>();
+        volatile boolean hasEmptyLines;
+    }
+
+    public int count() throws IOException {
+        final var fileNames = fileLister.list();
+        final var results = new FileResult[fileNames.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = new FileResult();
+        }
+        final var ring = new RingBuffer<Chunk>(ringSize);
+        // every chunk fits into the pool, a reader holds at most two chunks, a scanner one
+        final int chunks = ring.capacity() + 2 * readers + scanners;
+        final var pool = new RingBuffer<Chunk>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            pool.offer(new Chunk(bufferSize));
+        }
+        final var collector = new ExceptionCollector(IOException.class, FileNumberedLineEmpty.class);
+        final var failure = new AtomicReference<Throwable>();
+        final var nextFile = new AtomicInteger();
+        final var readersLeft = new AtomicInteger(readers);
+
+        final var threads = new ArrayList<Thread>();
+        for (int i = 0; i < readers; i++) {
+            threads.add(new Thread(() -> {
+                try {
+                    try {
+                        int file;
+                        while ((file = nextFile.getAndIncrement()) < results.length) {
+                            try {
+                                read(file, fileNames.get(file), ring, pool);
+                            } catch (IOException e) {
+                                collector.collect(e);
+                            } catch (RuntimeException | Error e) {
+                                failure.compareAndSet(null, e);
+                            }
+                        }
+                    } finally {
+                        if (readersLeft.decrementAndGet() == 0) {
+                            for (int k = 0; k < scanners; k++) {
+                                ring.put(END);
+                            }
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    // count() was interrupted and interrupts every stage, nobody waits for the chunks any more
+                }
+            }, "wtf-reader-" + i));
+        }
+        for (int i = 0; i < scanners; i++) {
+            threads.add(new Thread(() -> {
+                try {
+                    Chunk chunk;
+                    while ((chunk = ring.take()) != END) {
+                        try {
+                            scan(chunk, results[chunk.file]);
+                        } catch (RuntimeException | Error e) {
+                            failure.compareAndSet(null, e);
+                        }
+                        recycle(chunk, pool);
+                    }
+                } catch (InterruptedException e) {
+                    // count() was interrupted, see the readers
+                }
+            }, "wtf-scanner-" + i));
+        }
+        threads.forEach(Thread::start);
+        try {
+            for (final var thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            threads.forEach(Thread::interrupt);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Counting was interrupted");
+        }
+        if (failure.get() != null) {
+            throw SneakyThrower.<RuntimeException>throwSneaky(failure.get());
+        }
+
+        int sum = 0;
+        for (int i = 0; i < results.length; i++) {
+            sum += results[i].count.get();
+            if (results[i].hasEmptyLines) {
+                collector.collect(emptyLines(fileNames.get(i), results[i]));
+            }
+        }
+        collector.throwIfAny(IOException.class, () -> new IOException("Some files could not be read"));
+        collector.throwIfAny(FileNumberedLineEmpty.class, FileNumberedLinesAreEmpty::new);
+        return sum;
+    }
+
+    private void read(int file, String fileName, RingBuffer<Chunk> ring, RingBuffer<Chunk> pool)
+            throws IOException, InterruptedException {
+        try (final var channel = open(fileName)) {
+            var chunk = pool.take();
+            try {
+                int filled = 0;
+                int sequence = 0;
+                while (true) {
+                    final int n = channel.read(ByteBuffer.wrap(chunk.buffer, filled, chunk.buffer.length - filled));
+                    if (n == -1) {
+                        break;
+                    }
+                    filled += n;
+                    if (filled == chunk.buffer.length) {
+                        final int cut = lastLineEnd(chunk.buffer, filled);
+                        if (cut == 0) {
+                            chunk.buffer = Arrays.copyOf(chunk.buffer, 2 * chunk.buffer.length);
+                            continue;
+                        }
+                        final var next = pool.take();
+                        final int rest = filled - cut;
+                        if (next.buffer.length < rest) {
+                            next.buffer = new byte[chunk.buffer.length];
+                        }
+                        System.arraycopy(chunk.buffer, cut, next.buffer, 0, rest);
+                        publish(chunk, file, sequence++, cut, ring);
+                        chunk = next;
+                        filled = rest;
+                    }
+                }
+                if (filled > 0) {
+                    publish(chunk, file, sequence, filled, ring);
+                    chunk = null;
+                }
+            } finally {
+                if (chunk != null) {
+                    recycle(chunk, pool);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the position after the last {@code \n}, or zero if there is none
+     */
+    private static int lastLineEnd(byte[] buffer, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static void publish(Chunk chunk, int file, int sequence, int length, RingBuffer<Chunk> ring)
+            throws InterruptedException {
+        chunk.file = file;
+        chunk.sequence = sequence;
+        chunk.length = length;
+        ring.put(chunk);
+    }
+
+    private void recycle(Chunk chunk, RingBuffer<Chunk> pool) throws InterruptedException {
+        if (chunk.buffer.length != bufferSize) {
+            chunk.buffer = new byte[bufferSize];
+        }
+        pool.put(chunk);
+    }
+
+    private void scan(Chunk chunk, FileResult result) {
+        final var buffer = chunk.buffer;
+        final int length = chunk.length;
+        int count = 0;
+        int lines = 0;
+        int[] emptyLines = null;
+        int emptyLineCount = 0;
+        int start = 0;
+        while (start < length) {
+            int end = start;
+            while (end < length && buffer[end] != '\n') {
+                end++;
+            }
+            final int lineEnd = end > start && buffer[end - 1] == '\r' ? end - 1 : end;
+            lines++;
+            if (lineEnd == start) {
+                if (emptyLines == null) {
+                    emptyLines = new int[4];
+                } else if (emptyLineCount == emptyLines.length) {
+                    emptyLines = Arrays.copyOf(emptyLines, 2 * emptyLineCount);
+                }
+                emptyLines[emptyLineCount++] = lines;
+            } else {
+                count += matcher.count(buffer, start, lineEnd);
+            }
+            start = end + 1;
+        }
+        result.count.addAndGet(count);
+        result.chunks.add(new ChunkLines(chunk.sequence, lines,
+                emptyLines == null ? null : Arrays.copyOf(emptyLines, emptyLineCount)));
+        if (emptyLines != null) {
+            result.hasEmptyLines = true;
+        }
+    }
+
+    private static FileNumberedLineEmpty emptyLines(String fileName, FileResult result) {
+        final List<ChunkLines> chunks = new ArrayList<>(result.chunks);
+        chunks.sort(Comparator.comparingInt(c -> c.sequence));
+        final var exception = new NumberedLinesAreEmpty();
+        int firstLine = 0;
+        for (final var chunk : chunks) {
+            if (chunk.emptyLines != null) {
+                for (final int line : chunk.emptyLines) {
+                    exception.addSuppressed(new NumberedLineEmpty(firstLine + line, new LineEmpty()));
+                }
+            }
+            firstLine += chunk.lines;
+        }
+        return new FileNumberedLineEmpty(fileName, exception);
+    }
+}
@@ -0,0 +1,121 @@
+package javax0.blog.demo.throwable.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded lock-free multi-producer multi-consumer queue. Every slot has a sequence number telling whether the
+ * slot is free for the producer of that round or full for the consumer of that round. A producer claims a slot by
+ * advancing the tail, a consumer by advancing the head, neither of them takes a lock.
+ * <p>
+ * {@link #put} and {@link #take} wait by spinning a bit and then parking for a time that doubles up to a
+ * millisecond. There is no wake-up signal, a parked thread polls the buffer again when the park time is over, thus
+ * a stage that waits for a slow disk does not burn a core. Both throw {@link InterruptedException} when the waiting
+ * thread is interrupted.
+ */
+public class RingBuffer<T> {
+    private static final int SPINS = 64;
+    private static final long MIN_PARK_NANOS = 1_000;
+    private static final long MAX_PARK_NANOS = 1_000_000;
+
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param capacity rounded up to a power of two, at least two, because with a single slot the sequence of a full
+     *                 slot would be the same as the sequence of the free slot of the next round
+     */
+    public RingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+        final int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        elements = new Object[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+    }
+
+    public int capacity() {
+        return elements.length;
+    }
+
+    /**
+     * @return {@code false} if the buffer is full
+     */
+    public boolean offer(T element) {
+        long position = tail.get();
+        while (true) {
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[index] = element;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * @return {@code null} if the buffer is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long position = head.get();
+        while (true) {
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    final var element = (T) elements[index];
+                    elements[index] = null;
+                    sequences.lazySet(index, position + mask + 1);
+                    return element;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    public void put(T element) throws InterruptedException {
+        for (int i = 0; !offer(element); i++) {
+            idle(i);
+        }
+    }
+
+    public T take() throws InterruptedException {
+        T element;
+        for (int i = 0; (element = poll()) == null; i++) {
+            idle(i);
+        }
+        return element;
+    }
+
+    private static void idle(int round) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (round < SPINS) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(Math.min(MAX_PARK_NANOS, MIN_PARK_NANOS << Math.min(round - SPINS, 10)));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package javax0.blog.demo.throwable.schedule;
+
+import javax0.blog.demo.throwable.match.WtfMatcher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Counts the lines of a file that start in a byte range. A line that starts before the range belongs to the
+ * previous range and is skipped, a line that starts in the range is read to its end even if that is after the
+ * range. This way the ranges of a file can be counted independently and every line is counted exactly once.
+ * <p>
+ * One instance is used by one thread, the buffers are reused from range to range.
+ */
+class RangeCounter {
+    private static final int[] NO_EMPTY_LINES = new int[0];
+
+    private final WtfMatcher matcher;
+    private final ByteBuffer buffer;
+    private byte[] carry = new byte[256];
+    private int carryLength;
+    private int lines;
+    private int count;
+    private int[] emptyLines = new int[16];
+    private int emptyLineCount;
+
+    RangeCounter(WtfMatcher matcher, int bufferSize) {
+        this.matcher = matcher;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * The lines of a range. The line numbers are relative to the range, the first line that starts in the range is
+     * line 1.
+     */
+    static class Result {
+        final int lines;
+        final int count;
+        final int[] emptyLines;
+
+        Result(int lines, int count, int[] emptyLines) {
+            this.lines = lines;
+            this.count = count;
+            this.emptyLines = emptyLines;
+        }
+    }
+
+    Result count(SeekableByteChannel channel, long start, long end) throws IOException {
+        carryLength = 0;
+        lines = 0;
+        count = 0;
+        emptyLineCount = 0;
+        // the line that started before the range belongs to the previous range
+        boolean skipping = start > 0 && !startsLine(channel, start);
+        channel.position(start);
+        long lineStart = start;
+        long position = start;
+        while (lineStart < end) {
+            buffer.clear();
+            final int n = channel.read(buffer);
+            if (n == -1) {
+                if (carryLength > 0 && !skipping) {
+                    line(carry, 0, carryLength);
+                }
+                break;
+            }
+            final var bytes = buffer.array();
+            int from = 0;
+            for (int i = 0; i < n && lineStart < end; i++) {
+                if (bytes[i] != '\n') {
+                    continue;
+                }
+                if (skipping) {
+                    skipping = false;
+                } else if (carryLength > 0) {
+                    append(bytes, from, i);
+                    line(carry, 0, carryLength);
+                } else {
+                    line(bytes, from, i);
+                }
+                carryLength = 0;
+                from = i + 1;
+                lineStart = position + from;
+            }
+            if (lineStart < end && !skipping) {
+                append(bytes, from, n);
+            }
+            position += n;
+        }
+        return new Result(lines, count, emptyLineCount == 0 ? NO_EMPTY_LINES : Arrays.copyOf(emptyLines, emptyLineCount));
+    }
+
+    private boolean startsLine(SeekableByteChannel channel, long start) throws IOException {
+        final var previous = ByteBuffer.wrap(buffer.array(), 0, 1);
+        return channel.position(start - 1).read(previous) == 1 && buffer.array()[0] == '\n';
+    }
+
+    private void append(byte[] bytes, int from, int to) {
+        final int length = to - from;
+        if (carryLength + length > carry.length) {
+            carry = Arrays.copyOf(carry, Math.max(2 * carry.length, carryLength + length));
+        }
+        System.arraycopy(bytes, from, carry, carryLength, length);
+        carryLength += length;
+    }
+
+    private void line(byte[] bytes, int from, int to) {
+        lines++;
+        if (to > from && bytes[to - 1] == '\r') {
+            to--;
+        }
+        if (to == from) {
+            if (emptyLineCount == emptyLines.length) {
+                emptyLines = Arrays.copyOf(emptyLines, 2 * emptyLineCount);
+            }
+            emptyLines[emptyLineCount++] = lines;
+        } else {
+            count += matcher.count(bytes, from, to);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package javax0.blog.demo.throwable.schedule;
+
+import javax0.blog.demo.throwable.FileLister;
+import javax0.blog.demo.throwable.filter.FilteringFileLister;
+import javax0.blog.demo.throwable.match.WtfMatcher;
+import javax0.blog.demo.throwable.sneaky.ExceptionCollector;
+import javax0.blog.demo.throwable.sneaky.SneakyThrower;
+import javax0.blog.demo.throwable.v4.FileNumberedLineEmpty;
+import javax0.blog.demo.throwable.v4.FileNumberedLinesAreEmpty;
+import javax0.blog.demo.throwable.v4.LineEmpty;
+import javax0.blog.demo.throwable.v4.NumberedLineEmpty;
+import javax0.blog.demo.throwable.v4.NumberedLinesAreEmpty;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Counts the files in parallel scheduling the work by the size of the files. A file larger than the split size is
+ * cut into byte ranges that are counted by different threads, the line numbers of the empty lines are put together
+ * from the line counts of the ranges. The work units are started largest first (LPT scheduling): the small units
+ * at the end fill the gaps, and a large file listed last does not make the other threads wait for it at the end.
+ * <p>
+ * The sizes come from the map given to the constructor, or from {@link FilteringFileLister#sizes()} when the lister
+ * is one. The sizes of the other files are asked from the file system.
+ * <p>
+ * The lines are separated by {@code \n} or {@code \r\n} only and the bytes are not decoded, the same way as in the
+ * {@link javax0.blog.demo.throwable.pipeline.PipelinedProjectWtfCounter}. For a file that is valid UTF-8 and has no
+ * lone {@code \r} the result and the exceptions are the same as those of
+ * {@link javax0.blog.demo.throwable.parallel.ProjectWtfCounter}. A {@code \r} not followed by {@code \n} is part of
+ * the line, {@code ProjectWtfCounter} ends the line there. A file that is not valid UTF-8 is counted,
+ * {@code ProjectWtfCounter} reports it with a {@link java.nio.charset.MalformedInputException}.
+ */
+public class ScheduledProjectWtfCounter {
+    private final FileLister fileLister;
+    private final WtfMatcher matcher;
+    private final Map<String, Long> sizes;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long splitSize = 4 * 1024 * 1024;
+    private int bufferSize = 64 * 1024;
+    private volatile int counted;
+
+    public ScheduledProjectWtfCounter(FileLister fileLister) {
+        this(fileLister, new WtfMatcher());
+    }
+
+    public ScheduledProjectWtfCounter(FileLister fileLister, WtfMatcher matcher) {
+        this(fileLister, matcher, null);
+    }
+
+    /**
+     * @param sizes the sizes of the files known by the caller keyed by the file names, for example from an earlier
+     *              {@link FilteringFileLister#sizes()}. It may contain other files as well.
+     */
+    public ScheduledProjectWtfCounter(FileLister fileLister, WtfMatcher matcher, Map<String, Long> sizes) {
+        this.fileLister = fileLister;
+        this.matcher = matcher;
+        this.sizes = sizes;
+    }
+
+    public ScheduledProjectWtfCounter threads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads has to be positive, it is " + threads);
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * @param splitSize the size of the ranges a larger file is cut into, {@link Long#MAX_VALUE} to count every file
+     *                  as one unit
+     */
+    public ScheduledProjectWtfCounter splitSize(long splitSize) {
+        if (splitSize < 1) {
+            throw new IllegalArgumentException("splitSize has to be positive, it is " + splitSize);
+        }
+        this.splitSize = splitSize;
+        return this;
+    }
+
+    public ScheduledProjectWtfCounter bufferSize(int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize has to be positive, it is " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
+    /**
+     * Open the file for reading. Overridden by the benchmark to simulate slower storage.
+     */
+    protected SeekableByteChannel open(String fileName) throws IOException {
+        return Files.newByteChannel(Path.of(fileName));
+    }
+
+    /**
+     * A byte range of a file, the unit of the scheduling.
+     */
+    private static class Task {
+        final int file;
+        final int range;
+        final long start;
+        final long end;
+
+        Task(int file, int range, long start, long end) {
+            this.file = file;
+            this.range = range;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private static class FileResult {
+        final RangeCounter.Result[] ranges;
+        final AtomicReference<IOException> failure = new AtomicReference<>();
+
+        FileResult(int ranges) {
+            this.ranges = new RangeCounter.Result[ranges];
+        }
+    }
+
+    /**
+     * @return the matches found by the last {@link #count()}, also when it threw because of empty lines. A file that
+     * has empty lines counts zero, the same way as in {@link javax0.blog.demo.throwable.parallel.ProjectWtfCounter}.
+     * The files that could not be read are not included.
+     */
+    public int counted() {
+        return counted;
+    }
+
+    public int count() throws IOException {
+        counted = 0;
+        final var fileNames = fileLister.list();
+        final Map<String, Long> knownSizes = sizes != null ? sizes
+                : fileLister instanceof FilteringFileLister ? ((FilteringFileLister) fileLister).sizes() : Map.of();
+        final var collector = new ExceptionCollector(IOException.class, FileNumberedLineEmpty.class);
+        final var results = new FileResult[fileNames.size()];
+        final var tasks = new ArrayList<Task>();
+        for (int i = 0; i < results.length; i++) {
+            final var fileName = fileNames.get(i);
+            final long size;
+            try {
+                final var known = knownSizes.get(fileName);
+                size = known != null ? known : Files.size(Path.of(fileName));
+            } catch (IOException e) {
+                collector.collect(e);
+                continue;
+            }
+            final int ranges = (int) Math.max(1, (size + splitSize - 1) / splitSize);
+            results[i] = new FileResult(ranges);
+            for (int r = 0; r < ranges; r++) {
+                tasks.add(new Task(i, r, r * splitSize, r == ranges - 1 ? size : (r + 1) * splitSize));
+            }
+        }
+        tasks.sort(Comparator.comparingLong((Task t) -> t.end - t.start).reversed());
+
+        final var failure = new AtomicReference<Throwable>();
+        final var next = new AtomicInteger();
+        final var workers = new ArrayList<Thread>();
+        for (int i = 0; i < Math.min(threads, tasks.size()); i++) {
+            workers.add(new Thread(() -> {
+                final var counter = new RangeCounter(matcher, bufferSize);
+                int t;
+                while ((t = next.getAndIncrement()) < tasks.size()) {
+                    final var task = tasks.get(t);
+                    final var result = results[task.file];
+                    try (final var channel = open(fileNames.get(task.file))) {
+                        result.ranges[task.range] = counter.count(channel, task.start, task.end);
+                    } catch (IOException e) {
+                        result.failure.compareAndSet(null, e);
+                    } catch (RuntimeException | Error e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            }, "wtf-worker-" + i));
+        }
+        workers.forEach(Thread::start);
+        try {
+            for (final var worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            workers.forEach(Thread::interrupt);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Counting was interrupted");
+        }
+        if (failure.get() != null) {
+            throw SneakyThrower.<RuntimeException>throwSneaky(failure.get());
+        }
+
+        int sum = 0;
+        for (int i = 0; i < results.length; i++) {
+            final var result = results[i];
+            if (result == null) {
+                continue;
+            }
+            if (result.failure.get() != null) {
+                collector.collect(result.failure.get());
+                continue;
+            }
+            NumberedLinesAreEmpty emptyLines = null;
+            int count = 0;
+            int firstLine = 0;
+            for (final var range : result.ranges) {
+                count += range.count;
+                for (final int line : range.emptyLines) {
+                    if (emptyLines == null) {
+                        emptyLines = new NumberedLinesAreEmpty();
+                    }
+                    emptyLines.addSuppressed(new NumberedLineEmpty(firstLine + line, new LineEmpty()));
+                }
+                firstLine += range.lines;
+            }
+            if (emptyLines != null) {
+                collector.collect(new FileNumberedLineEmpty(fileNames.get(i), emptyLines));
+            } else {
+                sum += count;
+            }
+        }
+        counted = sum;
+        collector.throwIfAny(IOException.class, () -> new IOException("Some files could not be read"));
+        collector.throwIfAny(FileNumberedLineEmpty.class, FileNumberedLinesAreEmpty::new);
+        return sum;
+    }
+}
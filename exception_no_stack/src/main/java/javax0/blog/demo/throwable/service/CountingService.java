@@ -0,0 +1,161 @@
+package javax0.blog.demo.throwable.service;
+
+import javax0.blog.demo.throwable.filter.FilteringFileLister;
+import javax0.blog.demo.throwable.filter.PathFilter;
+import javax0.blog.demo.throwable.match.WtfMatcher;
+import javax0.blog.demo.throwable.parallel.FileReader;
+import javax0.blog.demo.throwable.parallel.FileWtfCounter;
+import javax0.blog.demo.throwable.sneaky.ExceptionCollector;
+import javax0.blog.demo.throwable.v4.NumberedLinesAreEmpty;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Counts the projects for the {@link WtfServer} and remembers the result of every file. A file is counted again
+ * only when its size or modification time changed since it was counted with the same matcher options, the same
+ * check as {@link javax0.blog.demo.throwable.index.WtfIndexer#update(Path)} does. The cache is shared by the
+ * concurrent requests.
+ * <p>
+ * The files are listed the same way as by the {@link javax0.blog.demo.throwable.cli.WtfCli}. A file that has
+ * empty lines counts zero in the total, the same way as in the counters that throw.
+ */
+public class CountingService {
+    private static final List<String> DEFAULT_EXCLUDES = List.of(".git", "target", ".wtf-index*");
+
+    private final ConcurrentHashMap<CacheKey, CachedFile> cache = new ConcurrentHashMap<>();
+    private int maxCachedFiles = 1_000_000;
+
+    /**
+     * @param maxCachedFiles the cache is dropped when it grows larger, it fills up again with the next requests
+     */
+    public CountingService maxCachedFiles(int maxCachedFiles) {
+        if (maxCachedFiles < 0) {
+            throw new IllegalArgumentException("maxCachedFiles cannot be negative, it is " + maxCachedFiles);
+        }
+        this.maxCachedFiles = maxCachedFiles;
+        return this;
+    }
+
+    public int cachedFiles() {
+        return cache.size();
+    }
+
+    private static class CacheKey {
+        final String fileName;
+        final boolean ignoreCase;
+        final boolean wholeWord;
+
+        CacheKey(String fileName, boolean ignoreCase, boolean wholeWord) {
+            this.fileName = fileName;
+            this.ignoreCase = ignoreCase;
+            this.wholeWord = wholeWord;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            final var other = (CacheKey) o;
+            return ignoreCase == other.ignoreCase && wholeWord == other.wholeWord && fileName.equals(other.fileName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fileName, ignoreCase, wholeWord);
+        }
+    }
+
+    /**
+     * The result of a file and the size and modification time of the file when it was counted.
+     */
+    private static class CachedFile {
+        final String fileName;
+        final long size;
+        final long lastModified;
+        final int count;
+        final int[] emptyLines;
+        final boolean cached;
+
+        CachedFile(String fileName, long size, long lastModified, int count, int[] emptyLines, boolean cached) {
+            this.fileName = fileName;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.count = count;
+            this.emptyLines = emptyLines;
+            this.cached = cached;
+        }
+    }
+
+    /**
+     * @param excludes glob patterns of files and directories to skip, on top of {@code .git}, {@code target} and
+     *                 the index files
+     */
+    public Report count(Path root, List<String> excludes, boolean ignoreCase, boolean wholeWord) throws IOException {
+        if (!Files.isDirectory(root)) {
+            throw new IllegalArgumentException(root + " is not a directory");
+        }
+        final var allExcludes = new ArrayList<>(DEFAULT_EXCLUDES);
+        allExcludes.addAll(excludes);
+        final var lister = new FilteringFileLister(root, new PathFilter()
+                .exclude(allExcludes.toArray(String[]::new))
+                .gitIgnore()
+                .ignoreBinary());
+        final var matcher = new WtfMatcher();
+        if (ignoreCase) {
+            matcher.ignoreCase();
+        }
+        if (wholeWord) {
+            matcher.wholeWord();
+        }
+        final var collector = new ExceptionCollector(IOException.class);
+        final var files = lister.list().parallelStream()
+                .map(collector.function(fileName -> file(fileName, matcher, ignoreCase, wholeWord), null))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        collector.throwIfAny(IOException.class, () -> new IOException("Some files could not be read"));
+        int total = 0;
+        int cached = 0;
+        final var emptyLines = new HashMap<String, int[]>();
+        for (final var file : files) {
+            total += file.count;
+            cached += file.cached ? 1 : 0;
+            if (file.emptyLines != null) {
+                emptyLines.put(file.fileName, file.emptyLines);
+            }
+        }
+        return new Report(total, files.size(), cached, emptyLines);
+    }
+
+    private CachedFile file(String fileName, WtfMatcher matcher, boolean ignoreCase, boolean wholeWord) throws IOException {
+        final var attributes = Files.readAttributes(Path.of(fileName), BasicFileAttributes.class);
+        final long size = attributes.size();
+        final long lastModified = attributes.lastModifiedTime().toMillis();
+        final var key = new CacheKey(fileName, ignoreCase, wholeWord);
+        final var previous = cache.get(key);
+        if (previous != null && previous.size == size && previous.lastModified == lastModified) {
+            return new CachedFile(fileName, size, lastModified, previous.count, previous.emptyLines, true);
+        }
+        CachedFile counted;
+        try {
+            final int count = new FileWtfCounter(new FileReader(fileName), matcher).count();
+            counted = new CachedFile(fileName, size, lastModified, count, null, false);
+        } catch (NumberedLinesAreEmpty nle) {
+            counted = new CachedFile(fileName, size, lastModified, 0, nle.getLineNumbers(), false);
+        }
+        if (cache.size() >= maxCachedFiles) {
+            cache.clear();
+        }
+        cache.put(key, counted);
+        return counted;
+    }
+}
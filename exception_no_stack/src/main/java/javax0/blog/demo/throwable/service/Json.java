@@ -0,0 +1,158 @@
+package javax0.blog.demo.throwable.service;
+
+import java.util.Arrays;
+
+/**
+ * The little JSON the service needs: writing strings, and reading the objects, strings and integer arrays of a
+ * {@link Report} or an error. It is not a general JSON parser, there are no floats, booleans or nulls. The quoting is
+ * public, the command line writes its JSON output with it.
+ */
+public class Json {
+    private final String json;
+    private int position = 0;
+
+    Json(String json) {
+        this.json = json;
+    }
+
+    public static void quote(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                case '\\':
+                    sb.append('\\').append(c);
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    public static String quote(String s) {
+        final var sb = new StringBuilder(s.length() + 2);
+        quote(sb, s);
+        return sb.toString();
+    }
+
+    void expect(char c) {
+        if (!skip(c)) {
+            throw error("'" + c + "'");
+        }
+    }
+
+    /**
+     * @return {@code true} if the next non-space character was {@code c} and it was consumed
+     */
+    boolean skip(char c) {
+        skipWhitespace();
+        if (position < json.length() && json.charAt(position) == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    String string() {
+        expect('"');
+        final var sb = new StringBuilder();
+        while (position < json.length()) {
+            final char c = json.charAt(position++);
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (position >= json.length()) {
+                break;
+            }
+            final char escaped = json.charAt(position++);
+            switch (escaped) {
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'u':
+                    if (position + 4 > json.length()) {
+                        throw error("four hex digits");
+                    }
+                    sb.append((char) Integer.parseInt(json.substring(position, position + 4), 16));
+                    position += 4;
+                    break;
+                default:
+                    sb.append(escaped);
+            }
+        }
+        throw error("the end of the string");
+    }
+
+    int integer() {
+        skipWhitespace();
+        final int start = position;
+        if (position < json.length() && json.charAt(position) == '-') {
+            position++;
+        }
+        while (position < json.length() && Character.isDigit(json.charAt(position))) {
+            position++;
+        }
+        try {
+            return Integer.parseInt(json.substring(start, position));
+        } catch (NumberFormatException e) {
+            throw error("an integer");
+        }
+    }
+
+    int[] integers() {
+        expect('[');
+        var values = new int[8];
+        int n = 0;
+        if (!skip(']')) {
+            do {
+                if (n == values.length) {
+                    values = Arrays.copyOf(values, 2 * n);
+                }
+                values[n++] = integer();
+            } while (skip(','));
+            expect(']');
+        }
+        return Arrays.copyOf(values, n);
+    }
+
+    private void skipWhitespace() {
+        while (position < json.length() && Character.isWhitespace(json.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(String expected) {
+        return new IllegalArgumentException("Expected " + expected + " at position " + position + " of the JSON");
+    }
+}
@@ -0,0 +1,117 @@
+package javax0.blog.demo.throwable.service;
+
+import javax0.blog.demo.throwable.v4.FileNumberedLineEmpty;
+import javax0.blog.demo.throwable.v4.FileNumberedLinesAreEmpty;
+import javax0.blog.demo.throwable.v4.LineEmpty;
+import javax0.blog.demo.throwable.v4.NumberedLineEmpty;
+import javax0.blog.demo.throwable.v4.NumberedLinesAreEmpty;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The result of a count of the {@link CountingService}: the total, the number of files, how many of them were
+ * served from the cache and the empty lines of the files. It travels as JSON between the {@link WtfServer} and the
+ * {@link WtfClient}, for example
+ * <pre>
+ *   {"total":12,"files":3,"cached":2,"emptyLines":{"/p/a.txt":[3],"/p/b.txt":[2,5]}}
+ * </pre>
+ * The empty lines carry the same information as the {@link FileNumberedLinesAreEmpty} structure a
+ * {@link javax0.blog.demo.throwable.parallel.ProjectWtfCounter} throws, {@link #throwIfEmptyLines()} rebuilds it.
+ */
+public class Report {
+    public final int total;
+    public final int files;
+    public final int cached;
+    /**
+     * The line numbers of the empty lines keyed by the file names, only the files that have empty lines.
+     */
+    public final Map<String, int[]> emptyLines;
+
+    Report(int total, int files, int cached, Map<String, int[]> emptyLines) {
+        this.total = total;
+        this.files = files;
+        this.cached = cached;
+        this.emptyLines = Collections.unmodifiableMap(new TreeMap<>(emptyLines));
+    }
+
+    /**
+     * Throw the same structure as the counters do if there is any empty line. The stack traces of the exceptions
+     * point to this method, the original ones stayed in the server.
+     */
+    public void throwIfEmptyLines() {
+        if (emptyLines.isEmpty()) {
+            return;
+        }
+        final var exception = new FileNumberedLinesAreEmpty();
+        for (final var entry : emptyLines.entrySet()) {
+            final var lines = new NumberedLinesAreEmpty();
+            for (final int line : entry.getValue()) {
+                lines.addSuppressed(new NumberedLineEmpty(line, new LineEmpty()));
+            }
+            exception.addSuppressed(new FileNumberedLineEmpty(entry.getKey(), lines));
+        }
+        throw exception;
+    }
+
+    String toJson() {
+        final var sb = new StringBuilder();
+        sb.append("{\"total\":").append(total)
+                .append(",\"files\":").append(files)
+                .append(",\"cached\":").append(cached)
+                .append(",\"emptyLines\":{");
+        String separator = "";
+        for (final var entry : emptyLines.entrySet()) {
+            sb.append(separator);
+            Json.quote(sb, entry.getKey());
+            sb.append(":[");
+            final var lines = entry.getValue();
+            for (int i = 0; i < lines.length; i++) {
+                sb.append(i == 0 ? "" : ",").append(lines[i]);
+            }
+            sb.append(']');
+            separator = ",";
+        }
+        return sb.append("}}").toString();
+    }
+
+    static Report fromJson(String json) {
+        final var parser = new Json(json);
+        int total = 0;
+        int files = 0;
+        int cached = 0;
+        final var emptyLines = new TreeMap<String, int[]>();
+        parser.expect('{');
+        do {
+            final var key = parser.string();
+            parser.expect(':');
+            switch (key) {
+                case "total":
+                    total = parser.integer();
+                    break;
+                case "files":
+                    files = parser.integer();
+                    break;
+                case "cached":
+                    cached = parser.integer();
+                    break;
+                case "emptyLines":
+                    parser.expect('{');
+                    if (!parser.skip('}')) {
+                        do {
+                            final var file = parser.string();
+                            parser.expect(':');
+                            emptyLines.put(file, parser.integers());
+                        } while (parser.skip(','));
+                        parser.expect('}');
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unexpected key '" + key + "' in the report");
+            }
+        } while (parser.skip(','));
+        parser.expect('}');
+        return new Report(total, files, cached, emptyLines);
+    }
+}
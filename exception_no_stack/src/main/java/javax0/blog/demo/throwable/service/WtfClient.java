@@ -0,0 +1,121 @@
+package javax0.blog.demo.throwable.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Asks a {@link WtfServer} on the same machine to count a project. {@link #count(Path)} behaves as
+ * {@link javax0.blog.demo.throwable.parallel.ProjectWtfCounter#count()}: it returns the total or throws a
+ * {@link javax0.blog.demo.throwable.v4.FileNumberedLinesAreEmpty} rebuilt from the {@link Report}.
+ * <p>
+ * The client reads the token of the server from the token file of the port, see {@link WtfServer#tokenFile(Path, int)}.
+ */
+public class WtfClient {
+    private final int port;
+    private Path tokenDirectory = WtfServer.defaultTokenDirectory();
+    private boolean ignoreCase = false;
+    private boolean wholeWord = false;
+    private final List<String> excludes = new ArrayList<>();
+
+    public WtfClient(int port) {
+        this.port = port;
+    }
+
+    public WtfClient tokenDirectory(Path tokenDirectory) {
+        this.tokenDirectory = tokenDirectory;
+        return this;
+    }
+
+    public WtfClient ignoreCase() {
+        ignoreCase = true;
+        return this;
+    }
+
+    public WtfClient wholeWord() {
+        wholeWord = true;
+        return this;
+    }
+
+    public WtfClient exclude(String... globs) {
+        excludes.addAll(List.of(globs));
+        return this;
+    }
+
+    public int count(Path root) throws IOException {
+        final var report = report(root);
+        report.throwIfEmptyLines();
+        return report.total;
+    }
+
+    public Report report(Path root) throws IOException {
+        final var query = new StringBuilder("path=").append(encode(root.toAbsolutePath().normalize().toString()));
+        if (ignoreCase) {
+            query.append("&ignoreCase=true");
+        }
+        if (wholeWord) {
+            query.append("&wholeWord=true");
+        }
+        for (final var exclude : excludes) {
+            query.append("&exclude=").append(encode(exclude));
+        }
+        final var url = new URL("http", InetAddress.getLoopbackAddress().getHostAddress(), port, "/count?" + query);
+        final var connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestProperty("Authorization", "Bearer " + token());
+        try {
+            final int status = connection.getResponseCode();
+            final var body = read(status == 200 ? connection.getInputStream() : connection.getErrorStream());
+            if (status != 200) {
+                throw new IOException("The server answered " + status + ": " + error(body));
+            }
+            return Report.fromJson(body);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private String token() throws IOException {
+        final var file = WtfServer.tokenFile(tokenDirectory, port);
+        try {
+            return Files.readString(file).strip();
+        } catch (NoSuchFileException e) {
+            throw new IOException("There is no server running on port " + port + ", " + file + " does not exist", e);
+        }
+    }
+
+    private static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8);
+    }
+
+    private static String read(InputStream in) throws IOException {
+        if (in == null) {
+            return "";
+        }
+        try (in) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String error(String body) {
+        try {
+            final var parser = new Json(body);
+            parser.expect('{');
+            if (parser.string().equals("error")) {
+                parser.expect(':');
+                return parser.string();
+            }
+        } catch (IllegalArgumentException e) {
+            // not the JSON of an error, the body is shown as it is
+        }
+        return body;
+    }
+}
@@ -0,0 +1,304 @@
+package javax0.blog.demo.throwable.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A resident counting service on the loopback interface. A JVM started for one count spends the count in the
+ * interpreter and C1, a resident one has the hot code compiled by C2 and keeps the results of the files that did
+ * not change since the last request, see {@link CountingService}. The requests are served concurrently.
+ * <pre>
+ *   GET /count?path=/abs/project[&amp;ignoreCase=true][&amp;wholeWord=true][&amp;exclude=glob]...
+ *   Authorization: Bearer token
+ * </pre>
+ * The response is the JSON of a {@link Report} with status 200, or {@code {"error":"..."}} with status 400 for a
+ * wrong request and 500 for a read error. {@link WtfClient} speaks this protocol.
+ * <p>
+ * The service reads files with the rights of the user running it, thus it listens only on the loopback interface
+ * and it does not trust the other processes of the machine either:
+ * <ul>
+ *     <li>{@link #start()} generates a random token and writes it into a file readable only by the user, see
+ *     {@link #tokenFile(Path, int)}. A request without the token is answered with 401.</li>
+ *     <li>A request with a {@code Host} header other than {@code localhost}, {@code 127.0.0.1} or {@code [::1]}
+ *     with the port of the server is answered with 403. A web page in a browser on the machine can make the
+ *     browser send a request to the loopback interface, but only with the host name of the page.</li>
+ *     <li>Only the directories given to {@link #allow(Path...)} and the directories in them can be counted, other
+ *     paths are answered with 403.</li>
+ * </ul>
+ * <p>
+ * Start it with {@code java -cp demo-exception_no_stack.jar javax0.blog.demo.throwable.service.WtfServer [port]
+ * [directory]...}, the default directory is the current working directory.
+ */
+public class WtfServer {
+    public static final int DEFAULT_PORT = 7357;
+
+    private final int port;
+    private final CountingService service;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private final List<Path> directories = new ArrayList<>();
+    private Path tokenDirectory = defaultTokenDirectory();
+    private HttpServer server;
+    private ExecutorService executor;
+    private List<Path> allowed;
+    private List<String> hosts;
+    private byte[] authorization;
+    private Path tokenFile;
+
+    /**
+     * @param port the port to listen on, zero to get a free one, see {@link #start()}
+     */
+    public WtfServer(int port, CountingService service) {
+        this.port = port;
+        this.service = service;
+    }
+
+    /**
+     * @return the directory of the token files unless {@link #tokenDirectory(Path)} says otherwise, {@code .wtf}
+     * in the home directory of the user
+     */
+    public static Path defaultTokenDirectory() {
+        return Path.of(System.getProperty("user.home"), ".wtf");
+    }
+
+    /**
+     * @return the file the server listening on the port writes its token into
+     */
+    public static Path tokenFile(Path tokenDirectory, int port) {
+        return tokenDirectory.resolve("server-" + port + ".token");
+    }
+
+    /**
+     * @param directories the directories the clients may count, together with the directories in them
+     */
+    public WtfServer allow(Path... directories) {
+        this.directories.addAll(List.of(directories));
+        return this;
+    }
+
+    public WtfServer tokenDirectory(Path tokenDirectory) {
+        this.tokenDirectory = tokenDirectory;
+        return this;
+    }
+
+    /**
+     * @param threads the number of requests served at the same time, the files of a request are counted in
+     *                parallel anyway
+     */
+    public WtfServer threads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads has to be positive, it is " + threads);
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int start() throws IOException {
+        if (directories.isEmpty()) {
+            throw new IllegalStateException("No directory is allowed to be counted");
+        }
+        allowed = new ArrayList<>();
+        for (final var directory : directories) {
+            allowed.add(directory.toRealPath());
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        final int boundPort = server.getAddress().getPort();
+        hosts = List.of("localhost:" + boundPort, "127.0.0.1:" + boundPort, "[::1]:" + boundPort);
+        final var random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        final var token = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+        authorization = ("Bearer " + token).getBytes(StandardCharsets.US_ASCII);
+        tokenFile = tokenFile(tokenDirectory, boundPort);
+        try {
+            writeToken(tokenFile, token);
+        } catch (IOException e) {
+            server.stop(0);
+            server = null;
+            throw e;
+        }
+        executor = Executors.newFixedThreadPool(threads, r -> {
+            final var thread = new Thread(r, "wtf-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/count", this::count);
+        server.start();
+        return boundPort;
+    }
+
+    /**
+     * Writes the token into a new file, readable and writable only by the owner where the file system knows POSIX
+     * permissions. A file left by an earlier server on the same port is replaced.
+     */
+    private static void writeToken(Path file, String token) throws IOException {
+        Files.createDirectories(file.getParent(), permissions("rwx------"));
+        Files.deleteIfExists(file);
+        Files.createFile(file, permissions("rw-------"));
+        Files.writeString(file, token);
+    }
+
+    private static FileAttribute<?>[] permissions(String permissions) {
+        if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            return new FileAttribute<?>[0];
+        }
+        final var posix = PosixFilePermissions.fromString(permissions);
+        return new FileAttribute<?>[]{PosixFilePermissions.asFileAttribute(posix)};
+    }
+
+    /**
+     * Stops the server and deletes its token file. Does nothing when the server was not started, its start failed or
+     * it was already stopped.
+     */
+    public void stop() {
+        if (server == null) {
+            return;
+        }
+        server.stop(0);
+        server = null;
+        executor.shutdown();
+        try {
+            Files.deleteIfExists(tokenFile);
+        } catch (IOException e) {
+            // the token is worthless without the server, a left over file is replaced by the next start
+        }
+    }
+
+    private void count(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            final var host = exchange.getRequestHeaders().getFirst("Host");
+            if (host == null || !hosts.contains(host.toLowerCase())) {
+                respond(exchange, 403, error("The Host header has to be the loopback interface"));
+                return;
+            }
+            final var authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            if (authorization == null
+                    || !MessageDigest.isEqual(authorization.getBytes(StandardCharsets.US_ASCII), this.authorization)) {
+                respond(exchange, 401, error("The token of the server is missing or wrong"));
+                return;
+            }
+            if (!exchange.getRequestMethod().equals("GET")) {
+                respond(exchange, 405, error("Only GET is supported"));
+                return;
+            }
+            String path = null;
+            boolean ignoreCase = false;
+            boolean wholeWord = false;
+            final List<String> excludes = new ArrayList<>();
+            final var query = exchange.getRequestURI().getRawQuery();
+            for (final var parameter : query == null ? new String[0] : query.split("&")) {
+                final int eq = parameter.indexOf('=');
+                final var name = eq == -1 ? parameter : parameter.substring(0, eq);
+                final var value = eq == -1 ? "" : URLDecoder.decode(parameter.substring(eq + 1), StandardCharsets.UTF_8);
+                switch (name) {
+                    case "path":
+                        path = value;
+                        break;
+                    case "ignoreCase":
+                        ignoreCase = Boolean.parseBoolean(value);
+                        break;
+                    case "wholeWord":
+                        wholeWord = Boolean.parseBoolean(value);
+                        break;
+                    case "exclude":
+                        excludes.add(value);
+                        break;
+                    default:
+                        respond(exchange, 400, error("Unknown parameter '" + name + "'"));
+                        return;
+                }
+            }
+            if (path == null) {
+                respond(exchange, 400, error("The path parameter is missing"));
+                return;
+            }
+            final Report report;
+            try {
+                final var root = Path.of(path);
+                if (!root.isAbsolute()) {
+                    respond(exchange, 400, error("The path " + path + " is not absolute"));
+                    return;
+                }
+                if (!isAllowed(root)) {
+                    respond(exchange, 403, error("The path " + path + " is not in the directories served"));
+                    return;
+                }
+                report = service.count(root, excludes, ignoreCase, wholeWord);
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, error(e.getMessage()));
+                return;
+            } catch (IOException | UncheckedIOException e) {
+                respond(exchange, 500, error(e.getMessage()));
+                return;
+            }
+            respond(exchange, 200, report.toJson());
+        }
+    }
+
+    /**
+     * The path is allowed if it is in one of the allowed directories, and also its real path is if it exists. A
+     * path that does not exist is let through to get the same error as without the check.
+     */
+    private boolean isAllowed(Path root) throws IOException {
+        if (!isInAllowed(root.normalize())) {
+            return false;
+        }
+        return !Files.exists(root) || isInAllowed(root.toRealPath());
+    }
+
+    private boolean isInAllowed(Path path) {
+        for (final var directory : allowed) {
+            if (path.startsWith(directory)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + Json.quote(String.valueOf(message)) + "}";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        final var body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    public static void main(String[] args) throws IOException {
+        final int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        final var server = new WtfServer(port, new CountingService());
+        if (args.length > 1) {
+            for (int i = 1; i < args.length; i++) {
+                server.allow(Path.of(args[i]));
+            }
+        } else {
+            server.allow(Path.of(""));
+        }
+        final int boundPort = server.start();
+        System.out.println("Counting on http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + boundPort
+                + ", the token is in " + tokenFile(server.tokenDirectory, boundPort));
+    }
+}
@@ -0,0 +1,100 @@
+package javax0.blog.demo.throwable.sneaky;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Collects the exceptions thrown by the lambdas of a (parallel) stream so that the processing of the other
+ * elements can go on. Only the exceptions of the given kinds are collected, anything else is propagated.
+ * At the end of the processing {@link #throwIfAny(Class, Supplier)} throws one exception that has all the
+ * collected exceptions as suppressed.
+ * <p>
+ * The adapters are allocated once for the stream. Applying them does not allocate as long as no exception is
+ * thrown.
+ */
+public class ExceptionCollector {
+    private final List<Class<? extends Exception>> kinds;
+    private final Queue<Throwable> collected = new ConcurrentLinkedQueue<>();
+
+    @SafeVarargs
+    public ExceptionCollector(Class<? extends Exception>... kinds) {
+        // the elements are copied one by one, handing the varargs array itself over would be flagged by
+        // -Xlint:varargs even with @SafeVarargs
+        final var copy = new ArrayList<Class<? extends Exception>>(kinds.length);
+        for (final var kind : kinds) {
+            copy.add(kind);
+        }
+        this.kinds = List.copyOf(copy);
+    }
+
+    public <T, R> Function<T, R> function(ThrowingFunction<T, R, ?> f, R fallback) {
+        return t -> {
+            try {
+                return f.apply(t);
+            } catch (Exception e) {
+                collect(e);
+                return fallback;
+            }
+        };
+    }
+
+    public <T> ToIntFunction<T> toIntFunction(ThrowingToIntFunction<T, ?> f, int fallback) {
+        return t -> {
+            try {
+                return f.applyAsInt(t);
+            } catch (Exception e) {
+                collect(e);
+                return fallback;
+            }
+        };
+    }
+
+    public <T> Consumer<T> consumer(ThrowingConsumer<T, ?> c) {
+        return t -> {
+            try {
+                c.accept(t);
+            } catch (Exception e) {
+                collect(e);
+            }
+        };
+    }
+
+    public void collect(Exception e) {
+        for (final var kind : kinds) {
+            if (kind.isInstance(e)) {
+                collected.add(e);
+                return;
+            }
+        }
+        throw SneakyThrower.<RuntimeException>throwSneaky(e);
+    }
+
+    public boolean isEmpty() {
+        return collected.isEmpty();
+    }
+
+    /**
+     * Throw the exception created by {@code top} if there was any collected exception of the given kind.
+     * The collected exceptions of the kind are added to it as suppressed exceptions.
+     */
+    public <X extends Throwable> void throwIfAny(Class<? extends Throwable> kind, Supplier<X> top) throws X {
+        X exception = null;
+        for (final var t : collected) {
+            if (kind.isInstance(t)) {
+                if (exception == null) {
+                    exception = top.get();
+                }
+                exception.addSuppressed(t);
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package javax0.blog.demo.throwable.sneaky;
+
+import java.util.function.Consumer;
+
+@FunctionalInterface
+public interface ThrowingConsumer<T, E extends Exception> {
+    void accept(T t) throws E;
+
+    /**
+     * Same as {@link ThrowingFunction#sneaky(ThrowingFunction)} for consumers.
+     */
+    static <T> Consumer<T> sneaky(ThrowingConsumer<T, ?> c) {
+        return t -> {
+            try {
+                c.accept(t);
+            } catch (Exception e) {
+                throw SneakyThrower.<RuntimeException>throwSneaky(e);
+            }
+        };
+    }
+}
@@ -0,0 +1,22 @@
+package javax0.blog.demo.throwable.sneaky;
+
+import java.util.function.Function;
+
+@FunctionalInterface
+public interface ThrowingFunction<T, R, E extends Exception> {
+    R apply(T t) throws E;
+
+    /**
+     * Convert the function to a {@link Function} that throws the checked exception sneaky. The conversion
+     * allocates the returned lambda once, calling it does not allocate anything unless an exception is thrown.
+     */
+    static <T, R> Function<T, R> sneaky(ThrowingFunction<T, R, ?> f) {
+        return t -> {
+            try {
+                return f.apply(t);
+            } catch (Exception e) {
+                throw SneakyThrower.<RuntimeException>throwSneaky(e);
+            }
+        };
+    }
+}
@@ -0,0 +1,21 @@
+package javax0.blog.demo.throwable.sneaky;
+
+import java.util.function.ToIntFunction;
+
+@FunctionalInterface
+public interface ThrowingToIntFunction<T, E extends Exception> {
+    int applyAsInt(T t) throws E;
+
+    /**
+     * Same as {@link ThrowingFunction#sneaky(ThrowingFunction)} but without boxing the result.
+     */
+    static <T> ToIntFunction<T> sneaky(ThrowingToIntFunction<T, ?> f) {
+        return t -> {
+            try {
+                return f.applyAsInt(t);
+            } catch (Exception e) {
+                throw SneakyThrower.<RuntimeException>throwSneaky(e);
+            }
+        };
+    }
+}
@@ -0,0 +1,237 @@
+package javax0.blog.demo.throwable.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per file counting results stored outside of the Java heap. There is a fixed width record for each file and a
+ * variable length region that holds the file names and the numbers of the empty lines. A store contains no
+ * Java objects per file, thus millions of results do not load the garbage collector.
+ * <p>
+ * Several threads can {@link #append} concurrently, each append reserves its own record and its own part of the
+ * variable region. The results have to be read after the appending threads have finished.
+ * <p>
+ * The saved file has the same layout as the memory, thus a saved store is memory-mapped by {@link #map(Path)}
+ * without any deserialization.
+ */
+public class ResultStore {
+    private static final int MAGIC = 0x57544653; // "WTFS"
+    private static final int VERSION = 1;
+
+    // header: magic, version, record count, padding, variable region length
+    private static final int HEADER_SIZE = 24;
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_RECORDS = 8;
+    private static final int H_VARIABLE_LENGTH = 16;
+
+    // record: count, number of empty lines, offset of the empty line numbers, offset and length of the file name
+    static final int RECORD_SIZE = 32;
+    private static final int R_COUNT = 0;
+    private static final int R_EMPTY_COUNT = 4;
+    private static final int R_EMPTY_OFFSET = 8;
+    private static final int R_NAME_OFFSET = 16;
+    private static final int R_NAME_LENGTH = 24;
+
+    private final ByteBuffer records;
+    private final ByteBuffer variable;
+    private final boolean readOnly;
+    private final AtomicInteger recordCount;
+    private final AtomicLong variableLength;
+
+    private ResultStore(ByteBuffer records, ByteBuffer variable, int recordCount, long variableLength, boolean readOnly) {
+        this.records = records;
+        this.variable = variable;
+        this.recordCount = new AtomicInteger(recordCount);
+        this.variableLength = new AtomicLong(variableLength);
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * @param maxFiles      the number of records the store can hold
+     * @param variableBytes the size of the region holding the file names and the empty line numbers
+     */
+    public static ResultStore allocate(int maxFiles, int variableBytes) {
+        return new ResultStore(ByteBuffer.allocateDirect(Math.multiplyExact(maxFiles, RECORD_SIZE)),
+                ByteBuffer.allocateDirect(variableBytes), 0, 0, false);
+    }
+
+    /**
+     * Map a saved store into memory. The returned store is read only.
+     */
+    public static ResultStore map(Path file) throws IOException {
+        try (final var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final var mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.capacity() < HEADER_SIZE || mapped.getInt(H_MAGIC) != MAGIC) {
+                throw new IOException(file + " is not a result store");
+            }
+            if (mapped.getInt(H_VERSION) != VERSION) {
+                throw new IOException(file + " has unsupported version " + mapped.getInt(H_VERSION));
+            }
+            final int count = mapped.getInt(H_RECORDS);
+            final long variableLength = mapped.getLong(H_VARIABLE_LENGTH);
+            // the header may be damaged, the sizes are checked in long before they are used
+            if (count < 0 || variableLength < 0 || variableLength > channel.size()) {
+                throw new IOException(file + " has a damaged header");
+            }
+            final long recordsLength = Math.multiplyExact((long) count, RECORD_SIZE);
+            if (Math.addExact(Math.addExact(HEADER_SIZE, recordsLength), variableLength) != channel.size()) {
+                throw new IOException(file + " is truncated");
+            }
+            final int recordsEnd = HEADER_SIZE + (int) recordsLength;
+            return new ResultStore(mapped.slice(HEADER_SIZE, (int) recordsLength),
+                    mapped.slice(recordsEnd, (int) variableLength), count, variableLength, true);
+        }
+    }
+
+    /**
+     * Write the used part of the store to a file.
+     */
+    public void save(Path file) throws IOException {
+        final int count = size();
+        final long length = variableLength.get();
+        final var header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(H_MAGIC, MAGIC)
+                .putInt(H_VERSION, VERSION)
+                .putInt(H_RECORDS, count)
+                .putLong(H_VARIABLE_LENGTH, length);
+        try (final var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header);
+            writeFully(channel, records.duplicate().position(0).limit(count * RECORD_SIZE));
+            writeFully(channel, variable.duplicate().position(0).limit((int) length));
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Store the result of one file.
+     *
+     * @param emptyLines the line numbers of the empty lines, only the first {@code emptyLineCount} are used
+     * @return the index of the record
+     * @throws IllegalStateException if the store is full
+     */
+    public int append(String fileName, int count, int[] emptyLines, int emptyLineCount) {
+        if (readOnly) {
+            throw new IllegalStateException("The store is read only");
+        }
+        final var name = fileName.getBytes(StandardCharsets.UTF_8);
+        final int emptyBytes = emptyLineCount * Integer.BYTES;
+        // the empty line numbers come first, so they stay aligned
+        final int size = emptyBytes + align(name.length);
+        final long offset = reserveVariable(size);
+        final int index = reserveRecord();
+        int pos = (int) offset;
+        for (int i = 0; i < emptyLineCount; i++, pos += Integer.BYTES) {
+            variable.putInt(pos, emptyLines[i]);
+        }
+        variable.duplicate().position(pos).put(name);
+        final int record = index * RECORD_SIZE;
+        records.putInt(record + R_COUNT, count)
+                .putInt(record + R_EMPTY_COUNT, emptyLineCount)
+                .putLong(record + R_EMPTY_OFFSET, offset)
+                .putLong(record + R_NAME_OFFSET, pos)
+                .putInt(record + R_NAME_LENGTH, name.length);
+        return index;
+    }
+
+    /**
+     * The space is taken only when it fits, thus a failed append leaves the length within the capacity and the
+     * store can still be saved.
+     */
+    private long reserveVariable(int size) {
+        long offset;
+        do {
+            offset = variableLength.get();
+            if (offset + size > variable.capacity()) {
+                throw new IllegalStateException("The variable region of the store is full");
+            }
+        } while (!variableLength.compareAndSet(offset, offset + size));
+        return offset;
+    }
+
+    /**
+     * Called after {@link #reserveVariable(int)}. When the records are full, the already reserved variable bytes
+     * are not used. They are saved with the store, but no record points to them.
+     */
+    private int reserveRecord() {
+        final int capacity = records.capacity() / RECORD_SIZE;
+        int index;
+        do {
+            index = recordCount.get();
+            if (index >= capacity) {
+                throw new IllegalStateException("The store is full, it can hold " + capacity + " files");
+            }
+        } while (!recordCount.compareAndSet(index, index + 1));
+        return index;
+    }
+
+    private static int align(int length) {
+        return (length + Integer.BYTES - 1) & -Integer.BYTES;
+    }
+
+    public int size() {
+        return recordCount.get();
+    }
+
+    public int count(int index) {
+        return records.getInt(record(index) + R_COUNT);
+    }
+
+    public String fileName(int index) {
+        final int record = record(index);
+        final var name = new byte[records.getInt(record + R_NAME_LENGTH)];
+        variable.get((int) records.getLong(record + R_NAME_OFFSET), name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    public int emptyLineCount(int index) {
+        return records.getInt(record(index) + R_EMPTY_COUNT);
+    }
+
+    /**
+     * @param k the index of the empty line in the file, {@code 0 <= k < emptyLineCount(index)}
+     * @return the line number of the {@code k}-th empty line
+     */
+    public int emptyLine(int index, int k) {
+        final int record = record(index);
+        if (k < 0 || k >= records.getInt(record + R_EMPTY_COUNT)) {
+            throw new IndexOutOfBoundsException(k);
+        }
+        return variable.getInt((int) records.getLong(record + R_EMPTY_OFFSET) + k * Integer.BYTES);
+    }
+
+    public int[] emptyLines(int index) {
+        final var lines = new int[emptyLineCount(index)];
+        for (int k = 0; k < lines.length; k++) {
+            lines[k] = emptyLine(index, k);
+        }
+        return lines;
+    }
+
+    public long total() {
+        long total = 0;
+        for (int i = 0, n = size(); i < n; i++) {
+            total += count(i);
+        }
+        return total;
+    }
+
+    private int record(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return index * RECORD_SIZE;
+    }
+}
@@ -0,0 +1,78 @@
+package javax0.blog.demo.throwable.store;
+
+import javax0.blog.demo.throwable.FileLister;
+import javax0.blog.demo.throwable.match.WtfMatcher;
+import javax0.blog.demo.throwable.parallel.FileReader;
+import javax0.blog.demo.throwable.sneaky.ExceptionCollector;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Counts the files in parallel, like {@link javax0.blog.demo.throwable.parallel.ProjectWtfCounter}, but keeps the
+ * result of each file in a {@link ResultStore} for later queries. The empty lines are recorded in the store, no
+ * exception is created for them. A file that has empty lines counts zero, the same way as in
+ * {@code ProjectWtfCounter}.
+ */
+public class StoringProjectWtfCounter {
+    private static final int[] NO_LINES = new int[0];
+
+    private final FileLister fileLister;
+    private final ResultStore store;
+    private final WtfMatcher matcher;
+    private boolean recordEmptyLines = true;
+
+    public StoringProjectWtfCounter(FileLister fileLister, ResultStore store) {
+        this(fileLister, store, new WtfMatcher());
+    }
+
+    public StoringProjectWtfCounter(FileLister fileLister, ResultStore store, WtfMatcher matcher) {
+        this.fileLister = fileLister;
+        this.store = store;
+        this.matcher = matcher;
+    }
+
+    /**
+     * Do not record the numbers of the empty lines, the store needs space only for the file names. The empty lines
+     * are not errors then: a file that has empty lines is counted with all its matches, and the total can be more
+     * than the total of {@link javax0.blog.demo.throwable.parallel.ProjectWtfCounter}.
+     */
+    public StoringProjectWtfCounter withoutEmptyLines() {
+        recordEmptyLines = false;
+        return this;
+    }
+
+    public long count() throws IOException {
+        final var collector = new ExceptionCollector(IOException.class);
+        final long sum = fileLister.list().parallelStream()
+                .mapToInt(collector.toIntFunction(this::countFile, 0))
+                .asLongStream()
+                .sum();
+        collector.throwIfAny(IOException.class, () -> new IOException("Some files could not be read"));
+        return sum;
+    }
+
+    private int countFile(String fileName) throws IOException {
+        final var lines = new FileReader(fileName).list();
+        var emptyLines = NO_LINES;
+        int emptyLineCount = 0;
+        int sum = 0;
+        int lineNr = 1;
+        for (final var line : lines) {
+            if (line.isEmpty()) {
+                if (recordEmptyLines) {
+                    if (emptyLineCount == emptyLines.length) {
+                        emptyLines = Arrays.copyOf(emptyLines, Math.max(4, 2 * emptyLines.length));
+                    }
+                    emptyLines[emptyLineCount++] = lineNr;
+                }
+            } else {
+                sum += matcher.count(line);
+            }
+            lineNr++;
+        }
+        final int count = emptyLineCount > 0 ? 0 : sum;
+        store.append(fileName, count, emptyLines, emptyLineCount);
+        return count;
+    }
+}
@@ -1,12 +1,10 @@
 package javax0.blog.demo.throwable.v4;
 
-public class FileNumberedLineEmpty extends RuntimeException {
+public class FileNumberedLineEmpty extends WrapperException {
     final protected String fileName;
 
     public FileNumberedLineEmpty(String fileName, NumberedLinesAreEmpty cause) {
         super(cause);
-        this.setStackTrace(cause.getStackTrace());
-        cause.setStackTrace(new StackTraceElement[0]);
         this.fileName = fileName;
     }
 
@@ -14,9 +12,4 @@ public class FileNumberedLineEmpty extends RuntimeException {
     public String getMessage() {
         return fileName;
     }
-
-    @Override
-    public Throwable fillInStackTrace() {
-        return this;
-    }
 }
@@ -6,5 +6,19 @@ public class FileNumberedLinesAreEmpty extends RuntimeException {
     public String getMessage(){
         return "There are empty lines";
     }
+// skip
+
+    @Override
+    public void printStackTrace(java.io.PrintStream s) {
+        WrapperException.moveStackTraces(this);
+        super.printStackTrace(s);
+    }
+
+    @Override
+    public void printStackTrace(java.io.PrintWriter s) {
+        WrapperException.moveStackTraces(this);
+        super.printStackTrace(s);
+    }
+// skip end
 }
 // end snippet
@@ -1,22 +1,19 @@
 package javax0.blog.demo.throwable.v4;
 
-public class NumberedLineEmpty extends RuntimeException {
+public class NumberedLineEmpty extends WrapperException {
     final protected int lineNr;
 
     public NumberedLineEmpty(int lineNr, LineEmpty cause) {
         super(cause);
-        this.setStackTrace(cause.getStackTrace());
-        cause.setStackTrace(new StackTraceElement[0]);
         this.lineNr = lineNr;
     }
 
-    @Override
-    public String getMessage() {
-        return "line " + lineNr + ".";
+    public int getLineNr() {
+        return lineNr;
     }
 
     @Override
-    public Throwable fillInStackTrace() {
-        return this;
+    public String getMessage() {
+        return "line " + lineNr + ".";
     }
 }
@@ -1,6 +1,37 @@
 // snippet NumberedLinesAreEmpty_v4
 package javax0.blog.demo.throwable.v4;
 
+import java.util.Arrays;
+
 public class NumberedLinesAreEmpty extends RuntimeException {
+// skip
+    /**
+     * @return the line numbers of the suppressed {@link NumberedLineEmpty} exceptions in the order they were added,
+     * other suppressed exceptions are skipped
+     */
+    public int[] getLineNumbers() {
+        final var suppressed = getSuppressed();
+        final var lineNumbers = new int[suppressed.length];
+        int n = 0;
+        for (final var t : suppressed) {
+            if (t instanceof NumberedLineEmpty) {
+                lineNumbers[n++] = ((NumberedLineEmpty) t).getLineNr();
+            }
+        }
+        return n == lineNumbers.length ? lineNumbers : Arrays.copyOf(lineNumbers, n);
+    }
+
+    @Override
+    public void printStackTrace(java.io.PrintStream s) {
+        WrapperException.moveStackTraces(this);
+        super.printStackTrace(s);
+    }
+
+    @Override
+    public void printStackTrace(java.io.PrintWriter s) {
+        WrapperException.moveStackTraces(this);
+        super.printStackTrace(s);
+    }
+// skip end
 }
 // end snippet
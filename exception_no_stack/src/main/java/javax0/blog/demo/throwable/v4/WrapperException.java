@@ -0,0 +1,90 @@
+package javax0.blog.demo.throwable.v4;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * An exception that wraps its cause only to add some information, like the line number, and is reported with the
+ * stack trace of the cause. Creating the wrapper collects no stack trace and copies none. The cause keeps the
+ * backtrace the JVM recorded when the cause was created, and the {@link StackTraceElement}s are created from it only
+ * when the stack trace of the wrapper is needed: {@link #getStackTrace()} or {@link #printStackTrace(PrintStream)}
+ * moves the stack trace from the cause to the wrapper, the same way as the constructors of the v3 exceptions do.
+ * An exception that is created but never printed costs the wrapper object and nothing else.
+ * <p>
+ * Until the stack trace is moved it is printed with the cause, thus nothing is lost if code that does not call
+ * these methods prints the exception. The exceptions that contain wrappers, like {@link NumberedLinesAreEmpty},
+ * move the stack traces in the whole structure calling {@link #moveStackTraces(Throwable)} before they are printed.
+ */
+public abstract class WrapperException extends RuntimeException {
+    private static final StackTraceElement[] NO_STACK_TRACE = new StackTraceElement[0];
+
+    private boolean stackTraceMoved = false;
+
+    protected WrapperException(Throwable cause) {
+        super(cause);
+    }
+
+    /**
+     * Move the stack traces from the causes to the wrappers in the whole structure of the exception.
+     */
+    public static void moveStackTraces(Throwable throwable) {
+        moveStackTraces(throwable, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    private static void moveStackTraces(Throwable throwable, Set<Throwable> visited) {
+        if (throwable == null || !visited.add(throwable)) {
+            return;
+        }
+        if (throwable instanceof WrapperException) {
+            ((WrapperException) throwable).moveStackTrace();
+        }
+        for (final var suppressed : throwable.getSuppressed()) {
+            moveStackTraces(suppressed, visited);
+        }
+        moveStackTraces(throwable.getCause(), visited);
+    }
+
+    private synchronized void moveStackTrace() {
+        if (stackTraceMoved) {
+            return;
+        }
+        stackTraceMoved = true;
+        final var cause = getCause();
+        if (cause != null) {
+            super.setStackTrace(cause.getStackTrace());
+            cause.setStackTrace(NO_STACK_TRACE);
+        }
+    }
+
+    @Override
+    public StackTraceElement[] getStackTrace() {
+        moveStackTrace();
+        return super.getStackTrace();
+    }
+
+    @Override
+    public synchronized void setStackTrace(StackTraceElement[] stackTrace) {
+        stackTraceMoved = true;
+        super.setStackTrace(stackTrace);
+    }
+
+    @Override
+    public void printStackTrace(PrintStream s) {
+        moveStackTraces(this);
+        super.printStackTrace(s);
+    }
+
+    @Override
+    public void printStackTrace(PrintWriter s) {
+        moveStackTraces(this);
+        super.printStackTrace(s);
+    }
+
+    @Override
+    public Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,231 @@
+package javax0.blog;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Persistent index of the snippets defined and referenced in the source files. Files are identified by their
+ * content hash. A file is read only when its size or modification time changed, and it is parsed only when its
+ * hash also changed. The result of a scan is the set of documents that reference a changed snippet or were
+ * changed themselves. When this set is empty there is no need to run the documentation generation at all.
+ */
+class SnippetIndex {
+    private static final Pattern SNIPPET_START = Pattern.compile("^\\s*//\\s*snippet\\s+(\\S+)");
+    private static final Pattern SNIPPET_END = Pattern.compile("^\\s*//\\s*end\\s+snippet");
+    private static final Pattern SNIP_REFERENCE = Pattern.compile("^\\s*(?:<!--|//)\\s*snip\\s+([^\\s-]+)");
+    private static final String SEPARATOR = "\t";
+
+    private static class Entry {
+        final long size;
+        final long modified;
+        final String hash;
+        final Map<String, String> snippets;
+        final Set<String> references;
+
+        Entry(long size, long modified, String hash, Map<String, String> snippets, Set<String> references) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+            this.snippets = snippets;
+            this.references = references;
+        }
+
+        Entry touched(long size, long modified) {
+            return new Entry(size, modified, hash, snippets, references);
+        }
+    }
+
+    private final Path indexFile;
+    private Map<String, Entry> entries = new HashMap<>();
+
+    SnippetIndex(Path indexFile) throws IOException {
+        this.indexFile = indexFile;
+        if (Files.exists(indexFile)) {
+            load();
+        }
+    }
+
+    /**
+     * Scan the files and update the index in memory.
+     *
+     * @param fileNames the names of all the files that may define or reference snippets
+     * @return the names of the documents that have to be regenerated
+     */
+    Set<String> scan(List<String> fileNames) throws IOException {
+        final var scanned = new HashMap<String, Entry>();
+        final var parsed = new HashSet<String>();
+        for (final var fileName : fileNames) {
+            final var file = Path.of(fileName);
+            final var attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            final long size = attrs.size();
+            final long modified = attrs.lastModifiedTime().toMillis();
+            final var old = entries.get(fileName);
+            if (old != null && old.size == size && old.modified == modified) {
+                scanned.put(fileName, old);
+                continue;
+            }
+            final var bytes = Files.readAllBytes(file);
+            final var hash = hash(bytes);
+            if (old != null && old.hash.equals(hash)) {
+                scanned.put(fileName, old.touched(size, modified));
+                continue;
+            }
+            scanned.put(fileName, parse(new String(bytes, StandardCharsets.UTF_8), size, modified, hash));
+            parsed.add(fileName);
+        }
+
+        final var oldSnippets = snippets(entries);
+        final var newSnippets = snippets(scanned);
+        final var changedSnippets = new HashSet<String>();
+        for (final var name : oldSnippets.keySet()) {
+            if (!Objects.equals(oldSnippets.get(name), newSnippets.get(name))) {
+                changedSnippets.add(name);
+            }
+        }
+        for (final var name : newSnippets.keySet()) {
+            if (!oldSnippets.containsKey(name)) {
+                changedSnippets.add(name);
+            }
+        }
+
+        final var dirty = new TreeSet<String>();
+        for (final var e : scanned.entrySet()) {
+            final var references = e.getValue().references;
+            if (references.isEmpty()) {
+                continue;
+            }
+            if (parsed.contains(e.getKey()) || references.stream().anyMatch(changedSnippets::contains)) {
+                dirty.add(e.getKey());
+            }
+        }
+        entries = scanned;
+        return dirty;
+    }
+
+    void save() throws IOException {
+        final var lines = new ArrayList<String>();
+        for (final var e : entries.entrySet()) {
+            final var entry = e.getValue();
+            final var snippets = new StringBuilder();
+            for (final var s : entry.snippets.entrySet()) {
+                if (snippets.length() > 0) {
+                    snippets.append(',');
+                }
+                snippets.append(s.getKey()).append('=').append(s.getValue());
+            }
+            lines.add(String.join(SEPARATOR, e.getKey(), Long.toString(entry.size), Long.toString(entry.modified),
+                    entry.hash, snippets, String.join(",", entry.references)));
+        }
+        if (indexFile.getParent() != null) {
+            Files.createDirectories(indexFile.getParent());
+        }
+        Files.write(indexFile, lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A damaged index is simply rebuilt: when any line of it cannot be parsed the whole index is dropped and every
+     * file is parsed again by the next {@link #scan(List)}.
+     */
+    private void load() throws IOException {
+        for (final var line : Files.readAllLines(indexFile, StandardCharsets.UTF_8)) {
+            final var entry = parseLine(line);
+            if (entry == null) {
+                entries.clear();
+                return;
+            }
+            entries.put(line.substring(0, line.indexOf(SEPARATOR)), entry);
+        }
+    }
+
+    /**
+     * @return the entry of a line of the index file or {@code null} if the line is damaged
+     */
+    private static Entry parseLine(String line) {
+        final var parts = line.split(SEPARATOR, -1);
+        if (parts.length != 6) {
+            return null;
+        }
+        final var snippets = new LinkedHashMap<String, String>();
+        for (final var s : split(parts[4])) {
+            final int eq = s.indexOf('=');
+            if (eq <= 0) {
+                return null;
+            }
+            snippets.put(s.substring(0, eq), s.substring(eq + 1));
+        }
+        try {
+            return new Entry(Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[3],
+                    snippets, new TreeSet<>(split(parts[5])));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static List<String> split(String s) {
+        return s.isEmpty() ? List.of() : List.of(s.split(","));
+    }
+
+    private static Entry parse(String content, long size, long modified, String hash) {
+        final var snippets = new LinkedHashMap<String, String>();
+        final var references = new TreeSet<String>();
+        String name = null;
+        StringBuilder body = null;
+        for (final var line : content.split("\r?\n", -1)) {
+            if (name == null) {
+                final var start = SNIPPET_START.matcher(line);
+                if (start.find()) {
+                    name = start.group(1);
+                    body = new StringBuilder();
+                    continue;
+                }
+                final var reference = SNIP_REFERENCE.matcher(line);
+                if (reference.find()) {
+                    references.add(reference.group(1));
+                }
+            } else if (SNIPPET_END.matcher(line).find()) {
+                snippets.put(name, hash(body.toString().getBytes(StandardCharsets.UTF_8)));
+                name = null;
+            } else {
+                body.append(line).append('\n');
+            }
+        }
+        return new Entry(size, modified, hash, snippets, references);
+    }
+
+    private static Map<String, String> snippets(Map<String, Entry> entries) {
+        final var snippets = new HashMap<String, String>();
+        for (final var entry : entries.values()) {
+            snippets.putAll(entry.snippets);
+        }
+        return snippets;
+    }
+
+    private static String hash(byte[] bytes) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        final var sb = new StringBuilder();
+        for (final var b : digest.digest(bytes)) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,88 @@
+package javax0.blog;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestSnippetIndex {
+
+    @TempDir
+    Path root;
+
+    private String source;
+    private String article;
+    private String other;
+
+    private List<String> files() throws IOException {
+        source = write("Source.java", "class Source {\n"
+                + "    // snippet first\n"
+                + "    int a;\n"
+                + "    // end snippet\n"
+                + "    // snippet second\n"
+                + "    int b;\n"
+                + "    // end snippet\n"
+                + "}\n");
+        article = write("article.md", "# Article\n<!-- snip first -->\n");
+        other = write("other.md", "# Other\n<!-- snip second -->\n");
+        return List.of(source, article, other);
+    }
+
+    private String write(String name, String content) throws IOException {
+        return Files.writeString(root.resolve(name), content).toString();
+    }
+
+    private Path index() {
+        return root.resolve("target").resolve("snippet-index.txt");
+    }
+
+    @Test
+    @DisplayName("Nothing has to be regenerated when no file changed, also when a file was only touched")
+    void testUnchanged() throws IOException {
+        final var files = files();
+        final var index = new SnippetIndex(index());
+        assertThat(index.scan(files)).containsExactly(article, other);
+        index.save();
+
+        assertThat(new SnippetIndex(index()).scan(files)).isEmpty();
+        Files.setLastModifiedTime(Path.of(source), FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        assertThat(new SnippetIndex(index()).scan(files)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("A changed snippet makes only the documents referencing it regenerated")
+    void testChangedSnippet() throws IOException {
+        final var files = files();
+        final var index = new SnippetIndex(index());
+        index.scan(files);
+        index.save();
+
+        Files.writeString(Path.of(source), Files.readString(Path.of(source)).replace("int a;", "long a;"));
+        assertThat(new SnippetIndex(index()).scan(files)).containsExactly(article);
+    }
+
+    @Test
+    @DisplayName("A damaged index file is rebuilt")
+    void testCorruptIndex() throws IOException {
+        final var files = files();
+        final var index = new SnippetIndex(index());
+        index.scan(files);
+        index.save();
+        final var lines = Files.readAllLines(index());
+        for (final var damaged : List.of(
+                List.of("not an index line"),
+                List.of(source + "\t12\t34\thash\tfirst\t"),
+                List.of(source + "\tsize\t34\thash\t\t"),
+                List.of(lines.get(0), article + "\t12\tmodified\thash\t\tfirst"))) {
+            Files.write(index(), damaged);
+            assertThat(new SnippetIndex(index()).scan(files)).as(damaged.toString()).containsExactly(article, other);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package javax0.blog.demo.throwable.alloc;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.IntFunction;
+
+/**
+ * Measures the bytes allocated by a thread running a piece of code, using
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}. The code is run many times before the
+ * measurement, so that the JIT compiles it and the escape analysis removes the allocations it can, the same way as
+ * in production. Of the measured runs the smallest counts, the others may include some unrelated allocation, like a
+ * class loaded lazily. The code runs on a new thread, thus the cost of the stack trace of an exception does not
+ * depend on how deep the test runner calls the test.
+ * <p>
+ * The cost of a file has a fixed part and a part proportional to the number of lines. {@link #cost(IntFunction, int)}
+ * measures a file of {@code n} and of {@code 2n} units and separates the two parts.
+ */
+public class AllocationMeter {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private int warmups = 2000;
+    private int runs = 20;
+
+    public static boolean isSupported() {
+        return THREADS.isThreadAllocatedMemorySupported() && THREADS.isThreadAllocatedMemoryEnabled();
+    }
+
+    public AllocationMeter warmups(int warmups) {
+        this.warmups = warmups;
+        return this;
+    }
+
+    public AllocationMeter runs(int runs) {
+        this.runs = runs;
+        return this;
+    }
+
+    /**
+     * The allocation of one unit, like a line, and the fixed allocation of the code around the units, like opening a
+     * file.
+     */
+    public static class Cost {
+        public final double perUnit;
+        public final long fixed;
+
+        Cost(double perUnit, long fixed) {
+            this.perUnit = perUnit;
+            this.fixed = fixed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1f bytes per unit, %d bytes fixed", perUnit, fixed);
+        }
+    }
+
+    /**
+     * @return the smallest number of bytes allocated running the code
+     */
+    public long measure(Runnable code) {
+        final long[] result = new long[1];
+        final Throwable[] failure = new Throwable[1];
+        final var thread = new Thread(() -> {
+            try {
+                result[0] = measureOnThisThread(code);
+            } catch (Throwable t) {
+                failure[0] = t;
+            }
+        }, "allocation-meter");
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The measurement was interrupted", e);
+        }
+        if (failure[0] != null) {
+            throw new IllegalStateException("The measured code failed", failure[0]);
+        }
+        return result[0];
+    }
+
+    private long measureOnThisThread(Runnable code) {
+        for (int i = 0; i < warmups; i++) {
+            code.run();
+        }
+        final long thread = Thread.currentThread().getId();
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            final long before = THREADS.getThreadAllocatedBytes(thread);
+            code.run();
+            min = Math.min(min, THREADS.getThreadAllocatedBytes(thread) - before);
+        }
+        return min;
+    }
+
+    /**
+     * @param code  creates the code to measure for the given number of units
+     * @param units the number of units of the smaller measurement
+     */
+    public Cost cost(IntFunction<Runnable> code, int units) {
+        final long single = measure(code.apply(units));
+        final long twice = measure(code.apply(2 * units));
+        final double perUnit = Math.max(0, (twice - single) / (double) units);
+        return new Cost(perUnit, Math.max(0, Math.round(single - perUnit * units)));
+    }
+}
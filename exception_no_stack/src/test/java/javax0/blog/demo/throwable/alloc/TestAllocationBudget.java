@@ -0,0 +1,136 @@
+package javax0.blog.demo.throwable.alloc;
+
+import javax0.blog.demo.throwable.match.WtfMatcher;
+import javax0.blog.demo.throwable.v4.NumberedLinesAreEmpty;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Allocation budgets of the counting hot path. A budget is checked per line, the fixed cost of a file is printed
+ * only, it depends on the collections of the JDK.
+ */
+public class TestAllocationBudget {
+    private static final int LINES = 200;
+    // a JIT compiled loop allocates nothing per line, this leaves room for the noise of the measurement
+    private static final double NOTHING = 1.0;
+    // the three exceptions of an empty line, most of it is the backtrace the JVM records for LineEmpty
+    private static final double EMPTY_LINE_BUDGET = 1024;
+
+    @BeforeAll
+    static void supported() {
+        assumeTrue(AllocationMeter.isSupported(), "the JVM does not measure the allocation of a thread");
+    }
+
+    /**
+     * @param lines the number of lines of the file
+     * @param empty every {@code empty}th line is empty, zero for none
+     */
+    static List<String> file(int lines, int empty) {
+        final var file = new ArrayList<String>(lines);
+        for (int i = 1; i <= lines; i++) {
+            file.add(empty > 0 && i % empty == 0 ? "" : "there is a wtf in the line, wtf");
+        }
+        return file;
+    }
+
+    private AllocationMeter.Cost cost(String mode, IntFunction<Runnable> code) {
+        return cost(mode, code, new AllocationMeter());
+    }
+
+    private static AllocationMeter.Cost cost(String mode, IntFunction<Runnable> code, AllocationMeter meter) {
+        final var cost = meter.cost(code, LINES);
+        System.out.println(mode + ": " + cost);
+        return cost;
+    }
+
+    private static javax0.blog.demo.throwable.v4.FileReader v4Reader(List<String> lines) {
+        return new javax0.blog.demo.throwable.v4.FileReader("synthetic.txt") {
+            @Override
+            public List<String> list() {
+                return lines;
+            }
+        };
+    }
+
+    private static javax0.blog.demo.throwable.parallel.FileReader parallelReader(List<String> lines) {
+        return new javax0.blog.demo.throwable.parallel.FileReader("synthetic.txt") {
+            @Override
+            public List<String> list() {
+                return lines;
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("The v4 counter allocates nothing for a non-empty line")
+    void testV4NonEmptyLines() {
+        final var cost = cost("v4 non-empty", n -> {
+            final var counter = new javax0.blog.demo.throwable.v4.FileWtfCounter(v4Reader(file(n, 0)));
+            return counter::count;
+        });
+        assertThat(cost.perUnit).isLessThan(NOTHING);
+    }
+
+    @Test
+    @DisplayName("The v4 counter allocates a bounded number of bytes for an empty line")
+    void testV4EmptyLines() {
+        // every line is empty, the cost of a line is the cost of the exceptions
+        final var cost = cost("v4 empty", n -> {
+            final var counter = new javax0.blog.demo.throwable.v4.FileWtfCounter(v4Reader(file(n, 1)));
+            return () -> {
+                try {
+                    counter.count();
+                } catch (NumberedLinesAreEmpty e) {
+                    // expected, the exceptions are the allocation measured
+                }
+            };
+        }, new AllocationMeter().warmups(100));
+        assertThat(cost.perUnit).isGreaterThan(0).isLessThan(EMPTY_LINE_BUDGET);
+    }
+
+    @Test
+    @DisplayName("The parallel counter allocates nothing for a non-empty line")
+    void testParallelNonEmptyLines() {
+        final var cost = cost("parallel non-empty", n -> {
+            final var counter = new javax0.blog.demo.throwable.parallel.FileWtfCounter(parallelReader(file(n, 0)),
+                    new WtfMatcher().ignoreCase().wholeWord());
+            return () -> {
+                try {
+                    counter.count();
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            };
+        });
+        assertThat(cost.perUnit).isLessThan(NOTHING);
+    }
+
+    @Test
+    @DisplayName("Counting in bytes allocates nothing for a line")
+    void testByteMatcher() {
+        final var matcher = new WtfMatcher().ignoreCase().wholeWord();
+        final var cost = cost("bytes", n -> {
+            final var bytes = (String.join("\n", file(n, 0)) + "\n").getBytes(StandardCharsets.UTF_8);
+            return () -> {
+                int start = 0;
+                for (int i = 0; i < bytes.length; i++) {
+                    if (bytes[i] == '\n') {
+                        matcher.count(bytes, start, i);
+                        start = i + 1;
+                    }
+                }
+            };
+        });
+        assertThat(cost.perUnit).isLessThan(NOTHING);
+        assertThat(cost.fixed).isZero();
+    }
+}
@@ -0,0 +1,137 @@
+package javax0.blog.demo.throwable.async;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A stand-in for network mounted storage: every read completes only after a fixed latency. It also records the
+ * largest number of reads that were in progress at the same time and the number of channels that are open. The reads
+ * of the {@link #unreadable} file fail before they start.
+ */
+class SlowStorage {
+    private final long latencyMillis;
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, r -> {
+        final var thread = new Thread(r, "slow-storage");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger inProgress = new AtomicInteger();
+    private final AtomicInteger maxInProgress = new AtomicInteger();
+    final AtomicInteger reads = new AtomicInteger();
+    final AtomicInteger open = new AtomicInteger();
+    volatile String unreadable;
+
+    SlowStorage(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    int maxInProgress() {
+        return maxInProgress.get();
+    }
+
+    AsynchronousFileChannel open(String fileName) throws IOException {
+        final var channel = new SlowChannel(fileName, AsynchronousFileChannel.open(Path.of(fileName), StandardOpenOption.READ));
+        open.incrementAndGet();
+        return channel;
+    }
+
+    private class SlowChannel extends AsynchronousFileChannel {
+        private final String fileName;
+        private final AsynchronousFileChannel channel;
+
+        private SlowChannel(String fileName, AsynchronousFileChannel channel) {
+            this.fileName = fileName;
+            this.channel = channel;
+        }
+
+        @Override
+        public <A> void read(ByteBuffer dst, long position, A attachment, CompletionHandler<Integer, ? super A> handler) {
+            if (fileName.equals(unreadable)) {
+                throw new IllegalStateException("Unreadable file " + fileName);
+            }
+            reads.incrementAndGet();
+            maxInProgress.accumulateAndGet(inProgress.incrementAndGet(), Math::max);
+            scheduler.schedule(() -> channel.read(dst, position, attachment, new CompletionHandler<Integer, A>() {
+                @Override
+                public void completed(Integer result, A a) {
+                    inProgress.decrementAndGet();
+                    handler.completed(result, a);
+                }
+
+                @Override
+                public void failed(Throwable exc, A a) {
+                    inProgress.decrementAndGet();
+                    handler.failed(exc, a);
+                }
+            }), latencyMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public Future<Integer> read(ByteBuffer dst, long position) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public AsynchronousFileChannel truncate(long size) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void force(boolean metaData) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <A> void lock(long position, long size, boolean shared, A attachment, CompletionHandler<FileLock, ? super A> handler) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Future<FileLock> lock(long position, long size, boolean shared) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <A> void write(ByteBuffer src, long position, A attachment, CompletionHandler<Integer, ? super A> handler) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Future<Integer> write(ByteBuffer src, long position) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel.isOpen()) {
+                open.decrementAndGet();
+            }
+            channel.close();
+        }
+    }
+}
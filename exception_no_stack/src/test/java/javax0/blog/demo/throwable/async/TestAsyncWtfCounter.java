@@ -0,0 +1,162 @@
+package javax0.blog.demo.throwable.async;
+
+import javax0.blog.demo.throwable.FileLister;
+import javax0.blog.demo.throwable.alloc.AllocationMeter;
+import javax0.blog.demo.throwable.match.WtfMatcher;
+import javax0.blog.demo.throwable.parallel.ProjectWtfCounter;
+import javax0.blog.demo.throwable.v4.FileNumberedLinesAreEmpty;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static javax0.blog.demo.throwable.v4.SuppressedMessages.messages;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class TestAsyncWtfCounter {
+
+    @TempDir
+    Path root;
+
+    private final List<String> fileNames = new ArrayList<>();
+
+    private FileLister lister(String... contents) throws IOException {
+        int i = fileNames.size();
+        for (final var content : contents) {
+            final var file = root.resolve("f" + i++ + ".txt");
+            Files.writeString(file, content);
+            fileNames.add(file.toString());
+        }
+        return new FileLister() {
+            @Override
+            public List<String> list() {
+                return fileNames;
+            }
+        };
+    }
+
+    private static AsyncProjectWtfCounter counter(FileLister lister, SlowStorage storage) {
+        return new AsyncProjectWtfCounter(lister) {
+            @Override
+            protected AsynchronousFileChannel open(String fileName) throws IOException {
+                return storage.open(fileName);
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("The reads of several files overlap, but never more than the configured number")
+    void testOutstandingReads() throws IOException {
+        final var contents = new String[12];
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = "wtf wtf\r\nnothing wtf\n" + "x wtf\n".repeat(i * 10);
+        }
+        final var lister = lister(contents);
+        final var storage = new SlowStorage(20);
+        final int count = counter(lister, storage).outstanding(4).bufferSize(64).count();
+        assertThat(count).isEqualTo(new ProjectWtfCounter(lister).count());
+        assertThat(storage.maxInProgress()).isBetween(2, 4);
+        assertThat(storage.reads.get()).isGreaterThan(contents.length * 2);
+    }
+
+    @Test
+    @DisplayName("Empty lines are reported with the file and the line number, read errors take precedence")
+    void testEmptyLines() throws IOException {
+        final var lister = lister("wtf\n\nwtf wtf\n" + "a line\n".repeat(10) + "\r\n", "wtf\n", "\n\n");
+        final var storage = new SlowStorage(1);
+        final var expected = catchThrowable(() -> new ProjectWtfCounter(lister).count());
+        final var actual = catchThrowable(() -> counter(lister, storage).outstanding(2).bufferSize(5).count());
+        assertThat(actual).isInstanceOf(FileNumberedLinesAreEmpty.class);
+        assertThat(messages(actual)).containsExactlyInAnyOrderElementsOf(messages(expected)).hasSize(2);
+        assertThat(messages(actual).toString()).contains("line 14.");
+
+        fileNames.add(root.resolve("missing.txt").toString());
+        final var thrown = catchThrowable(() -> counter(lister, storage).count());
+        assertThat(thrown).isInstanceOf(IOException.class);
+        assertThat(thrown.getSuppressed()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("A lone \\r does not end a line and the bytes are not decoded, unlike in the parallel counter")
+    void testDifferencesFromParallel() throws IOException {
+        final var lister = lister("wtf\r\rwtf\n", "");
+        Files.write(Path.of(fileNames.get(1)), new byte[]{'w', 't', 'f', ' ', (byte) 0xC3, '\n'});
+        final var thrown = catchThrowable(() -> new ProjectWtfCounter(lister).count());
+        assertThat(thrown).isInstanceOf(IOException.class);
+        assertThat(thrown.getSuppressed()).hasSize(1);
+        assertThat(counter(lister, new SlowStorage(1)).bufferSize(5).count()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("A file that can not even be opened fails the counting once, the other files are still read")
+    void testOpenFailure() throws IOException, InterruptedException {
+        final var lister = lister("wtf\n", "wtf\n", "wtf\n");
+        final var bad = fileNames.get(1);
+        final var storage = new SlowStorage(1);
+        final var counter = new AsyncProjectWtfCounter(lister) {
+            @Override
+            protected AsynchronousFileChannel open(String fileName) throws IOException {
+                if (fileName.equals(bad)) {
+                    throw new IllegalArgumentException("Invalid file name " + fileName);
+                }
+                return storage.open(fileName);
+            }
+        }.outstanding(1);
+        final var thrown = new AtomicReference<Throwable>();
+        final var thread = new Thread(() -> thrown.set(catchThrowable(counter::count)));
+        thread.start();
+        thread.join(10_000);
+        assertThat(thread.isAlive()).isFalse();
+        assertThat(thrown.get()).isInstanceOf(IllegalArgumentException.class);
+        assertThat(storage.reads.get()).isGreaterThanOrEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("A read that fails before it starts closes the file it opened")
+    void testReadFailureClosesChannel() throws IOException, InterruptedException {
+        final var lister = lister("wtf\n", "wtf\n", "wtf\n");
+        final var storage = new SlowStorage(1);
+        storage.unreadable = fileNames.get(1);
+        final var counter = counter(lister, storage).outstanding(1);
+        final var thrown = new AtomicReference<Throwable>();
+        final var thread = new Thread(() -> thrown.set(catchThrowable(counter::count)));
+        thread.start();
+        thread.join(10_000);
+        assertThat(thread.isAlive()).isFalse();
+        assertThat(thrown.get()).isInstanceOf(IllegalStateException.class);
+        assertThat(storage.open.get()).isZero();
+    }
+
+    @Test
+    @DisplayName("Streaming the bytes allocates nothing for a non-empty line, also when the line is cut by the buffer")
+    void testStreamingAllocatesNothingPerLine() {
+        assumeTrue(AllocationMeter.isSupported(), "the JVM does not measure the allocation of a thread");
+        final var matcher = new WtfMatcher();
+        final var cost = new AllocationMeter().cost(n -> {
+            final var buffer = ByteBuffer.wrap("there is a wtf in the line, wtf\n".repeat(n).getBytes(StandardCharsets.UTF_8));
+            return () -> {
+                final var scanner = new LineScanner(matcher);
+                // 100 bytes at a time, the lines are cut at different places
+                for (int start = 0; start < buffer.capacity(); start += 100) {
+                    buffer.limit(Math.min(buffer.capacity(), start + 100)).position(start);
+                    scanner.feed(buffer);
+                }
+                scanner.finish();
+                assertThat(scanner.emptyLines()).isNull();
+            };
+        }, 200);
+        System.out.println("streaming: " + cost);
+        assertThat(cost.perUnit).isLessThan(1.0);
+    }
+}
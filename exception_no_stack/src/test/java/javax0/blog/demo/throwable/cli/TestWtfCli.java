@@ -0,0 +1,133 @@
+package javax0.blog.demo.throwable.cli;
+
+import javax0.blog.demo.throwable.corpus.CorpusGenerator;
+import javax0.blog.demo.throwable.service.CountingService;
+import javax0.blog.demo.throwable.service.WtfServer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestWtfCli {
+
+    @TempDir
+    Path root;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    private int run(String... args) {
+        out.reset();
+        err.reset();
+        return new WtfCli().run(args, new PrintStream(out, true, StandardCharsets.UTF_8), new PrintStream(err, true, StandardCharsets.UTF_8));
+    }
+
+    private String out() {
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("The modes and formats print the counts, empty lines fail the count mode")
+    void testModes() throws IOException {
+        Files.writeString(root.resolve("a.txt"), "wtf wtf\nwtf\n");
+        Files.createDirectories(root.resolve("target"));
+        Files.writeString(root.resolve("target/ignored.txt"), "wtf\n");
+        assertThat(run(root.toString())).isEqualTo(0);
+        assertThat(out()).isEqualTo("3" + System.lineSeparator());
+        assertThat(run("--format=json", root.toString())).isEqualTo(0);
+        assertThat(out()).startsWith("{\"total\":3}");
+        Files.writeString(root.resolve("copy.txt"), "wtf wtf\nwtf\n");
+        assertThat(run("--deduplicate", root.toString())).isEqualTo(0);
+        assertThat(out()).isEqualTo("6" + System.lineSeparator());
+        Files.delete(root.resolve("copy.txt"));
+
+        Files.writeString(root.resolve("b.txt"), "\"wtf\"\n\n");
+        assertThat(run(root.toString())).isEqualTo(1);
+        assertThat(err.toString(StandardCharsets.UTF_8)).contains("b.txt").contains("line 2.");
+        assertThat(run("--mode=files", "--format=json", root.toString())).isEqualTo(0);
+        assertThat(out()).startsWith("{\"total\":4,\"files\":[").contains("b.txt\",\"count\":1}");
+        assertThat(run("--mode=index", root.toString())).isEqualTo(0);
+        assertThat(out()).isEqualTo("4" + System.lineSeparator());
+        assertThat(run("--mode=index", "--format=json", root.toString())).isEqualTo(0);
+        assertThat(out()).startsWith("{\"total\":4,\"files\":2,\"scanned\":0}");
+    }
+
+    @Test
+    @DisplayName("The files mode lists every file of a larger tree, the store does not grow with the file sizes")
+    void testFilesOfLargerTree() throws IOException {
+        final var corpus = new CorpusGenerator(17)
+                .files(1_500)
+                .lines(50, 500)
+                .largeFiles(5, 50_000)
+                .emptyLineDensity(0.05)
+                .generate(root);
+        assertThat(run("--mode=files", root.toString())).isEqualTo(0);
+        final var lines = out().split("\n");
+        assertThat(lines).hasSize(corpus.fileNames.size() + 1);
+        assertThat(lines[lines.length - 1]).isEqualTo(Long.toString(corpus.matches));
+        assertThat(run(root.toString())).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("A read error prints the files that failed and why")
+    void testReadError() throws IOException {
+        Files.writeString(root.resolve("a.txt"), "wtf\n");
+        Files.write(root.resolve("b.txt"), new byte[]{'w', 't', 'f', ' ', (byte) 0xC3, '\n'});
+        assertThat(run(root.toString())).isEqualTo(2);
+        assertThat(err.toString(StandardCharsets.UTF_8))
+                .contains("Some files could not be read")
+                .contains("Suppressed: MalformedInputException");
+    }
+
+    @Test
+    @DisplayName("The modules mode prints the count of every module")
+    void testModules() throws IOException {
+        Files.writeString(root.resolve("a.txt"), "wtf\n");
+        Files.createDirectories(root.resolve("m/target"));
+        Files.writeString(root.resolve("m/pom.xml"), "<project/>\n");
+        Files.writeString(root.resolve("m/b.txt"), "wtf wtf\n");
+        Files.writeString(root.resolve("m/target/ignored.txt"), "wtf\n");
+        assertThat(run("--mode=modules", root.toString())).isEqualTo(0);
+        assertThat(out()).isEqualTo("1\t.\n2\tm\n3\n");
+        Files.writeString(root.resolve("m/c.txt"), "wtf\n\n");
+        assertThat(run("--mode=modules", "--format=json", root.toString())).isEqualTo(1);
+        assertThat(out()).startsWith("{\"total\":3,\"modules\":[{\"name\":\".\",\"files\":1,\"count\":1},{\"name\":\"m\",\"files\":3,\"count\":2,\"error\":")
+                .contains("c.txt");
+    }
+
+    @Test
+    @DisplayName("The count mode can be served by a running server")
+    void testServer() throws IOException {
+        Files.writeString(root.resolve("a.txt"), "wtf wtf\nwtf\n");
+        Files.writeString(root.resolve("b.txt"), "wtf\n");
+        final var server = new WtfServer(0, new CountingService()).allow(root);
+        final int port = server.start();
+        try {
+            assertThat(run("--server=" + port, "--exclude=b.txt", root.toString())).isEqualTo(0);
+            assertThat(out()).isEqualTo("3" + System.lineSeparator());
+            Files.writeString(root.resolve("c.txt"), "WTF\n\n");
+            assertThat(run("--server=" + port, "--ignore-case", root.toString())).isEqualTo(1);
+            assertThat(err.toString(StandardCharsets.UTF_8)).contains("c.txt").contains("line 2.");
+            assertThat(run("--server=" + port, "--mode=files", root.toString())).isEqualTo(2);
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Wrong arguments print the usage")
+    void testUsage() {
+        assertThat(run("--mode=nope")).isEqualTo(2);
+        assertThat(err.toString(StandardCharsets.UTF_8)).contains("Usage:");
+        assertThat(run(root.resolve("missing").toString())).isEqualTo(2);
+        assertThat(run("--server=0", root.toString())).isEqualTo(2);
+    }
+}
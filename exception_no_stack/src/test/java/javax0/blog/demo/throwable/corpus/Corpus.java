@@ -0,0 +1,41 @@
+package javax0.blog.demo.throwable.corpus;
+
+import javax0.blog.demo.throwable.FileLister;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The files generated by {@link CorpusGenerator} and what a correct counter has to find in them.
+ */
+public class Corpus {
+    public final Path root;
+    public final List<String> fileNames;
+    public final long matches;
+    public final long emptyLines;
+    public final long filesWithEmptyLines;
+    public final long bytes;
+
+    Corpus(Path root, List<String> fileNames, long matches, long emptyLines, long filesWithEmptyLines, long bytes) {
+        this.root = root;
+        this.fileNames = List.copyOf(fileNames);
+        this.matches = matches;
+        this.emptyLines = emptyLines;
+        this.filesWithEmptyLines = filesWithEmptyLines;
+        this.bytes = bytes;
+    }
+
+    public FileLister lister() {
+        return new FileLister() {
+            @Override
+            public List<String> list() {
+                return fileNames;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return fileNames.size() + " files, " + bytes + " bytes, " + matches + " matches, " + emptyLines + " empty lines";
+    }
+}
@@ -0,0 +1,172 @@
+package javax0.blog.demo.throwable.corpus;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Generates a reproducible synthetic source tree to count. The same seed and settings produce the same files byte
+ * by byte. The lines are made of random words that cannot contain "wtf", thus the generator knows exactly how many
+ * matches and empty lines it wrote, see {@link Corpus}.
+ * <p>
+ * The line lengths follow an exponential distribution with the given mean, capped at the given maximum. The last
+ * word of a line may run over the length by a few characters. A word is "wtf" with the probability of the match
+ * density, a line is empty with the probability of the empty line density.
+ */
+public class CorpusGenerator {
+    // no 'w' in the alphabet, a random word never contains "wtf"
+    private static final String LETTERS = "abcdefghijklmnopqrstuvxyz";
+    private static final String WTF = "wtf";
+
+    private final long seed;
+    private int files = 1000;
+    private int directoryFanout = 10;
+    private int minLines = 10;
+    private int maxLines = 500;
+    private double meanLineLength = 40;
+    private int maxLineLength = 200;
+    private double matchDensity = 0.02;
+    private double emptyLineDensity = 0.0;
+    private int largeFiles = 0;
+    private int largeFileLines = 0;
+
+    public CorpusGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public CorpusGenerator files(int files) {
+        this.files = files;
+        return this;
+    }
+
+    /**
+     * @param directoryFanout the number of subdirectories on each of the two directory levels
+     */
+    public CorpusGenerator directoryFanout(int directoryFanout) {
+        this.directoryFanout = directoryFanout;
+        return this;
+    }
+
+    /**
+     * @param minLines the smallest number of lines in a file
+     * @param maxLines the largest number of lines in a file, the number is uniformly distributed in between
+     */
+    public CorpusGenerator lines(int minLines, int maxLines) {
+        if (minLines < 0 || maxLines < minLines) {
+            throw new IllegalArgumentException("Invalid line range " + minLines + ".." + maxLines);
+        }
+        this.minLines = minLines;
+        this.maxLines = maxLines;
+        return this;
+    }
+
+    public CorpusGenerator lineLength(double mean, int max) {
+        if (mean < 1 || max < WTF.length()) {
+            throw new IllegalArgumentException("Invalid line length mean " + mean + " max " + max);
+        }
+        this.meanLineLength = mean;
+        this.maxLineLength = max;
+        return this;
+    }
+
+    /**
+     * @param matchDensity the probability that a word is "wtf"
+     */
+    public CorpusGenerator matchDensity(double matchDensity) {
+        this.matchDensity = probability(matchDensity, "matchDensity");
+        return this;
+    }
+
+    /**
+     * @param emptyLineDensity the probability that a line is empty
+     */
+    public CorpusGenerator emptyLineDensity(double emptyLineDensity) {
+        this.emptyLineDensity = probability(emptyLineDensity, "emptyLineDensity");
+        return this;
+    }
+
+    /**
+     * Make the corpus skewed: the last {@code count} files have {@code lines} lines each instead of the usual range.
+     * Listed last, a few large files decide the wall-clock time of a parallel run that does not know the sizes.
+     */
+    public CorpusGenerator largeFiles(int count, int lines) {
+        if (count < 0 || lines < 0) {
+            throw new IllegalArgumentException("Invalid large files " + count + " with " + lines + " lines");
+        }
+        this.largeFiles = count;
+        this.largeFileLines = lines;
+        return this;
+    }
+
+    private static double probability(double p, String name) {
+        if (p < 0 || p > 1) {
+            throw new IllegalArgumentException(name + " has to be between 0 and 1, it is " + p);
+        }
+        return p;
+    }
+
+    /**
+     * Write the files under the root directory. Existing files with the same names are overwritten.
+     */
+    public Corpus generate(Path root) throws IOException {
+        final var fileNames = new ArrayList<String>(files);
+        long matches = 0;
+        long emptyLines = 0;
+        long filesWithEmptyLines = 0;
+        long bytes = 0;
+        final var sb = new StringBuilder();
+        for (int i = 0; i < files; i++) {
+            // every file has its own random, a file does not depend on the settings used for the other files
+            final var random = new Random(seed * 1_000_003 + i);
+            final var directory = root.resolve("d" + (i % directoryFanout)).resolve("d" + (i / directoryFanout % directoryFanout));
+            Files.createDirectories(directory);
+            final var file = directory.resolve("f" + i + ".txt");
+            sb.setLength(0);
+            final int lines = i >= files - largeFiles ? largeFileLines : minLines + random.nextInt(maxLines - minLines + 1);
+            long fileEmptyLines = 0;
+            for (int line = 0; line < lines; line++) {
+                if (random.nextDouble() < emptyLineDensity) {
+                    fileEmptyLines++;
+                } else {
+                    matches += line(sb, random);
+                }
+                sb.append('\n');
+            }
+            final var content = sb.toString().getBytes(StandardCharsets.UTF_8);
+            Files.write(file, content);
+            fileNames.add(file.toString());
+            bytes += content.length;
+            emptyLines += fileEmptyLines;
+            filesWithEmptyLines += fileEmptyLines > 0 ? 1 : 0;
+        }
+        return new Corpus(root, fileNames, matches, emptyLines, filesWithEmptyLines, bytes);
+    }
+
+    /**
+     * Append a non-empty line.
+     *
+     * @return the number of "wtf" in the line
+     */
+    private int line(StringBuilder sb, Random random) {
+        final int length = (int) Math.min(maxLineLength, Math.max(1, Math.round(-meanLineLength * Math.log(1 - random.nextDouble()))));
+        final int start = sb.length();
+        int matches = 0;
+        while (sb.length() - start < length) {
+            if (sb.length() > start) {
+                sb.append(' ');
+            }
+            if (random.nextDouble() < matchDensity) {
+                sb.append(WTF);
+                matches++;
+            } else {
+                for (int k = 1 + random.nextInt(8); k > 0; k--) {
+                    sb.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+                }
+            }
+        }
+        return matches;
+    }
+}
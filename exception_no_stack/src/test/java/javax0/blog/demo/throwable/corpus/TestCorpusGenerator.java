@@ -0,0 +1,63 @@
+package javax0.blog.demo.throwable.corpus;
+
+import javax0.blog.demo.throwable.parallel.ProjectWtfCounter;
+import javax0.blog.demo.throwable.v4.FileNumberedLinesAreEmpty;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+public class TestCorpusGenerator {
+
+    @TempDir
+    Path root;
+
+    private CorpusGenerator generator(long seed) {
+        return new CorpusGenerator(seed).files(50).lines(0, 100).lineLength(30, 120).matchDensity(0.05);
+    }
+
+    @Test
+    @DisplayName("The same seed generates the same files")
+    void testReproducible() throws IOException {
+        final var first = generator(7).generate(root.resolve("first"));
+        final var second = generator(7).generate(root.resolve("second"));
+        final var other = generator(8).generate(root.resolve("other"));
+        assertThat(second.bytes).isEqualTo(first.bytes);
+        assertThat(second.matches).isEqualTo(first.matches).isNotEqualTo(other.matches);
+        for (int i = 0; i < first.fileNames.size(); i++) {
+            assertThat(Files.readAllBytes(Path.of(second.fileNames.get(i))))
+                    .isEqualTo(Files.readAllBytes(Path.of(first.fileNames.get(i))));
+        }
+    }
+
+    @Test
+    @DisplayName("Every counting mode finds the matches the generator wrote")
+    void testAllModesCountTheMatches() throws Exception {
+        final var corpus = generator(1).generate(root);
+        assertThat(corpus.matches).isPositive();
+        final var harness = new ThroughputHarness(root, 1);
+        for (final var mode : harness.modes()) {
+            assertThat(harness.measure(mode, corpus).count).as(mode).isEqualTo(corpus.matches);
+        }
+    }
+
+    @Test
+    @DisplayName("The empty lines are generated with the given density")
+    void testEmptyLines() throws IOException {
+        final var corpus = generator(3).emptyLineDensity(0.1).generate(root);
+        assertThat(corpus.emptyLines).isPositive();
+        final var thrown = catchThrowableOfType(() -> new ProjectWtfCounter(corpus.lister()).count(), FileNumberedLinesAreEmpty.class);
+        assertThat((long) thrown.getSuppressed().length).isEqualTo(corpus.filesWithEmptyLines);
+        long emptyLines = 0;
+        for (final var file : thrown.getSuppressed()) {
+            emptyLines += file.getCause().getSuppressed().length;
+        }
+        assertThat(emptyLines).isEqualTo(corpus.emptyLines);
+    }
+}
@@ -0,0 +1,98 @@
+package javax0.blog.demo.throwable.corpus;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures every mode of the {@link ThroughputHarness} and fails if a mode is slower or uses more heap than the
+ * baseline allows. The absolute speed depends on the machine, thus the speed of a mode is compared as its ratio to the
+ * speed of the {@value #REFERENCE} mode measured in the same run. The test runs only with {@code -Dthroughput=true},
+ * the {@code throughput} profile of the pom sets it. The baseline is {@code throughput-baseline.properties} on the
+ * test class path or the file given in {@code -Dthroughput.baseline}. A mode fails if its ratio drops below
+ * {@code 1 - threshold} times the baseline ratio or its peak heap grows above {@code 1 + threshold} times the
+ * baseline, the threshold is {@code -Dthroughput.threshold}, by default 0.5. The heap gets {@value #HEAP_SLACK_MB} MB
+ * more, a few megabytes of the young generation make a small peak noisy. The measured numbers are written to
+ * {@code target/throughput.properties} in the format of the baseline.
+ * <p>
+ * The parallel modes gain more over the sequential reference on a machine with more cores. The baseline is taken on
+ * a single core, thus a machine with more cores only measures higher ratios.
+ */
+@EnabledIfSystemProperty(named = "throughput", matches = "true")
+public class TestThroughputRegression {
+    private static final int HEAP_SLACK_MB = 16;
+    private static final String REFERENCE = "v4";
+
+    @TempDir
+    Path root;
+
+    @Test
+    @DisplayName("No counting mode is slower relative to the reference or uses more heap than the baseline allows")
+    void testNoRegression() throws Exception {
+        final var baseline = baseline();
+        final double threshold = Double.parseDouble(System.getProperty("throughput.threshold", "0.5"));
+        final var corpus = new CorpusGenerator(42).generate(root);
+        final var harness = new ThroughputHarness(root, 3);
+        final var results = new ArrayList<ThroughputHarness.Result>();
+        for (final var mode : harness.modes()) {
+            final var result = harness.measure(mode, corpus);
+            System.out.println(result);
+            assertThat(result.count).as(mode).isEqualTo(corpus.matches);
+            results.add(result);
+        }
+        // the reference is measured again when everything is warm, the first measured mode runs on colder code
+        final double referenceSpeed = results.stream()
+                .filter(result -> result.mode.equals(REFERENCE))
+                .mapToDouble(result -> result.megabytesPerSecond)
+                .max().orElseThrow();
+        final double reference = Math.max(referenceSpeed, harness.measure(REFERENCE, corpus).megabytesPerSecond);
+        final var measured = new Properties();
+        final var regressions = new ArrayList<String>();
+        for (final var result : results) {
+            final var mode = result.mode;
+            final double ratio = result.megabytesPerSecond / reference;
+            final long heap = result.peakHeapBytes >> 20;
+            measured.setProperty(mode + ".ratio", String.format(Locale.ROOT, "%.2f", ratio));
+            measured.setProperty(mode + ".heap", Long.toString(heap));
+            final var baselineRatio = baseline.getProperty(mode + ".ratio");
+            if (baselineRatio != null && ratio < (1 - threshold) * Double.parseDouble(baselineRatio)) {
+                regressions.add(String.format("%s: %.2f times the speed of %s, the baseline is %s", mode, ratio, REFERENCE, baselineRatio));
+            }
+            final var baselineHeap = baseline.getProperty(mode + ".heap");
+            if (baselineHeap != null && heap > (1 + threshold) * Double.parseDouble(baselineHeap) + HEAP_SLACK_MB) {
+                regressions.add(String.format("%s: %d MB peak heap, the baseline is %s MB", mode, heap, baselineHeap));
+            }
+        }
+        final var target = Path.of("target");
+        if (Files.isDirectory(target)) {
+            try (final var out = Files.newOutputStream(target.resolve("throughput.properties"))) {
+                measured.store(out, "TestThroughputRegression, " + corpus);
+            }
+        }
+        assertThat(regressions).isEmpty();
+    }
+
+    private static Properties baseline() throws IOException {
+        final var properties = new Properties();
+        final var file = System.getProperty("throughput.baseline");
+        try (final InputStream in = file == null || file.isEmpty()
+                ? TestThroughputRegression.class.getResourceAsStream("/throughput-baseline.properties")
+                : Files.newInputStream(Path.of(file))) {
+            if (in != null) {
+                properties.load(in);
+            }
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,177 @@
+package javax0.blog.demo.throwable.corpus;
+
+import javax0.blog.demo.throwable.async.AsyncProjectWtfCounter;
+import javax0.blog.demo.throwable.index.WtfIndexer;
+import javax0.blog.demo.throwable.parallel.ProjectWtfCounter;
+import javax0.blog.demo.throwable.pipeline.PipelinedProjectWtfCounter;
+import javax0.blog.demo.throwable.schedule.ScheduledProjectWtfCounter;
+import javax0.blog.demo.throwable.sneaky.ThrowingFunction;
+import javax0.blog.demo.throwable.store.ResultStore;
+import javax0.blog.demo.throwable.store.StoringProjectWtfCounter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Runs every counting mode over a {@link Corpus} and measures the files per second, the megabytes per second and
+ * the peak heap usage. The v1 to v4 counters read hard coded file contents, the harness gives them a
+ * {@code FileReader} that reads the real file and runs the loop of their {@code ProjectWtfCounter}. An exception
+ * stops only the counting of its file, otherwise v1 to v3 would stop at the first empty line.
+ * <p>
+ * {@link #main} prints the table for a corpus generated with the default settings.
+ */
+class ThroughputHarness {
+    static class Result {
+        final String mode;
+        final long count;
+        final double filesPerSecond;
+        final double megabytesPerSecond;
+        final long peakHeapBytes;
+
+        Result(String mode, long count, double filesPerSecond, double megabytesPerSecond, long peakHeapBytes) {
+            this.mode = mode;
+            this.count = count;
+            this.filesPerSecond = filesPerSecond;
+            this.megabytesPerSecond = megabytesPerSecond;
+            this.peakHeapBytes = peakHeapBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-10s %10d matches %10.0f files/s %8.1f MB/s %6d MB peak heap",
+                    mode, count, filesPerSecond, megabytesPerSecond, peakHeapBytes >> 20);
+        }
+    }
+
+    private final Map<String, ThrowingFunction<Corpus, Long, Exception>> modes = new LinkedHashMap<>();
+    private final int runs;
+
+    /**
+     * @param work    a directory for the files the modes write, like the index
+     * @param runs    the number of measured runs of a mode, the best one counts, there is one warm-up run before
+     */
+    ThroughputHarness(Path work, int runs) {
+        this.runs = runs;
+        modes.put("v1", versioned(name -> new javax0.blog.demo.throwable.v1.FileWtfCounter(
+                new javax0.blog.demo.throwable.v1.FileReader(name) {
+                    @Override
+                    public List<String> list() {
+                        return read(name);
+                    }
+                }).count()));
+        modes.put("v2", versioned(name -> new javax0.blog.demo.throwable.v2.FileWtfCounter(
+                new javax0.blog.demo.throwable.v2.FileReader(name) {
+                    @Override
+                    public List<String> list() {
+                        return read(name);
+                    }
+                }).count()));
+        modes.put("v3", versioned(name -> new javax0.blog.demo.throwable.v3.FileWtfCounter(
+                new javax0.blog.demo.throwable.v3.FileReader(name) {
+                    @Override
+                    public List<String> list() {
+                        return read(name);
+                    }
+                }).count()));
+        modes.put("v4", versioned(name -> new javax0.blog.demo.throwable.v4.FileWtfCounter(
+                new javax0.blog.demo.throwable.v4.FileReader(name) {
+                    @Override
+                    public List<String> list() {
+                        return read(name);
+                    }
+                }).count()));
+        modes.put("parallel", corpus -> (long) new ProjectWtfCounter(corpus.lister()).count());
+        modes.put("pipeline", corpus -> (long) new PipelinedProjectWtfCounter(corpus.lister()).count());
+        modes.put("async", corpus -> (long) new AsyncProjectWtfCounter(corpus.lister()).count());
+        modes.put("scheduled", corpus -> (long) new ScheduledProjectWtfCounter(corpus.lister()).count());
+        modes.put("store", corpus -> new StoringProjectWtfCounter(corpus.lister(),
+                ResultStore.allocate(corpus.fileNames.size(), (int) Math.min(Integer.MAX_VALUE, 4 * corpus.bytes))).count());
+        modes.put("index", corpus -> new WtfIndexer(corpus.lister()).build(work.resolve("index.bin")).total());
+    }
+
+    private static List<String> read(String fileName) {
+        try {
+            return Files.readAllLines(Path.of(fileName), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ThrowingFunction<Corpus, Long, Exception> versioned(ToIntFunction<String> fileCounter) {
+        return corpus -> {
+            long sum = 0;
+            for (final var fileName : corpus.fileNames) {
+                try {
+                    sum += fileCounter.applyAsInt(fileName);
+                } catch (RuntimeException e) {
+                    // the file has an empty line, its count is lost the same way as in the article
+                }
+            }
+            return sum;
+        };
+    }
+
+    List<String> modes() {
+        return List.copyOf(modes.keySet());
+    }
+
+    Result measure(String mode, Corpus corpus) throws Exception {
+        final var counter = modes.get(mode);
+        long count = counter.apply(corpus);
+        long best = Long.MAX_VALUE;
+        long peak = 0;
+        for (int i = 0; i < runs; i++) {
+            resetPeakHeap();
+            final long start = System.nanoTime();
+            count = counter.apply(corpus);
+            best = Math.min(best, System.nanoTime() - start);
+            peak = Math.max(peak, peakHeap());
+        }
+        final double seconds = best / 1e9;
+        return new Result(mode, count, corpus.fileNames.size() / seconds, corpus.bytes / seconds / 1e6, peak);
+    }
+
+    private static void resetPeakHeap() {
+        System.gc();
+        for (final var pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * @return the sum of the peak usages of the heap pools, the pools do not peak at the same time, thus it is an
+     * upper estimate
+     */
+    private static long peakHeap() {
+        long peak = 0;
+        for (final var pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final var root = Files.createTempDirectory("corpus");
+        final var corpus = new CorpusGenerator(args.length > 0 ? Long.parseLong(args[0]) : 42)
+                .emptyLineDensity(args.length > 1 ? Double.parseDouble(args[1]) : 0)
+                .generate(root);
+        System.out.println(corpus);
+        final var harness = new ThroughputHarness(root, 3);
+        for (final var mode : harness.modes()) {
+            System.out.println(harness.measure(mode, corpus));
+        }
+    }
+}
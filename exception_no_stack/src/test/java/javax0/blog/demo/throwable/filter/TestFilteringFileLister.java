@@ -0,0 +1,104 @@
+package javax0.blog.demo.throwable.filter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestFilteringFileLister {
+
+    @TempDir
+    Path root;
+
+    private void file(String name, String content) throws IOException {
+        final var file = root.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private List<String> list(PathFilter filter) {
+        return new FilteringFileLister(root, filter).list().stream()
+                .map(f -> root.relativize(Path.of(f)).toString().replace('\\', '/'))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Excluded directories are pruned, regex and glob rules are applied")
+    void testExcludes() throws IOException {
+        file("a.txt", "wtf");
+        file(".git/config", "wtf");
+        file("target/classes/x.txt", "wtf");
+        file("src/b.java", "wtf");
+        file("src/b.log", "wtf");
+        assertThat(list(new PathFilter().ignore("\\.git", "target").exclude("*.log")))
+                .containsExactly("a.txt", "src/b.java");
+    }
+
+    @Test
+    @DisplayName("Include globs restrict the listed files")
+    void testIncludes() throws IOException {
+        file("a.txt", "wtf");
+        file("src/b.java", "wtf");
+        file("src/deep/c.java", "wtf");
+        assertThat(list(new PathFilter().include("*.java")))
+                .containsExactly("src/b.java", "src/deep/c.java");
+        assertThat(list(new PathFilter().include("src/**/c.java")))
+                .containsExactly("src/deep/c.java");
+    }
+
+    @Test
+    @DisplayName(".gitignore files are honored with negation, anchoring and nesting")
+    void testGitIgnore() throws IOException {
+        file(".gitignore", "# comment\n/build/\n*.tmp\n!keep.tmp\nsrc/gen\n");
+        file("build/a.txt", "wtf");
+        file("sub/build/a.txt", "wtf");
+        file("x.tmp", "wtf");
+        file("keep.tmp", "wtf");
+        file("src/gen/g.java", "wtf");
+        file("sub/.gitignore", "*.txt\n");
+        file("sub/s.txt", "wtf");
+        file("sub/s.java", "wtf");
+        assertThat(list(new PathFilter().gitIgnore()))
+                .containsExactly(".gitignore", "keep.tmp", "sub/.gitignore", "sub/s.java");
+    }
+
+    @Test
+    @DisplayName("Directory only include globs include the files below the matching directories")
+    void testDirectoryOnlyIncludes() throws IOException {
+        file("gen", "wtf");
+        file("src/gen/a.java", "wtf");
+        file("src/b.java", "wtf");
+        assertThat(list(new PathFilter().include("gen/")))
+                .containsExactly("src/gen/a.java");
+    }
+
+    @Test
+    @DisplayName("Empty character classes are literal and invalid lines of .gitignore are ignored")
+    void testOddGitIgnoreLines() throws IOException {
+        file(".gitignore", "[!]\n[]\n[z-a].txt\n*.tmp\n");
+        file("[!]", "wtf");
+        file("[]", "wtf");
+        file("a.txt", "wtf");
+        file("x.tmp", "wtf");
+        assertThat(list(new PathFilter().gitIgnore()))
+                .containsExactly(".gitignore", "a.txt");
+        assertThat(IgnoreRule.globToRegex("[!]]")).isEqualTo("[^\\]]");
+    }
+
+    @Test
+    @DisplayName("Binary files are skipped")
+    void testBinary() throws IOException {
+        file("a.txt", "wtf");
+        Files.write(root.resolve("b.bin"), new byte[]{'w', 't', 'f', 0, 1, 2});
+        assertThat(list(new PathFilter().ignoreBinary())).containsExactly("a.txt");
+        assertThat(list(new PathFilter())).containsExactly("a.txt", "b.bin");
+    }
+}
@@ -0,0 +1,35 @@
+package javax0.blog.demo.throwable.hash;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestXxHash64 {
+
+    private static long hash(String s, long seed) {
+        return XxHash64.hash(s.getBytes(StandardCharsets.US_ASCII), seed);
+    }
+
+    @Test
+    @DisplayName("Hashes to the values of the reference implementation")
+    void testReferenceValues() {
+        assertThat(hash("", 0)).isEqualTo(0xEF46DB3751D8E999L);
+        assertThat(hash("a", 0)).isEqualTo(0xD24EC4F1A98C6E5BL);
+        assertThat(hash("abc", 0)).isEqualTo(0x44BC2CF5AD770999L);
+        assertThat(hash("Nobody inspects the spammish repetition", 0)).isEqualTo(0xFBCEA83C8A378BF1L);
+        assertThat(hash("xxhash", 20141025)).isEqualTo(0xB559B98D844E0635L);
+    }
+
+    @Test
+    @DisplayName("Hashes the bytes between the position and the limit and leaves the position")
+    void testBufferRegion() {
+        final var bytes = "..Nobody inspects the spammish repetition..".getBytes(StandardCharsets.US_ASCII);
+        final var buffer = ByteBuffer.wrap(bytes, 2, bytes.length - 4);
+        assertThat(XxHash64.hash(buffer, 0)).isEqualTo(0xFBCEA83C8A378BF1L);
+        assertThat(buffer.position()).isEqualTo(2);
+    }
+}
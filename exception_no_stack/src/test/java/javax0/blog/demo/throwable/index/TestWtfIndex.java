@@ -0,0 +1,95 @@
+package javax0.blog.demo.throwable.index;
+
+import javax0.blog.demo.throwable.FileLister;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestWtfIndex {
+
+    @TempDir
+    Path root;
+
+    private final List<String> fileNames = new ArrayList<>();
+
+    private Path write(String name, String content) throws IOException {
+        final var file = root.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        if (!fileNames.contains(file.toString())) {
+            fileNames.add(file.toString());
+        }
+        return file;
+    }
+
+    private FileLister lister() {
+        return new FileLister() {
+            @Override
+            public List<String> list() {
+                return new ArrayList<>(fileNames);
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("The index knows the position of every match and the counts of the directories")
+    void testQueries() throws IOException {
+        final var a = write("a/x.txt", "wtf wtfwtf\n\nno match\n" + "x".repeat(200) + "wtf\n");
+        write("a/b/y.txt", "nothing\n");
+        final var c = write("c/z.txt", "wtf\n");
+        final var index = new WtfIndexer(lister()).build(root.resolve("index.bin"));
+
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.total()).isEqualTo(5);
+        final int ax = index.find(a.toString());
+        assertThat(index.count(ax)).isEqualTo(4);
+        assertThat(index.positions(ax)).containsExactly(
+                new Position(1, 1), new Position(1, 5), new Position(1, 8), new Position(4, 201));
+        assertThat(index.lines(ax)).containsExactly(1, 4);
+        assertThat(index.find(root.resolve("nope.txt").toString())).isEqualTo(-1);
+
+        assertThat(index.countUnder(root.resolve("a").toString())).isEqualTo(4);
+        assertThat(index.countUnder(root.resolve("a/b").toString())).isEqualTo(0);
+        assertThat(index.countUnder(root.toString())).isEqualTo(5);
+        assertThat(index.countUnder("")).isEqualTo(5);
+        assertThat(index.filesUnder(root.toString())).containsExactly(a.toString(), c.toString());
+    }
+
+    @Test
+    @DisplayName("Updating the index reads only the changed files")
+    void testUpdate() throws IOException {
+        final var indexFile = root.resolve("index.bin");
+        final var a = write("a.txt", "wtf\n");
+        write("b.txt", "wtf wtf\n");
+        final var indexer = new WtfIndexer(lister());
+        indexer.build(indexFile);
+        assertThat(indexer.scanned()).isEqualTo(2);
+
+        final var time = Files.getLastModifiedTime(a);
+        write("a.txt", "xxx\n");
+        Files.setLastModifiedTime(a, time);
+        final var c = write("c.txt", "wtf wtf wtf\n");
+        var index = indexer.update(indexFile);
+        assertThat(indexer.scanned()).isEqualTo(1);
+        // same size and time, the old postings are kept
+        assertThat(index.count(index.find(a.toString()))).isEqualTo(1);
+        assertThat(index.total()).isEqualTo(6);
+
+        Files.setLastModifiedTime(a, FileTime.fromMillis(time.toMillis() + 2000));
+        fileNames.remove(c.toString());
+        index = indexer.update(indexFile);
+        assertThat(indexer.scanned()).isEqualTo(1);
+        assertThat(index.count(index.find(a.toString()))).isEqualTo(0);
+        assertThat(index.find(c.toString())).isEqualTo(-1);
+        assertThat(index.total()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,95 @@
+package javax0.blog.demo.throwable.match;
+
+import javax0.blog.demo.throwable.FileLister;
+import javax0.blog.demo.throwable.async.AsyncProjectWtfCounter;
+import javax0.blog.demo.throwable.parallel.ProjectWtfCounter;
+import javax0.blog.demo.throwable.pipeline.PipelinedProjectWtfCounter;
+import javax0.blog.demo.throwable.schedule.ScheduledProjectWtfCounter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestWtfMatcher {
+
+    private static final String LINE = "WTF wtf Wtf wtfs wtf_x (wtf) xwtf wtfwtf \u00dcnwtf wtf";
+
+    private static int count(WtfMatcher matcher, String line) {
+        final int count = matcher.count(line);
+        final var bytes = ("#" + line + "#").getBytes(StandardCharsets.UTF_8);
+        assertThat(matcher.count(bytes, 1, bytes.length - 1)).as("byte count of '%s'", line).isEqualTo(count);
+        return count;
+    }
+
+    @Test
+    @DisplayName("Without options the matcher counts like LineWtfCounter")
+    void testPlain() {
+        assertThat(count(new WtfMatcher(), LINE)).isEqualTo(9);
+        assertThat(count(new WtfMatcher(), "wtfwtfwtf")).isEqualTo(3);
+        assertThat(count(new WtfMatcher(), "wt")).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("The case can be ignored and the match restricted to whole words")
+    void testOptions() {
+        assertThat(count(new WtfMatcher().ignoreCase(), LINE)).isEqualTo(11);
+        assertThat(count(new WtfMatcher().wholeWord(), LINE)).isEqualTo(3);
+        assertThat(count(new WtfMatcher().ignoreCase().wholeWord(), LINE)).isEqualTo(5);
+        assertThat(count(new WtfMatcher().wholeWord(), "wtf")).isEqualTo(1);
+        assertThat(count(new WtfMatcher().wholeWord(), "wtfwtf wtf")).isEqualTo(1);
+        assertThat(count(new WtfMatcher("isn't").ignoreCase(), "ISN'T isn't Isn'tisn't isn")).isEqualTo(4);
+        assertThat(count(new WtfMatcher("isn't").ignoreCase().wholeWord(), "ISN'T isn't Isn'tisn't isn")).isEqualTo(2);
+        assertThat(count(new WtfMatcher("\u00c4\u00d6").ignoreCase(), "\u00e4\u00f6 \u00c4\u00d6")).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("The byte count decodes the characters around the matches and folds like the String count")
+    void testNonAscii() {
+        final var wholeWord = new WtfMatcher().wholeWord();
+        assertThat(count(wholeWord, "wtf\u2014wtf")).isEqualTo(2);
+        assertThat(count(wholeWord, "\u00abwtf\u00bb \u00fcwtf wtf\u00e9 \u4e2dwtf wtf\u3002")).isEqualTo(2);
+        assertThat(count(wholeWord, "\ud835\udc00wtf wtf\ud83d\ude00")).isEqualTo(1);
+        assertThat(count(new WtfMatcher().ignoreCase().wholeWord(), "WTF\u2014wTf \u00e9WTF")).isEqualTo(2);
+        final var kelvin = new WtfMatcher("ok").ignoreCase();
+        assertThat(count(kelvin, "o\u212a OK ok")).isEqualTo(3);
+        assertThat(count(kelvin.wholeWord(), "o\u212a\u00e9 o\u212a-x")).isEqualTo(1);
+        assertThat(count(new WtfMatcher("is").ignoreCase(), "\u0130S \u0131s i\u017f IS")).isEqualTo(4);
+        assertThat(count(new WtfMatcher("\ud83d\ude00x").ignoreCase(), "\ud83d\ude00X \ud83d\ude00x")).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("All the byte counting counters count the same as the parallel counter for non-ASCII text")
+    void testCountersAgree(@TempDir Path root) throws IOException {
+        final var fileNames = new ArrayList<String>();
+        final var contents = new String[]{
+                "wtf\u2014wtf WTF\u00e9 \u00e9wtf\nWtf \u00abwtf\u00bb\n",
+                "\u4e2dwtf wTf\u3002 wtf_ wtfs\nx\u2014WTF\u2014x\n"};
+        for (int i = 0; i < contents.length; i++) {
+            final var file = root.resolve(i + ".txt");
+            Files.writeString(file, contents[i]);
+            fileNames.add(file.toString());
+        }
+        final var lister = new FileLister() {
+            @Override
+            public List<String> list() {
+                return fileNames;
+            }
+        };
+        for (final var matcher : List.of(new WtfMatcher(), new WtfMatcher().wholeWord(), new WtfMatcher().ignoreCase(),
+                new WtfMatcher().ignoreCase().wholeWord())) {
+            final int expected = new ProjectWtfCounter(lister, matcher).count();
+            assertThat(new PipelinedProjectWtfCounter(lister, matcher).count()).isEqualTo(expected);
+            assertThat(new AsyncProjectWtfCounter(lister, matcher).count()).isEqualTo(expected);
+            assertThat(new ScheduledProjectWtfCounter(lister, matcher).count()).isEqualTo(expected);
+        }
+        assertThat(new ProjectWtfCounter(lister, new WtfMatcher().ignoreCase().wholeWord()).count()).isEqualTo(6);
+    }
+}
@@ -0,0 +1,85 @@
+package javax0.blog.demo.throwable.match;
+
+import javax0.blog.demo.throwable.v4.LineWtfCounter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the matching options to the plain {@link LineWtfCounter} and to the lower case copy plus regular
+ * expression way. Run it with the {@code main} method, the options should not allocate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WtfMatcherBenchmark {
+
+    private String line;
+    private WtfMatcher plain;
+    private WtfMatcher ignoreCase;
+    private WtfMatcher ignoreCaseWholeWord;
+    private Pattern wholeWord;
+
+    @Setup
+    public void setup() {
+        line = "    final var wtf = counter.count(); // WTF is this, the Wtfs are counted elsewhere wtf";
+        plain = new WtfMatcher();
+        ignoreCase = new WtfMatcher().ignoreCase();
+        ignoreCaseWholeWord = new WtfMatcher().ignoreCase().wholeWord();
+        wholeWord = Pattern.compile("\\bwtf\\b");
+    }
+
+    @Benchmark
+    public int lineWtfCounter() {
+        return new LineWtfCounter(line).count();
+    }
+
+    @Benchmark
+    public int plainMatcher() {
+        return plain.count(line);
+    }
+
+    @Benchmark
+    public int ignoreCaseMatcher() {
+        return ignoreCase.count(line);
+    }
+
+    @Benchmark
+    public int ignoreCaseWholeWordMatcher() {
+        return ignoreCaseWholeWord.count(line);
+    }
+
+    @Benchmark
+    public int lowerCaseRegex() {
+        final var matcher = wholeWord.matcher(line.toLowerCase());
+        int count = 0;
+        while (matcher.find()) {
+            count++;
+        }
+        return count;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(WtfMatcherBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
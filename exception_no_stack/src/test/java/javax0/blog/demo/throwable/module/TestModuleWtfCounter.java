@@ -0,0 +1,124 @@
+package javax0.blog.demo.throwable.module;
+
+import javax0.blog.demo.throwable.filter.FilteringFileLister;
+import javax0.blog.demo.throwable.filter.PathFilter;
+import javax0.blog.demo.throwable.parallel.ProjectWtfCounter;
+import javax0.blog.demo.throwable.service.CountingService;
+import javax0.blog.demo.throwable.v4.FileNumberedLinesAreEmpty;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static javax0.blog.demo.throwable.v4.SuppressedMessages.messages;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class TestModuleWtfCounter {
+
+    @TempDir
+    Path root;
+
+    private void write(String name, String content) throws IOException {
+        final var file = root.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    /**
+     * A parent pom with two modules, one of them Gradle with a nested Maven module, and a directory that is not a
+     * module.
+     */
+    private void project() throws IOException {
+        write("pom.xml", "<project/>\n");
+        write("README.md", "wtf\n");
+        write("docs/guide.md", "wtf wtf\n");
+        write("core/pom.xml", "<project/>\n");
+        write("core/src/main/A.java", "wtf wtf wtf\nwtf\n");
+        write("core/target/Generated.java", "wtf\n");
+        write("app/build.gradle", "// wtf\n");
+        write("app/src/B.java", "wtf wtf\n");
+        write("app/plugin/pom.xml", "<project/>\n");
+        write("app/plugin/src/C.java", "wtf\n");
+    }
+
+    private PathFilter filter() {
+        return new PathFilter().exclude("target");
+    }
+
+    @Test
+    @DisplayName("The files are counted by the deepest module they are in")
+    void testModules() throws IOException {
+        project();
+        final var report = new ModuleWtfCounter(root, filter()).modules(2).threadsPerModule(2).count();
+        assertThat(report.modules()).extracting(ModuleResult::name).containsExactly(".", "app", "app/plugin", "core");
+        assertThat(report.module(".").count()).isEqualTo(3);
+        assertThat(report.module(".").files()).isEqualTo(3);
+        assertThat(report.module("core").count()).isEqualTo(4);
+        assertThat(report.module("core").root()).isEqualTo(root.resolve("core"));
+        assertThat(report.module("app").count()).isEqualTo(3);
+        assertThat(report.module("app/plugin").count()).isEqualTo(1);
+        assertThat(report.total()).isEqualTo(11)
+                .isEqualTo(new ProjectWtfCounter(new FilteringFileLister(root, filter())).count());
+        report.throwIfAny();
+        assertThat(report.module("missing")).isNull();
+    }
+
+    @Test
+    @DisplayName("Without a build file the whole directory is one module")
+    void testNoModules() throws IOException {
+        write("a.txt", "wtf\n");
+        write("sub/b.txt", "wtf wtf\n");
+        final var report = new ModuleWtfCounter(root, new PathFilter()).count();
+        assertThat(report.modules()).extracting(ModuleResult::name).containsExactly(".");
+        assertThat(report.total()).isEqualTo(3);
+        assertThat(new ModuleWtfCounter(root, new PathFilter()).markers("b.txt").count().modules())
+                .extracting(ModuleResult::name).containsExactly(".", "sub");
+    }
+
+    @Test
+    @DisplayName("The empty lines are reported by module, the other modules are counted")
+    void testEmptyLines() throws IOException {
+        project();
+        write("core/src/main/Empty.java", "wtf\n\nwtf\n\n");
+        write("app/src/Empty.java", "\nwtf\n");
+        final var report = new ModuleWtfCounter(root, filter()).count();
+        assertThat(report.module(".").emptyLines()).isNull();
+        assertThat(report.module("app/plugin").emptyLines()).isNull();
+        assertThat(report.module("core").count()).isEqualTo(4);
+        assertThat(messages(report.module("core").emptyLines())).hasSize(1)
+                .allMatch(m -> m.contains("Empty.java") && m.contains("line 2.") && m.contains("line 4."));
+        assertThat(report.module("app").emptyLines().getSuppressed()).hasSize(1);
+        assertThat(report.total()).isEqualTo(11);
+
+        final var thrown = catchThrowable(report::throwIfAny);
+        assertThat(thrown).isInstanceOf(FileNumberedLinesAreEmpty.class);
+        assertThat(messages(thrown)).containsExactlyInAnyOrderElementsOf(
+                messages(catchThrowable(() -> new ProjectWtfCounter(new FilteringFileLister(root, filter())).count())));
+    }
+
+    @Test
+    @DisplayName("A file with empty lines counts zero, the total is the same as in the other counters")
+    void testTotalWithEmptyLines() throws IOException {
+        project();
+        write("core/src/main/Empty.java", "wtf\n\nwtf\n");
+        write("app/plugin/src/Empty.java", "wtf wtf\n\n");
+        final var report = new ModuleWtfCounter(root, filter()).count();
+        assertThat(report.total())
+                .isEqualTo(new ProjectWtfCounter(new FilteringFileLister(root, filter().exclude("Empty.java"))).count())
+                .isEqualTo(new CountingService().count(root, List.of(), false, false).total);
+    }
+
+    @Test
+    @DisplayName("The configuration is checked")
+    void testConfiguration() {
+        final var counter = new ModuleWtfCounter(root, new PathFilter());
+        assertThat(catchThrowable(() -> counter.modules(0))).isInstanceOf(IllegalArgumentException.class);
+        assertThat(catchThrowable(() -> counter.threadsPerModule(0))).isInstanceOf(IllegalArgumentException.class);
+        assertThat(catchThrowable(counter::markers)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
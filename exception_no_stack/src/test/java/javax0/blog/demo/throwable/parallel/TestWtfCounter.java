@@ -0,0 +1,128 @@
+package javax0.blog.demo.throwable.parallel;
+
+import javax0.blog.demo.throwable.FileLister;
+import javax0.blog.demo.throwable.v4.ExceptionStructurePrettyPrinter;
+import javax0.blog.demo.throwable.v4.FileNumberedLineEmpty;
+import javax0.blog.demo.throwable.v4.FileNumberedLinesAreEmpty;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.MalformedInputException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static javax0.blog.demo.throwable.v4.SuppressedMessages.messages;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class TestWtfCounter {
+
+    @TempDir
+    Path root;
+
+    private FileLister lister(String... contents) throws IOException {
+        final var fileNames = new ArrayList<String>();
+        int i = 0;
+        for (final var content : contents) {
+            final var file = root.resolve("f" + i++ + ".txt");
+            Files.writeString(file, content);
+            fileNames.add(file.toString());
+        }
+        return listerOf(fileNames);
+    }
+
+    private static FileLister listerOf(List<String> fileNames) {
+        return new FileLister() {
+            @Override
+            public List<String> list() {
+                return fileNames;
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("Counts the files in parallel")
+    void testCounting() throws IOException {
+        final var contents = new String[100];
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = "wtf wtf\nwtf something\nnothing\n";
+        }
+        assertThat(new ProjectWtfCounter(lister(contents)).count()).isEqualTo(300);
+    }
+
+    @Test
+    @DisplayName("Collects the empty lines of all files from all threads")
+    void testThrowing() throws IOException {
+        final var thrown = catchThrowable(() ->
+                new ProjectWtfCounter(lister(
+                        "wtf wtf\nwtf something\n\nnothing\n",
+                        "wtf wtf wtf\n\nwtf something wtf\nnothing wtf\n\n",
+                        "wtf\n"))
+                        .count());
+        assertThat(thrown).isInstanceOf(FileNumberedLinesAreEmpty.class);
+        assertThat(thrown.getSuppressed()).hasSize(2).allMatch(t -> t instanceof FileNumberedLineEmpty);
+        System.out.println(new ExceptionStructurePrettyPrinter(thrown).getMessage(4));
+    }
+
+    @Test
+    @DisplayName("Read errors are tunneled through the stream and take precedence")
+    void testIOException() throws IOException {
+        final var fileNames = new ArrayList<>(lister("\n", "wtf\n").list());
+        fileNames.add(root.resolve("nonexistent.txt").toString());
+        final var thrown = catchThrowable(() -> new ProjectWtfCounter(listerOf(fileNames)).count());
+        assertThat(thrown).isInstanceOf(IOException.class);
+        assertThat(thrown.getSuppressed()).hasSize(1).allMatch(t -> t instanceof NoSuchFileException);
+    }
+
+    @Test
+    @DisplayName("Identical files are counted once and reported under their own names")
+    void testDeduplicate() throws IOException {
+        final var large = "wtf wtf\nwtf something\nnothing\n".repeat(5000);
+        final var lister = lister(
+                "wtf wtf\nwtf something\n\nnothing\n",
+                "wtf wtf wtf\n\nwtf something wtf\nnothing wtf\n\n",
+                "wtf wtf wtf\n\nwtf something wtf\nnothing wtf\n\n",
+                large, large, large, "wtf\n", "wtf\r\n");
+        final var counter = new ProjectWtfCounter(lister).deduplicate();
+        final var thrown = catchThrowable(counter::count);
+        assertThat(counter.reused()).isEqualTo(3);
+        assertThat(thrown).isInstanceOf(FileNumberedLinesAreEmpty.class);
+        assertThat(messages(thrown)).containsExactlyInAnyOrderElementsOf(
+                messages(catchThrowable(() -> new ProjectWtfCounter(lister).count())));
+        assertThat(messages(thrown)).anyMatch(m -> m.contains("f2.txt") && m.contains("line 2.") && m.contains("line 5."));
+
+        final var clean = listerOf(lister.list().subList(3, 8));
+        final var cleanCounter = new ProjectWtfCounter(clean).deduplicate();
+        assertThat(cleanCounter.count()).isEqualTo(new ProjectWtfCounter(clean).count()).isEqualTo(45002);
+        assertThat(cleanCounter.reused()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("An invalid UTF-8 content is a read error for every copy")
+    void testDeduplicateInvalidContent() throws IOException {
+        final var a = root.resolve("a.txt");
+        final var b = root.resolve("b.txt");
+        Files.write(a, new byte[]{'w', 't', 'f', (byte) 0xC3, '\n'});
+        Files.copy(a, b);
+        final var thrown = catchThrowable(() -> new ProjectWtfCounter(listerOf(List.of(a.toString(), b.toString()))).deduplicate().count());
+        assertThat(thrown).isInstanceOf(IOException.class);
+        assertThat(thrown.getSuppressed()).hasSize(2).allMatch(t -> t instanceof MalformedInputException);
+    }
+
+    @Test
+    @DisplayName("The content is split into the same lines as the file")
+    void testContentLines() throws IOException {
+        final var contents = new String[]{"", "a", "a\n", "a\r\nb\rc\n\nd", "\r\n\r\n", "\r", "a\n\r\n\rb\r"};
+        final var lister = lister(contents);
+        for (final var fileName : lister.list()) {
+            final var content = ByteBuffer.wrap(Files.readAllBytes(Path.of(fileName)));
+            assertThat(new ContentReader(fileName, content).list()).isEqualTo(new FileReader(fileName).list());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package javax0.blog.demo.throwable.pipeline;
+
+import javax0.blog.demo.throwable.FileLister;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Throughput of the pipeline for different reader and scanner counts on storage of different speed. The storage
+ * latency is simulated: every read call of the readers waits {@code latencyMicros} before it returns the data
+ * from the page cache. Run it with the {@code main} method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+    private static final int FILES = 200;
+
+    @Param({"0", "200", "1000"})
+    public int latencyMicros;
+
+    @Param({"1x1", "4x1", "16x2"})
+    public String readersXscanners;
+
+    private Path root;
+    private FileLister lister;
+
+    @Setup
+    public void setup() throws IOException {
+        root = Files.createTempDirectory("pipeline");
+        final var fileNames = new ArrayList<String>();
+        final var content = "some code here; // wtf is this\n".repeat(2000);
+        for (int i = 0; i < FILES; i++) {
+            final var file = root.resolve(i + ".txt");
+            Files.writeString(file, content);
+            fileNames.add(file.toString());
+        }
+        lister = new FileLister() {
+            @Override
+            public List<String> list() {
+                return fileNames;
+            }
+        };
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (final var files = Files.walk(root)) {
+            for (final var file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public int pipeline() throws IOException {
+        final var split = readersXscanners.split("x");
+        return new PipelinedProjectWtfCounter(lister) {
+            @Override
+            protected ReadableByteChannel open(String fileName) throws IOException {
+                return new SlowChannel(super.open(fileName), latencyMicros);
+            }
+        }.readers(Integer.parseInt(split[0])).scanners(Integer.parseInt(split[1])).count();
+    }
+
+    private static class SlowChannel implements ReadableByteChannel {
+        private final ReadableByteChannel channel;
+        private final long latencyNanos;
+
+        private SlowChannel(ReadableByteChannel channel, int latencyMicros) {
+            this.channel = channel;
+            this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (latencyNanos > 0) {
+                LockSupport.parkNanos(latencyNanos);
+            }
+            return channel.read(dst);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PipelineBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,178 @@
+package javax0.blog.demo.throwable.pipeline;
+
+import javax0.blog.demo.throwable.FileLister;
+import javax0.blog.demo.throwable.parallel.ProjectWtfCounter;
+import javax0.blog.demo.throwable.v4.FileNumberedLinesAreEmpty;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static javax0.blog.demo.throwable.v4.SuppressedMessages.messages;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class TestPipelinedWtfCounter {
+
+    @TempDir
+    Path root;
+
+    private FileLister lister(String... contents) throws IOException {
+        final var fileNames = new ArrayList<String>();
+        int i = 0;
+        for (final var content : contents) {
+            final var file = root.resolve("f" + i++ + ".txt");
+            Files.writeString(file, content);
+            fileNames.add(file.toString());
+        }
+        return new FileLister() {
+            @Override
+            public List<String> list() {
+                return fileNames;
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("Small buffers, several readers and scanners count the same as the parallel counter")
+    void testSameAsParallel() throws IOException {
+        final var longLine = "wtf ".repeat(100);
+        final var contents = new String[20];
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = "wtf wtf\r\nnothing\nwtfwtf\n" + longLine + "\n" + "x wtf\n".repeat(i);
+        }
+        final var lister = lister(contents);
+        final int expected = new ProjectWtfCounter(lister).count();
+        for (final int bufferSize : new int[]{16, 100, 1 << 16}) {
+            assertThat(new PipelinedProjectWtfCounter(lister).readers(3).scanners(2).bufferSize(bufferSize).ringSize(4).count())
+                    .as("buffer size %d", bufferSize).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    @DisplayName("Empty lines are reported with the right line numbers even when split into many chunks")
+    void testEmptyLines() throws IOException {
+        final var lister = lister("wtf\n\nwtf wtf\n" + "a line\n".repeat(10) + "\r\n", "wtf\n", "\n\n");
+        final var expected = catchThrowable(() -> new ProjectWtfCounter(lister).count());
+        final var actual = catchThrowable(() -> new PipelinedProjectWtfCounter(lister).readers(2).scanners(2).bufferSize(8).count());
+        assertThat(actual).isInstanceOf(FileNumberedLinesAreEmpty.class);
+        assertThat(messages(actual)).containsExactlyInAnyOrderElementsOf(messages(expected)).hasSize(2);
+        assertThat(messages(actual).toString()).contains("line 14.");
+    }
+
+    @Test
+    @DisplayName("A lone \\r does not end a line and the bytes are not decoded, unlike in the parallel counter")
+    void testDifferencesFromParallel() throws IOException {
+        final var lister = lister("wtf\r\rwtf\n");
+        assertThat(catchThrowable(() -> new ProjectWtfCounter(lister).count())).isInstanceOf(FileNumberedLinesAreEmpty.class);
+        assertThat(new PipelinedProjectWtfCounter(lister).count()).isEqualTo(2);
+
+        final var malformed = lister("");
+        Files.write(Path.of(malformed.list().get(0)), new byte[]{'w', 't', 'f', ' ', (byte) 0xC3, '\n'});
+        assertThat(catchThrowable(() -> new ProjectWtfCounter(malformed).count())).isInstanceOf(IOException.class);
+        assertThat(new PipelinedProjectWtfCounter(malformed).count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("A missing file is reported as an IOException")
+    void testMissingFile() throws IOException {
+        final var lister = lister("wtf\n");
+        final var fileNames = new ArrayList<>(lister.list());
+        fileNames.add(root.resolve("missing.txt").toString());
+        final var thrown = catchThrowable(() -> new PipelinedProjectWtfCounter(new FileLister() {
+            @Override
+            public List<String> list() {
+                return fileNames;
+            }
+        }).count());
+        assertThat(thrown).isInstanceOf(IOException.class);
+        assertThat(thrown.getSuppressed()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("The ring buffer delivers every element exactly once")
+    void testRingBuffer() throws InterruptedException {
+        final var ring = new RingBuffer<Integer>(8);
+        assertThat(ring.capacity()).isEqualTo(8);
+        final Set<Integer> seen = ConcurrentHashMap.newKeySet();
+        final int n = 100_000;
+        final var consumers = IntStream.range(0, 2).mapToObj(i -> new Thread(() -> {
+            try {
+                Integer element;
+                while ((element = ring.take()) >= 0) {
+                    assertThat(seen.add(element)).isTrue();
+                }
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        })).toArray(Thread[]::new);
+        final var producers = IntStream.range(0, 2).mapToObj(p -> new Thread(() -> {
+            try {
+                for (int i = p; i < n; i += 2) {
+                    ring.put(i);
+                }
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        })).toArray(Thread[]::new);
+        for (final var t : consumers) t.start();
+        for (final var t : producers) t.start();
+        join(producers);
+        ring.put(-1);
+        ring.put(-1);
+        join(consumers);
+        assertThat(seen).hasSize(n);
+    }
+
+    @Test
+    @DisplayName("A thread waiting on the ring buffer stops when it is interrupted")
+    void testRingBufferInterrupt() throws InterruptedException {
+        final var ring = new RingBuffer<Integer>(1);
+        assertThat(ring.capacity()).isEqualTo(2);
+        assertThat(ring.offer(1)).isTrue();
+        assertThat(ring.offer(2)).isTrue();
+        assertThat(ring.offer(3)).isFalse();
+        final var thrown = new AtomicReference<Throwable>();
+        final var waiting = IntStream.range(0, 2).mapToObj(i -> new Thread(() -> {
+            try {
+                if (i == 0) {
+                    ring.put(3);
+                } else {
+                    new RingBuffer<Integer>(1).take();
+                }
+            } catch (InterruptedException e) {
+                thrown.compareAndSet(null, e);
+                return;
+            }
+            thrown.set(new AssertionError("The wait was not interrupted"));
+        })).toArray(Thread[]::new);
+        for (final var t : waiting) {
+            thrown.set(null);
+            t.start();
+            Thread.sleep(50);
+            t.interrupt();
+            t.join(5_000);
+            assertThat(t.isAlive()).isFalse();
+            assertThat(thrown.get()).isInstanceOf(InterruptedException.class);
+        }
+    }
+
+    private static void join(Thread[] threads) {
+        for (final var t : threads) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
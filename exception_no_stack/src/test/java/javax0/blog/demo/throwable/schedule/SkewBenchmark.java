@@ -0,0 +1,158 @@
+package javax0.blog.demo.throwable.schedule;
+
+import javax0.blog.demo.throwable.corpus.Corpus;
+import javax0.blog.demo.throwable.corpus.CorpusGenerator;
+import javax0.blog.demo.throwable.pipeline.PipelinedProjectWtfCounter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Wall-clock time of a run over a skewed corpus: 400 usual files and one large file of about 40 MB listed last.
+ * The run takes as long as its slowest thread, this is the tail the size aware scheduling cuts. Every read of the
+ * counters waits {@code latencyMicros} before it returns the data from the page cache, the way a network mount
+ * does. The {@code pipeline} reads a file with one reader, the same way as any counter that has a file as its unit
+ * of work. Run it with the {@code main} method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class SkewBenchmark {
+    private static final int THREADS = 8;
+
+    @Param({"0", "500"})
+    public int latencyMicros;
+
+    private Path root;
+    private Corpus corpus;
+
+    @Setup
+    public void setup() throws IOException {
+        root = Files.createTempDirectory("skew");
+        corpus = new CorpusGenerator(42).files(401).largeFiles(1, 1_000_000).generate(root);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (final var files = Files.walk(root)) {
+            for (final var file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public int pipeline() throws IOException {
+        return new PipelinedProjectWtfCounter(corpus.lister()) {
+            @Override
+            protected ReadableByteChannel open(String fileName) throws IOException {
+                return new SlowChannel(Files.newByteChannel(Path.of(fileName)), latencyMicros);
+            }
+        }.readers(THREADS).scanners(THREADS).count();
+    }
+
+    @Benchmark
+    public int largestFirst() throws IOException {
+        return scheduled().splitSize(Long.MAX_VALUE).count();
+    }
+
+    @Benchmark
+    public int largestFirstSplit() throws IOException {
+        return scheduled().count();
+    }
+
+    private ScheduledProjectWtfCounter scheduled() {
+        return new ScheduledProjectWtfCounter(corpus.lister()) {
+            @Override
+            protected SeekableByteChannel open(String fileName) throws IOException {
+                return new SlowChannel(super.open(fileName), latencyMicros);
+            }
+        }.threads(THREADS);
+    }
+
+    private static class SlowChannel implements SeekableByteChannel {
+        private final SeekableByteChannel channel;
+        private final long latencyNanos;
+
+        private SlowChannel(SeekableByteChannel channel, int latencyMicros) {
+            this.channel = channel;
+            this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (latencyNanos > 0) {
+                LockSupport.parkNanos(latencyNanos);
+            }
+            return channel.read(dst);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return channel.write(src);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return channel.position();
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) throws IOException {
+            channel.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size) throws IOException {
+            channel.truncate(size);
+            return this;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SkewBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,121 @@
+package javax0.blog.demo.throwable.schedule;
+
+import javax0.blog.demo.throwable.FileLister;
+import javax0.blog.demo.throwable.corpus.CorpusGenerator;
+import javax0.blog.demo.throwable.filter.FilteringFileLister;
+import javax0.blog.demo.throwable.filter.PathFilter;
+import javax0.blog.demo.throwable.match.WtfMatcher;
+import javax0.blog.demo.throwable.parallel.ProjectWtfCounter;
+import javax0.blog.demo.throwable.v4.FileNumberedLinesAreEmpty;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static javax0.blog.demo.throwable.v4.SuppressedMessages.messages;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class TestScheduledWtfCounter {
+
+    @TempDir
+    Path root;
+
+    private final List<String> fileNames = new ArrayList<>();
+
+    private FileLister lister(String... contents) throws IOException {
+        int i = fileNames.size();
+        for (final var content : contents) {
+            final var file = root.resolve("f" + i++ + ".txt");
+            Files.writeString(file, content);
+            fileNames.add(file.toString());
+        }
+        return new FileLister() {
+            @Override
+            public List<String> list() {
+                return fileNames;
+            }
+        };
+    }
+
+    private static String randomContent(Random random) {
+        final var sb = new StringBuilder();
+        final String[] words = {"wtf", "WTF", "a", "wt", "f", "wtfwtf", "\n", "\n", "\r\n", " "};
+        for (int i = random.nextInt(200); i > 0; i--) {
+            sb.append(words[random.nextInt(words.length)]);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    @DisplayName("Files split into tiny ranges give the same counts and line numbers as the parallel counter")
+    void testSplitRanges() throws IOException {
+        final var random = new Random(17);
+        final var contents = new String[50];
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = randomContent(random);
+        }
+        final var lister = lister(contents);
+        final var expected = catchThrowable(() -> new ProjectWtfCounter(lister).count());
+        assertThat(expected).isInstanceOf(FileNumberedLinesAreEmpty.class);
+        for (final int splitSize : new int[]{1, 2, 7, 64, Integer.MAX_VALUE}) {
+            final var thrown = catchThrowable(() -> new ScheduledProjectWtfCounter(lister)
+                    .splitSize(splitSize).bufferSize(5).threads(4).count());
+            assertThat(messages(thrown)).as("split size %d", splitSize)
+                    .containsExactlyInAnyOrderElementsOf(messages(expected));
+        }
+    }
+
+    @Test
+    @DisplayName("A lone \\r does not end a line and the bytes are not decoded, unlike in the parallel counter")
+    void testDifferencesFromParallel() throws IOException {
+        final var lister = lister("wtf\r\rwtf\n", "");
+        Files.write(Path.of(fileNames.get(1)), new byte[]{'w', 't', 'f', ' ', (byte) 0xC3, '\n'});
+        final var thrown = catchThrowable(() -> new ProjectWtfCounter(lister).count());
+        assertThat(thrown).isInstanceOf(IOException.class);
+        assertThat(thrown.getSuppressed()).hasSize(1);
+        for (final int splitSize : new int[]{1, Integer.MAX_VALUE}) {
+            assertThat(new ScheduledProjectWtfCounter(lister).splitSize(splitSize).bufferSize(5).count())
+                    .as("split size %d", splitSize).isEqualTo(3);
+        }
+    }
+
+    @Test
+    @DisplayName("Counts a skewed corpus listed by the filtering lister")
+    void testSkewedCorpus() throws IOException {
+        final var corpus = new CorpusGenerator(5).files(30).largeFiles(2, 20_000).generate(root);
+        final var lister = new FilteringFileLister(root, new PathFilter());
+        final int count = new ScheduledProjectWtfCounter(lister).splitSize(100_000).count();
+        assertThat((long) count).isEqualTo(corpus.matches);
+        assertThat(lister.sizes()).hasSize(30);
+    }
+
+    @Test
+    @DisplayName("The sizes given by the caller are used, a file grown since the listing is counted as it was listed")
+    void testKnownSizes() throws IOException {
+        final var lister = lister("wtf\n", "wtf\n");
+        final var grown = fileNames.get(1);
+        final var sizes = Map.of(grown, Files.size(Path.of(grown)), "unrelated.txt", 1L);
+        Files.writeString(Path.of(grown), "wtf\nwtf wtf\n");
+        assertThat(new ScheduledProjectWtfCounter(lister, new WtfMatcher(), sizes).count()).isEqualTo(2);
+        assertThat(new ScheduledProjectWtfCounter(lister).count()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Read errors take precedence over the empty lines")
+    void testIOException() throws IOException {
+        lister("\n", "wtf\n");
+        fileNames.add(root.resolve("nonexistent.txt").toString());
+        final var thrown = catchThrowable(() -> new ScheduledProjectWtfCounter(lister()).count());
+        assertThat(thrown).isInstanceOf(IOException.class);
+        assertThat(thrown.getSuppressed()).hasSize(1).allMatch(t -> t instanceof NoSuchFileException);
+    }
+}
@@ -0,0 +1,225 @@
+package javax0.blog.demo.throwable.service;
+
+import javax0.blog.demo.throwable.filter.FilteringFileLister;
+import javax0.blog.demo.throwable.filter.PathFilter;
+import javax0.blog.demo.throwable.parallel.ProjectWtfCounter;
+import javax0.blog.demo.throwable.v4.FileNumberedLinesAreEmpty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import static javax0.blog.demo.throwable.v4.SuppressedMessages.messages;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class TestWtfService {
+
+    @TempDir
+    Path root;
+
+    private final CountingService service = new CountingService();
+    private WtfServer server;
+    private int port;
+    // not in the root, the token file would be counted
+    private Path tokens;
+
+    @BeforeEach
+    void start() throws IOException {
+        tokens = Files.createTempDirectory("wtf-tokens");
+        server = new WtfServer(0, service).threads(4).allow(root).tokenDirectory(tokens);
+        port = server.start();
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        if (server != null) {
+            server.stop();
+        }
+        Files.deleteIfExists(WtfServer.tokenFile(tokens, port));
+        Files.delete(tokens);
+    }
+
+    private WtfClient client() {
+        return new WtfClient(port).tokenDirectory(tokens);
+    }
+
+    @Test
+    @DisplayName("The second request is served from the cache, a changed file is counted again")
+    void testCache() throws IOException {
+        Files.writeString(root.resolve("a.txt"), "wtf wtf\nwtf\n");
+        Files.writeString(root.resolve("b.txt"), "wtf\n");
+        Files.createDirectories(root.resolve("target"));
+        Files.writeString(root.resolve("target/ignored.txt"), "wtf\n");
+        final var client = client();
+
+        var report = client.report(root);
+        assertThat(report.total).isEqualTo(4);
+        assertThat(report.files).isEqualTo(2);
+        assertThat(report.cached).isEqualTo(0);
+
+        report = client.report(root);
+        assertThat(report.total).isEqualTo(4);
+        assertThat(report.cached).isEqualTo(2);
+
+        Files.writeString(root.resolve("b.txt"), "wtf wtf wtf\n");
+        report = client.report(root);
+        assertThat(report.total).isEqualTo(6);
+        assertThat(report.cached).isEqualTo(1);
+
+        // the options are part of the key, the case insensitive count does not use the earlier results
+        Files.writeString(root.resolve("c.txt"), "WTF\n");
+        report = client().ignoreCase().exclude("b.txt").report(root);
+        assertThat(report.total).isEqualTo(4);
+        assertThat(report.files).isEqualTo(2);
+        assertThat(report.cached).isEqualTo(0);
+        assertThat(client.count(root)).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("The empty lines are thrown by the client the same way as by the counter")
+    void testEmptyLines() throws IOException {
+        Files.writeString(root.resolve("a.txt"), "wtf wtf\nwtf something\n\nnothing\n");
+        Files.writeString(root.resolve("b.txt"), "wtf wtf wtf\n\nwtf something wtf\nnothing wtf\n\n");
+        Files.writeString(root.resolve("c.txt"), "wtf\n");
+        final var expected = catchThrowable(() -> new ProjectWtfCounter(new FilteringFileLister(root, new PathFilter())).count());
+        for (int i = 0; i < 2; i++) {
+            final var thrown = catchThrowable(() -> client().count(root));
+            assertThat(thrown).isInstanceOf(FileNumberedLinesAreEmpty.class);
+            assertThat(messages(thrown)).containsExactlyInAnyOrderElementsOf(messages(expected));
+        }
+        assertThat(client().report(root).total).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Concurrent clients get the same report")
+    void testConcurrentClients() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            Files.writeString(root.resolve("f" + i + ".txt"), "wtf wtf\nwtf " + i + "\n".repeat(i % 5 == 0 ? 2 : 1));
+        }
+        final var pool = Executors.newFixedThreadPool(8);
+        try {
+            final var requests = new ArrayList<Callable<Report>>();
+            for (int i = 0; i < 16; i++) {
+                requests.add(() -> client().report(root));
+            }
+            for (final var future : pool.invokeAll(requests)) {
+                final var report = future.get();
+                assertThat(report.total).isEqualTo(40 * 3);
+                assertThat(report.files).isEqualTo(50);
+                assertThat(report.emptyLines).hasSize(10).allSatisfy((name, lines) -> assertThat(lines).containsExactly(3));
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertThat(service.cachedFiles()).isEqualTo(50);
+    }
+
+    @Test
+    @DisplayName("A wrong request is answered with an error")
+    void testErrors() {
+        final var thrown = catchThrowable(() -> client().report(root.resolve("missing")));
+        assertThat(thrown).isInstanceOf(IOException.class).hasMessageContaining("400").hasMessageContaining("is not a directory");
+        server.stop();
+        server = null;
+        assertThat(catchThrowable(() -> client().report(root))).isInstanceOf(IOException.class);
+        assertThat(catchThrowable(() -> new CountingService().maxCachedFiles(-1))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("A server that was not started or failed to start can be stopped, also twice")
+    void testStopWithoutStart() {
+        new WtfServer(0, service).stop();
+        final var failed = new WtfServer(0, service);
+        assertThat(catchThrowable(failed::start)).isInstanceOf(IllegalStateException.class);
+        failed.stop();
+        server.stop();
+        server.stop();
+        server = null;
+    }
+
+    @Test
+    @DisplayName("Only requests with the token, to the loopback host and in the allowed directories are served")
+    void testAccess() throws IOException {
+        Files.writeString(root.resolve("a.txt"), "wtf\n");
+        final var tokenFile = WtfServer.tokenFile(tokens, port);
+        if (Files.getFileStore(tokenFile).supportsFileAttributeView("posix")) {
+            assertThat(Files.getPosixFilePermissions(tokenFile))
+                    .containsExactlyInAnyOrder(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE);
+        }
+        final var bearer = "Bearer " + Files.readString(tokenFile);
+        final var local = "127.0.0.1:" + port;
+        assertThat(status(root, local, bearer)).isEqualTo(200);
+        assertThat(status(root, "localhost:" + port, bearer)).isEqualTo(200);
+        assertThat(status(root, local, null)).isEqualTo(401);
+        assertThat(status(root, local, "Bearer wrong")).isEqualTo(401);
+        assertThat(status(root, "evil.example:" + port, bearer)).isEqualTo(403);
+        assertThat(status(root, "127.0.0.1:1", bearer)).isEqualTo(403);
+        assertThat(status(root, null, bearer)).isEqualTo(403);
+
+        final var outside = Files.createTempDirectory("wtf-outside");
+        try {
+            assertThat(status(outside, local, bearer)).isEqualTo(403);
+            assertThat(status(root.resolve(".."), local, bearer)).isEqualTo(403);
+            final var link = root.resolve("link");
+            try {
+                Files.createSymbolicLink(link, outside);
+            } catch (UnsupportedOperationException | IOException e) {
+                return;
+            }
+            assertThat(status(link, local, bearer)).isEqualTo(403);
+        } finally {
+            Files.delete(outside);
+        }
+        assertThat(catchThrowable(() -> new WtfServer(0, service).start())).isInstanceOf(IllegalStateException.class);
+    }
+
+    /**
+     * Sends the request on a socket, {@link java.net.HttpURLConnection} does not let the host header be set.
+     */
+    private int status(Path path, String host, String authorization) throws IOException {
+        try (final var socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            final var request = new StringBuilder("GET /count?path=")
+                    .append(URLEncoder.encode(path.toString(), StandardCharsets.UTF_8)).append(" HTTP/1.1\r\n");
+            if (host != null) {
+                request.append("Host: ").append(host).append("\r\n");
+            }
+            if (authorization != null) {
+                request.append("Authorization: ").append(authorization).append("\r\n");
+            }
+            request.append("Connection: close\r\n\r\n");
+            socket.getOutputStream().write(request.toString().getBytes(StandardCharsets.UTF_8));
+            final var response = new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            return Integer.parseInt(response.split(" ", 3)[1]);
+        }
+    }
+
+    @Test
+    @DisplayName("The report survives the JSON round trip")
+    void testJson() {
+        final var report = new Report(12, 3, 2, Map.of("/p/a \"quoted\"\\.txt", new int[]{3}, "/p/\u00e9\n.txt", new int[]{2, 5}));
+        final var json = report.toJson();
+        final var back = Report.fromJson(json);
+        assertThat(back.total).isEqualTo(12);
+        assertThat(back.files).isEqualTo(3);
+        assertThat(back.cached).isEqualTo(2);
+        assertThat(back.emptyLines).containsOnlyKeys(report.emptyLines.keySet());
+        assertThat(back.emptyLines.get("/p/\u00e9\n.txt")).containsExactly(2, 5);
+        assertThat(back.toJson()).isEqualTo(json);
+        assertThat(catchThrowable(() -> Report.fromJson("{\"total\":1"))).isInstanceOf(IllegalArgumentException.class);
+    }
+}
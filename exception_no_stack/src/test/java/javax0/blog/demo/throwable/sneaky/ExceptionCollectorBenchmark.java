@@ -0,0 +1,83 @@
+package javax0.blog.demo.throwable.sneaky;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Compares the exception tunneling adapters to the plain lambda on the non-throwing path. Run it with the
+ * {@code main} method, the GC profiler reports {@code gc.alloc.rate.norm}, which has to be zero for all of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExceptionCollectorBenchmark {
+
+    private String line;
+    private ToIntFunction<String> plain;
+    private ToIntFunction<String> collecting;
+    private ToIntFunction<String> sneaky;
+    private Function<String, String> sneakyFunction;
+
+    private static int length(String s) throws IOException {
+        if (s == null) {
+            throw new IOException();
+        }
+        return s.length();
+    }
+
+    @Setup
+    public void setup() {
+        line = "wtf wtf wtf";
+        plain = String::length;
+        collecting = new ExceptionCollector(IOException.class).toIntFunction(ExceptionCollectorBenchmark::length, 0);
+        sneaky = ThrowingToIntFunction.sneaky(ExceptionCollectorBenchmark::length);
+        sneakyFunction = ThrowingFunction.sneaky(String::trim);
+    }
+
+    @Benchmark
+    public int plainLambda() {
+        return plain.applyAsInt(line);
+    }
+
+    @Benchmark
+    public int collectingAdapter() {
+        return collecting.applyAsInt(line);
+    }
+
+    @Benchmark
+    public int sneakyAdapter() {
+        return sneaky.applyAsInt(line);
+    }
+
+    @Benchmark
+    public String sneakyFunctionAdapter() {
+        return sneakyFunction.apply(line);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ExceptionCollectorBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,149 @@
+package javax0.blog.demo.throwable.store;
+
+import javax0.blog.demo.throwable.FileLister;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TestResultStore {
+
+    @TempDir
+    Path root;
+
+    @Test
+    @DisplayName("Parallel appends are all stored and survive saving and mapping")
+    void testParallelAppendSaveAndMap() throws IOException {
+        final var store = ResultStore.allocate(10_000, 1 << 20);
+        IntStream.range(0, 10_000).parallel().forEach(i ->
+                store.append("file" + i + ".txt", i, new int[]{i, i + 1, 99}, i % 3));
+        assertThat(store.size()).isEqualTo(10_000);
+        final var file = root.resolve("results.bin");
+        store.save(file);
+
+        final var mapped = ResultStore.map(file);
+        assertThat(mapped.size()).isEqualTo(10_000);
+        assertThat(mapped.total()).isEqualTo(store.total()).isEqualTo(10_000L * 9_999 / 2);
+        final var byName = new HashMap<String, Integer>();
+        for (int i = 0; i < mapped.size(); i++) {
+            byName.put(mapped.fileName(i), i);
+        }
+        for (final int i : new int[]{0, 1, 2, 5000, 9_999}) {
+            final int index = byName.get("file" + i + ".txt");
+            assertThat(mapped.count(index)).isEqualTo(i);
+            assertThat(mapped.emptyLines(index)).containsExactly(List.of(i, i + 1).subList(0, i % 3).stream().mapToInt(x -> x).toArray());
+        }
+        assertThatThrownBy(() -> mapped.append("x", 0, new int[0], 0)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("A damaged header is reported, the sizes in it do not overflow")
+    void testDamagedHeader() throws IOException {
+        final var store = ResultStore.allocate(2, 64);
+        store.append("a", 1, new int[]{7}, 1);
+        final var file = root.resolve("damaged.bin");
+        store.save(file);
+        final var bytes = Files.readAllBytes(file);
+        for (final int records : new int[]{Integer.MAX_VALUE, 0x0800_0001, -1}) {
+            ByteBuffer.wrap(bytes).putInt(8, records);
+            Files.write(file, bytes);
+            assertThatThrownBy(() -> ResultStore.map(file)).isInstanceOf(IOException.class);
+        }
+        ByteBuffer.wrap(bytes).putInt(8, 1).putLong(16, Long.MAX_VALUE);
+        Files.write(file, bytes);
+        assertThatThrownBy(() -> ResultStore.map(file)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    @DisplayName("A full store refuses appending")
+    void testFull() {
+        final var store = ResultStore.allocate(1, 1024);
+        store.append("a", 1, new int[0], 0);
+        assertThatThrownBy(() -> store.append("b", 1, new int[0], 0)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("A store that refused appending can still be saved and mapped")
+    void testSaveAfterFull() throws IOException {
+        final var variableFull = ResultStore.allocate(10, 16);
+        variableFull.append("a", 1, new int[]{7}, 1);
+        assertThatThrownBy(() -> variableFull.append("a long file name", 2, new int[0], 0)).isInstanceOf(IllegalStateException.class);
+        variableFull.append("b", 3, new int[0], 0);
+        final var recordsFull = ResultStore.allocate(2, 1024);
+        recordsFull.append("a", 1, new int[]{7}, 1);
+        recordsFull.append("b", 3, new int[0], 0);
+        assertThatThrownBy(() -> recordsFull.append("c", 2, new int[0], 0)).isInstanceOf(IllegalStateException.class);
+        for (final var store : List.of(variableFull, recordsFull)) {
+            assertThat(store.size()).isEqualTo(2);
+            final var file = root.resolve("full.bin");
+            store.save(file);
+            final var mapped = ResultStore.map(file);
+            assertThat(mapped.size()).isEqualTo(2);
+            assertThat(mapped.total()).isEqualTo(4);
+            assertThat(mapped.fileName(0)).isEqualTo("a");
+            assertThat(mapped.emptyLines(0)).containsExactly(7);
+            assertThat(mapped.fileName(1)).isEqualTo("b");
+        }
+    }
+
+    @Test
+    @DisplayName("Counting stores the counts and the empty lines of every file")
+    void testCounting() throws IOException {
+        final var fileNames = new ArrayList<String>();
+        final var contents = new String[]{"wtf wtf\nwtf something\n\nnothing\n", "wtf wtf wtf\n\nwtf something wtf\nnothing wtf\n\n", "wtf\nwtf\n"};
+        for (int i = 0; i < contents.length; i++) {
+            final var file = root.resolve(i + ".txt");
+            Files.writeString(file, contents[i]);
+            fileNames.add(file.toString());
+        }
+        final var store = ResultStore.allocate(10, 1024);
+        final long sum = new StoringProjectWtfCounter(new FileLister() {
+            @Override
+            public List<String> list() {
+                return fileNames;
+            }
+        }, store).count();
+        // a file that has empty lines counts zero
+        assertThat(sum).isEqualTo(2).isEqualTo(store.total());
+        for (int i = 0; i < store.size(); i++) {
+            if (store.fileName(i).endsWith("0.txt")) {
+                assertThat(store.count(i)).isEqualTo(0);
+                assertThat(store.emptyLines(i)).containsExactly(3);
+            } else if (store.fileName(i).endsWith("1.txt")) {
+                assertThat(store.count(i)).isEqualTo(0);
+                assertThat(store.emptyLines(i)).containsExactly(2, 5);
+            } else {
+                assertThat(store.count(i)).isEqualTo(2);
+                assertThat(store.emptyLines(i)).isEmpty();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Counting without the empty lines needs store space only for the names")
+    void testCountingWithoutEmptyLines() throws IOException {
+        final var file = root.resolve("0.txt");
+        Files.writeString(file, "wtf wtf\n\n\n\nwtf\n\n");
+        final var store = ResultStore.allocate(1, 4 * ((file.toString().length() + 3) / 4));
+        final long sum = new StoringProjectWtfCounter(new FileLister() {
+            @Override
+            public List<String> list() {
+                return List.of(file.toString());
+            }
+        }, store).withoutEmptyLines().count();
+        assertThat(sum).isEqualTo(3);
+        assertThat(store.count(0)).isEqualTo(3);
+        assertThat(store.emptyLineCount(0)).isEqualTo(0);
+    }
+}
@@ -0,0 +1,26 @@
+package javax0.blog.demo.throwable.v4;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helps the tests of the counters to compare the exceptions they throw. The files finish in any order, thus the
+ * suppressed exceptions are compared by their messages and not by their position.
+ */
+public class SuppressedMessages {
+
+    private SuppressedMessages() {
+    }
+
+    /**
+     * @param t the exception the counter threw
+     * @return the pretty printed messages of the suppressed exceptions, three levels deep
+     */
+    public static List<String> messages(Throwable t) {
+        final var messages = new ArrayList<String>();
+        for (final var suppressed : t.getSuppressed()) {
+            messages.add(new ExceptionStructurePrettyPrinter(suppressed).getMessage(3));
+        }
+        return messages;
+    }
+}
@@ -4,6 +4,9 @@ import javax0.blog.demo.throwable.FileLister;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 
@@ -22,4 +25,45 @@ public class TestWtfCounter {
         System.out.println(new ExceptionStructurePrettyPrinter(thrown).getMessage(4));
     }
 
+    @Test
+    @DisplayName("The wrapper gets the stack trace of the cause only when it is asked for")
+    void testLazyStackTrace() {
+        final var lineEmpty = new LineEmpty();
+        final var wrapper = new NumberedLineEmpty(3, lineEmpty);
+        assertThat(lineEmpty.getStackTrace()).isNotEmpty();
+        final var stackTrace = lineEmpty.getStackTrace();
+
+        assertThat(wrapper.getStackTrace()).isEqualTo(stackTrace);
+        assertThat(lineEmpty.getStackTrace()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Printing moves the stack traces in the whole structure")
+    void testPrintingMovesStackTraces() {
+        final var lineEmpty = new LineEmpty();
+        final var lines = new NumberedLinesAreEmpty();
+        lines.addSuppressed(new NumberedLineEmpty(3, lineEmpty));
+        final var file = new FileNumberedLineEmpty("a.txt", lines);
+        final var project = new FileNumberedLinesAreEmpty();
+        project.addSuppressed(file);
+
+        final var sw = new StringWriter();
+        project.printStackTrace(new PrintWriter(sw));
+
+        assertThat(lineEmpty.getStackTrace()).isEmpty();
+        assertThat(lines.getStackTrace()).isEmpty();
+        assertThat(file.getStackTrace()).isNotEmpty();
+        assertThat(sw.toString()).contains("NumberedLineEmpty: line 3.", "FileNumberedLineEmpty: a.txt");
+    }
+
+    @Test
+    @DisplayName("The line numbers skip the suppressed exceptions that are not about a line")
+    void testLineNumbersSkipOtherSuppressed() {
+        final var lines = new NumberedLinesAreEmpty();
+        lines.addSuppressed(new NumberedLineEmpty(3, new LineEmpty()));
+        lines.addSuppressed(new IllegalStateException("not a line"));
+        lines.addSuppressed(new NumberedLineEmpty(5, new LineEmpty()));
+
+        assertThat(lines.getLineNumbers()).containsExactly(3, 5);
+    }
 }